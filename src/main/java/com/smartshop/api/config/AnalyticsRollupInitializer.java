@@ -0,0 +1,46 @@
+package com.smartshop.api.config;
+
+import com.smartshop.api.repositories.OrderRepository;
+import com.smartshop.api.services.OrderAnalyticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Backfills the order analytics rollups. Runs automatically the first time the rollup table is
+ * empty while orders exist, and on demand when the application is started with --rebuild-analytics
+ * or with analytics.rollups.rebuild-on-startup=true.
+ */
+@Component
+public class AnalyticsRollupInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsRollupInitializer.class);
+
+    @Value("${analytics.rollups.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Override
+    public void run(String... args) throws Exception {
+        boolean requested = rebuildOnStartup || Arrays.asList(args).contains("--rebuild-analytics");
+
+        if (requested || (orderAnalyticsService.isEmpty() && orderRepository.count() > 0)) {
+            logger.info("Rebuilding order analytics rollups...");
+            try {
+                orderAnalyticsService.rebuild();
+            } catch (Exception e) {
+                logger.error("Error rebuilding order analytics rollups: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.smartshop.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded executors for work that is taken off Tomcat's request threads.
+ *
+ * streamingTaskExecutor runs StreamingResponseBody downloads (file and profile image content),
+ * which used to share Spring Boot's default executor with its unbounded queue.
+ * slowEndpointExecutor runs the report endpoints routed through SlowEndpointExecutor when
+ * web.async.enabled is set. Both reject work once full instead of queueing without limit.
+ *
+ * The project targets Java 11, so virtual threads are not an option here.
+ */
+@Configuration
+public class AsyncRequestConfig implements WebMvcConfigurer {
+
+    @Value("${web.async.request-timeout-ms:60000}")
+    private long requestTimeoutMs;
+
+    @Value("${web.async.streaming.threads:16}")
+    private int streamingThreads;
+
+    @Value("${web.async.streaming.queue-capacity:200}")
+    private int streamingQueueCapacity;
+
+    @Value("${web.async.slow-endpoints.threads:4}")
+    private int slowEndpointThreads;
+
+    @Value("${web.async.slow-endpoints.queue-capacity:50}")
+    private int slowEndpointQueueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor streamingTaskExecutor() {
+        return boundedExecutor("streaming-", streamingThreads, streamingQueueCapacity);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor slowEndpointTaskExecutor() {
+        return boundedExecutor("slow-endpoint-", slowEndpointThreads, slowEndpointQueueCapacity);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingTaskExecutor());
+        configurer.setDefaultTimeout(requestTimeoutMs);
+    }
+
+    private static ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,62 @@
+package com.smartshop.api.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Size-bounded Caffeine (W-TinyLFU) caches for the public catalog reads.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT = "product";
+    public static final String CATEGORIES = "categories";
+    public static final String CATEGORY = "category";
+    public static final String SUBCATEGORIES = "subcategories";
+    public static final String SUBCATEGORY = "subcategory";
+    public static final String SUBCATEGORIES_BY_CATEGORY = "subcategoriesByCategory";
+    public static final String OFFERS = "offers";
+    public static final String OFFER = "offer";
+
+    @Value("${cache.catalog.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${cache.catalog.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    // Product rows carry stock levels that change on every order, so they expire sooner
+    @Value("${cache.catalog.product-ttl-seconds:60}")
+    private long productTtlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+
+        for (String name : new String[]{PRODUCTS, PRODUCT}) {
+            cacheManager.registerCustomCache(name, newCache(productTtlSeconds));
+        }
+        for (String name : new String[]{CATEGORIES, CATEGORY, SUBCATEGORIES, SUBCATEGORY,
+                SUBCATEGORIES_BY_CATEGORY, OFFERS, OFFER}) {
+            cacheManager.registerCustomCache(name, newCache(ttlSeconds));
+        }
+        return cacheManager;
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> newCache(long ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttl))
+                .recordStats()
+                .build();
+    }
+}
@@ -1,14 +1,20 @@
 package com.smartshop.api.config;
 
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 @Configuration
@@ -17,21 +23,73 @@ public class DatabaseConfig {
     @Autowired
     private Environment env;
 
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
     @Primary
     @Bean
     public DataSource dataSource() {
+        HikariDataSource primary = pool("smartshop", env.getProperty("spring.datasource.url"),
+                env.getProperty("spring.datasource.username"), env.getProperty("spring.datasource.password"), 5);
+
+        DataSource dataSource = primary;
+        Map<String, DataSource> replicas = replicaPools();
+        if (!replicas.isEmpty()) {
+            double maxLagSeconds = env.getProperty("database.replicas.max-lag-seconds", Double.class, 5.0);
+            // The lazy proxy defers the routing decision until the transaction's read-only flag is set
+            LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy();
+            lazy.setTargetDataSource(new ReadWriteRoutingDataSource(primary, replicas, maxLagSeconds));
+            lazy.setDefaultAutoCommit(true);
+            lazy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            dataSource = lazy;
+        }
+        
+        // Per-request statement counts for StatementCountFilter
+        if (env.getProperty("jdbc.statement-count.enabled", Boolean.class, false)) {
+            return new StatementCountingDataSource(dataSource);
+        }
+        return dataSource;
+    }
+
+    // One pool per URL in database.replicas.urls; the primary's credentials unless overridden
+    private Map<String, DataSource> replicaPools() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        String urls = env.getProperty("database.replicas.urls", "");
+        String username = env.getProperty("database.replicas.username", env.getProperty("spring.datasource.username"));
+        String password = env.getProperty("database.replicas.password", env.getProperty("spring.datasource.password"));
+        int maxPoolSize = env.getProperty("database.replicas.max-pool-size", Integer.class, 5);
+
+        for (String url : urls.split(",")) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            String name = "smartshop-replica-" + (replicas.size() + 1);
+            HikariDataSource replica = pool(name, url.trim(), username, password, maxPoolSize);
+            replica.setReadOnly(true);
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null) {
+                // Boot only instruments DataSource beans, which the replicas are not
+                replica.setMetricRegistry(registry);
+            }
+            replicas.put(name, replica);
+        }
+        return replicas;
+    }
+
+    private HikariDataSource pool(String name, String url, String username, String password, int maxPoolSize) {
         HikariDataSource dataSource = new HikariDataSource();
         
         // Set database connection properties
         dataSource.setDriverClassName(env.getProperty("spring.datasource.driver-class-name"));
-        dataSource.setJdbcUrl(env.getProperty("spring.datasource.url"));
-        dataSource.setUsername(env.getProperty("spring.datasource.username"));
-        dataSource.setPassword(env.getProperty("spring.datasource.password"));
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
         
         // Connection pool settings
+        dataSource.setPoolName(name);
         dataSource.setConnectionTimeout(30000);
         dataSource.setMinimumIdle(2);
-        dataSource.setMaximumPoolSize(5);
+        dataSource.setMaximumPoolSize(maxPoolSize);
         dataSource.setIdleTimeout(300000);
         dataSource.setMaxLifetime(1800000);
         dataSource.setConnectionTestQuery("SELECT 1");
@@ -46,11 +104,10 @@ public class DatabaseConfig {
         dsProps.setProperty("ApplicationName", "SmartShop");
         dsProps.setProperty("reWriteBatchedInserts", "true");
         
-        // Specific properties for Aiven PostgreSQL
-        dsProps.setProperty("sslmode", "require");
+        // Specific properties for Aiven PostgreSQL (the integration tests' local database runs without TLS)
+        dsProps.setProperty("sslmode", env.getProperty("database.ssl-mode", "require"));
         
         dataSource.setDataSourceProperties(dsProps);
-        
         return dataSource;
     }
     
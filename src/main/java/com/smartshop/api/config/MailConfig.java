@@ -0,0 +1,19 @@
+package com.smartshop.api.config;
+
+import com.smartshop.api.services.mail.RecordingMailSender;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+
+@Configuration
+public class MailConfig {
+
+    // Replaces the auto-configured SMTP sender, which backs off when a JavaMailSender bean exists
+    @Bean
+    @ConditionalOnProperty(name = "email.delivery", havingValue = "log")
+    public JavaMailSender recordingMailSender(@Value("${email.recording.capacity:100}") int capacity) {
+        return new RecordingMailSender(capacity);
+    }
+}
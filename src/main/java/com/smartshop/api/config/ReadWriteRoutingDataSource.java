@@ -0,0 +1,130 @@
+package com.smartshop.api.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends @Transactional(readOnly = true) work to a replica pool and everything else to the primary.
+ *
+ * Which pool a transaction uses is decided when its first statement needs a connection, so this
+ * must sit behind a LazyConnectionDataSourceProxy (see DatabaseConfig); by then the transaction's
+ * read-only flag is known. Replicas are used round-robin, but only while {@link #checkReplicas()}
+ * last found them reachable and no further behind than the allowed lag. With no usable replica,
+ * read-only work falls back to the primary.
+ *
+ * Replicas are asynchronous, so a read-only transaction can miss a write committed up to
+ * max-lag-seconds earlier. Reads that must see a recent write stay read-only and are sent to the
+ * primary with {@link #onPrimary}; ReadYourWrites decides when.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private static final String PRIMARY = "primary";
+
+    // Zero when the replica has replayed everything it received, otherwise the age of the last replayed transaction
+    private static final String LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private static final ThreadLocal<Boolean> ON_PRIMARY = new ThreadLocal<>();
+
+    private final Map<String, DataSource> replicas;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> usableReplicas = List.of();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, double maxLagSeconds) {
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.maxLagSeconds = maxLagSeconds;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * Work run by {@link #onPrimary}.
+     */
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Runs the work with its read-only transactions on the primary. This covers every transaction
+     * that takes its connection inside the work, including a read-only transaction that began
+     * just before and has not run a statement yet.
+     */
+    public static <T, E extends Exception> T onPrimary(Work<T, E> work) throws E {
+        if (Boolean.TRUE.equals(ON_PRIMARY.get())) {
+            return work.run();
+        }
+        ON_PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.run();
+        } finally {
+            ON_PRIMARY.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || Boolean.TRUE.equals(ON_PRIMARY.get())) {
+            return PRIMARY;
+        }
+        List<String> usable = usableReplicas;
+        if (usable.isEmpty()) {
+            return PRIMARY;
+        }
+        return usable.get(Math.floorMod(next.getAndIncrement(), usable.size()));
+    }
+
+    /**
+     * Measures the replication lag of every replica and updates the set that read-only work may use.
+     */
+    public void checkReplicas() {
+        List<String> usable = new ArrayList<>(replicas.size());
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            String name = replica.getKey();
+            boolean wasUsable = usableReplicas.contains(name);
+            try (Connection connection = replica.getValue().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_SQL)) {
+                resultSet.next();
+                double lagSeconds = resultSet.getDouble(1);
+                if (lagSeconds <= maxLagSeconds) {
+                    usable.add(name);
+                    if (!wasUsable) {
+                        logger.info("Replica {} is in use (lag {} s)", name, lagSeconds);
+                    }
+                } else if (wasUsable) {
+                    logger.warn("Replica {} is {} s behind, reading from the primary instead", name, lagSeconds);
+                }
+            } catch (Exception e) {
+                if (wasUsable) {
+                    logger.warn("Replica {} is unreachable, reading from the primary instead: {}", name, e.getMessage());
+                }
+            }
+        }
+        usableReplicas = List.copyOf(usable);
+    }
+}
@@ -0,0 +1,97 @@
+package com.smartshop.api.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartshop.api.events.OrderChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Lets read-only work see recent writes without giving up the replicas.
+ *
+ * A committed write is recorded under a scope: the catalog, one user's orders, or all orders.
+ * For database.replicas.read-your-writes-seconds after that, reads of the scope run on the
+ * primary, while reads of every other scope keep using the replicas. Lookups by a key no scope
+ * covers, such as a file path, instead read the replica first and retry on the primary when it
+ * finds nothing. Without replicas everything is on the primary already and nothing is retried.
+ */
+@Component
+public class ReadYourWrites {
+
+    public static final String CATALOG = "catalog";
+    public static final String ORDERS = "orders";
+
+    // One entry per user who wrote within the window
+    private static final long MAX_SCOPES = 100_000;
+
+    @Value("${database.replicas.read-your-writes-seconds:15}")
+    private long windowSeconds;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Cache<String, Boolean> recentWrites;
+    private boolean replicated;
+
+    @PostConstruct
+    public void init() throws SQLException {
+        recentWrites = Caffeine.newBuilder()
+                .maximumSize(MAX_SCOPES)
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .build();
+        replicated = dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)
+                && dataSource.unwrap(ReadWriteRoutingDataSource.class).hasReplicas();
+    }
+
+    public static String user(Long userId) {
+        return "user:" + userId;
+    }
+
+    /**
+     * Starts the window of the scope. Call once the write has committed; a read in between could
+     * still fill a cache from a replica.
+     */
+    public void recordWrite(String scope) {
+        if (replicated) {
+            recentWrites.put(scope, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Runs the read on the primary if the scope was written within the window, otherwise where
+     * its transaction is routed anyway.
+     */
+    public <T, E extends Exception> T read(String scope, ReadWriteRoutingDataSource.Work<T, E> read) throws E {
+        if (replicated && recentWrites.getIfPresent(scope) != null) {
+            return ReadWriteRoutingDataSource.onPrimary(read);
+        }
+        return read.run();
+    }
+
+    /**
+     * Runs the lookup, and runs it again on the primary if it found nothing. Each run must take
+     * its own connection, so the lookup may not be part of an enclosing transaction.
+     */
+    public <T, E extends Exception> Optional<T> lookup(ReadWriteRoutingDataSource.Work<Optional<T>, E> lookup) throws E {
+        Optional<T> found = lookup.run();
+        if (found.isPresent() || !replicated) {
+            return found;
+        }
+        return ReadWriteRoutingDataSource.onPrimary(lookup);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        recordWrite(user(event.getUserId()));
+        recordWrite(ORDERS);
+    }
+}
@@ -0,0 +1,36 @@
+package com.smartshop.api.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Re-checks replica lag every database.replicas.check-interval-ms, so read-only work moves to the
+ * primary soon after a replica falls behind and back once it catches up.
+ */
+@Component
+public class ReplicaLagMonitor {
+
+    @Autowired
+    private DataSource dataSource;
+
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @PostConstruct
+    public void init() throws SQLException {
+        if (dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)) {
+            routingDataSource = dataSource.unwrap(ReadWriteRoutingDataSource.class);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${database.replicas.check-interval-ms:5000}")
+    public void checkReplicas() {
+        if (routingDataSource != null && routingDataSource.hasReplicas()) {
+            routingDataSource.checkReplicas();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.smartshop.api.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets only one in every {@code every} DEBUG or TRACE event through for each message of the
+ * configured loggers (see logback-spring.xml), so turning DEBUG on at runtime for a hot class
+ * does not flood the appenders.
+ *
+ * Events are counted per message format, so a frequent message is thinned out without hiding
+ * rare ones from the same class. The decision is made before logback builds the event, so a
+ * dropped message costs a counter increment. INFO and above always pass, and events below the
+ * logger's level are left to the normal level check without being counted.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final List<String> loggers = new ArrayList<>();
+    private final ConcurrentHashMap<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private int every = 1;
+
+    public void addLogger(String name) {
+        loggers.add(name);
+    }
+
+    public void setEvery(int every) {
+        this.every = Math.max(1, every);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isDebugEnabled() and friends pass a null format
+        if (every == 1 || format == null || level.isGreaterOrEqual(Level.INFO)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel()) || !isSampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        long count = counts.computeIfAbsent(format, key -> new AtomicLong()).getAndIncrement();
+        return count % every == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean isSampled(String name) {
+        for (String prefix : loggers) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
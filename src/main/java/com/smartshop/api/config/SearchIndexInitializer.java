@@ -0,0 +1,30 @@
+package com.smartshop.api.config;
+
+import com.smartshop.api.services.ProductSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the in-memory product search index once the application has started.
+ */
+@Component
+public class SearchIndexInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        try {
+            productSearchService.rebuild();
+        } catch (Exception e) {
+            // Search keeps working through the database queries until the next rebuild
+            logger.error("Error building product search index: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.smartshop.api.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements each request runs (see StatementCountingDataSource).
+ *
+ * The count is recorded per endpoint as the http.server.requests.jdbc.statements summary, and
+ * requests above jdbc.statement-count.warn-threshold are logged, which is where N+1 fetches
+ * show up. ServerTimingAdvice also reports the count so far in a Server-Timing header.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "jdbc.statement-count.enabled", havingValue = "true")
+public class StatementCountFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(StatementCountFilter.class);
+
+    @Value("${jdbc.statement-count.warn-threshold:20}")
+    private int warnThreshold;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementCountingDataSource.Counter counter = StatementCountingDataSource.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            StatementCountingDataSource.end();
+            record(request, counter);
+        }
+    }
+
+    private void record(HttpServletRequest request, StatementCountingDataSource.Counter counter) {
+        // Raw URIs would give every product id its own series
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("http.server.requests.jdbc.statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(counter.getStatements());
+
+        if (counter.getStatements() > warnThreshold) {
+            logger.warn("{} {} ran {} SQL statements ({} ms in JDBC)", request.getMethod(), uri,
+                    counter.getStatements(), Math.round(counter.getMillis()));
+        }
+    }
+}
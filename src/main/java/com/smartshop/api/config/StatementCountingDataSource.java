@@ -0,0 +1,122 @@
+package com.smartshop.api.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts the JDBC statements executed on the current thread, and the time spent in them.
+ *
+ * Connections are wrapped in a JDK proxy that wraps every statement it creates; each execute*
+ * call is counted once (a whole batch counts as one round trip). Counting only happens between
+ * {@link #begin()} and {@link #end()}, which StatementCountFilter calls around each request, so
+ * Hibernate, Spring Data and JdbcTemplate traffic is all seen the same way. Work handed to other
+ * threads (async endpoints, background jobs) is not counted.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<Counter> CURRENT = new ThreadLocal<>();
+
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    public static Counter begin() {
+        Counter counter = new Counter();
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    public static Counter current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingConnection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingConnection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Connection countingConnection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (isIdentityMethod(method)) {
+                        return identity(proxy, method, args);
+                    }
+                    Object result = invoke(target, method, args);
+                    // createStatement, prepareStatement and prepareCall
+                    if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        return countingStatement((Statement) result, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement countingStatement(Statement target, Class<?> type) {
+        return (Statement) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, (proxy, method, args) -> {
+                    if (isIdentityMethod(method)) {
+                        return identity(proxy, method, args);
+                    }
+                    Counter counter = CURRENT.get();
+                    if (counter == null || !method.getName().startsWith("execute")) {
+                        return invoke(target, method, args);
+                    }
+                    long started = System.nanoTime();
+                    try {
+                        return invoke(target, method, args);
+                    } finally {
+                        counter.statements++;
+                        counter.nanos += System.nanoTime() - started;
+                    }
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    // Proxies compare by identity, so pools and transaction synchronization can track them
+    private static boolean isIdentityMethod(Method method) {
+        return (method.getName().equals("equals") && method.getParameterCount() == 1)
+                || (method.getName().equals("hashCode") && method.getParameterCount() == 0);
+    }
+
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("equals")) {
+            return proxy == args[0];
+        }
+        return System.identityHashCode(proxy);
+    }
+
+    public static class Counter {
+        private int statements;
+        private long nanos;
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public double getMillis() {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.smartshop.api.controllers;
 
+import com.smartshop.api.events.UserChangedEvent;
 import com.smartshop.api.models.ERole;
 import com.smartshop.api.models.Role;
 import com.smartshop.api.models.User;
@@ -14,13 +15,16 @@ import com.smartshop.api.payload.response.UserProfileResponse;
 import com.smartshop.api.repositories.RoleRepository;
 import com.smartshop.api.repositories.UserRepository;
 import com.smartshop.api.security.jwt.JwtUtils;
+import com.smartshop.api.security.services.TokenVersionService;
 import com.smartshop.api.security.services.UserDetailsImpl;
-import com.smartshop.api.services.EmailService;
+import com.smartshop.api.services.AccountService;
+import com.smartshop.api.services.FileDownloadService;
 import com.smartshop.api.services.FileStorageService;
+import com.smartshop.api.services.PasswordResetService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -35,10 +39,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import javax.servlet.http.HttpServletRequest;
+import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
-import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -65,13 +69,22 @@ public class AuthController {
     JwtUtils jwtUtils;
 
     @Autowired
-    EmailService emailService;
+    PasswordResetService passwordResetService;
 
     @Autowired
     FileStorageService fileStorageService;
 
     @Autowired
-    private HttpServletRequest request;
+    FileDownloadService fileDownloadService;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    TokenVersionService tokenVersionService;
+
+    @Autowired
+    AccountService accountService;
 
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
@@ -420,52 +433,19 @@ public class AuthController {
 
             User user = userOptional.get();
             
-            // Generate 6-digit OTP
-            String otp = String.format("%06d", new Random().nextInt(999999));
-            user.setOtp(otp);
-            user.setOtpExpiryTime(LocalDateTime.now().plusMinutes(10)); // OTP valid for 10 minutes
-            
+            // Saves the OTP and queues its email in one transaction; delivery happens in the background
             try {
-                userRepository.save(user);
-                logger.info("Generated and saved OTP for user: {}", email);
-            } catch (Exception e) {
-                logger.error("Failed to save OTP to database for user: {}", email, e);
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(MessageResponse.error("Failed to process password reset request. Please try again later."));
-            }
-
-            try {
-                // Send OTP via email
-                logger.info("Attempting to send OTP email to: {}", email);
-                emailService.sendOtpEmail(user.getEmail(), otp);
-                logger.info("Successfully sent OTP email to: {}", email);
+                passwordResetService.issueOtp(user);
+                logger.info("Generated OTP and queued email for user: {}", email);
                 return ResponseEntity.ok(MessageResponse.success("Password reset OTP has been sent to your email."));
             } catch (IllegalArgumentException e) {
                 logger.error("Invalid input for email sending: {}", e.getMessage());
-                // Clear OTP if email sending fails
-                try {
-                    user.setOtp(null);
-                    user.setOtpExpiryTime(null);
-                    userRepository.save(user);
-                    logger.info("Cleared OTP after email sending failure for user: {}", email);
-                } catch (Exception ex) {
-                    logger.error("Failed to clear OTP after email sending failure for user: {}", email, ex);
-                }
                 return ResponseEntity.badRequest()
                     .body(MessageResponse.error(e.getMessage()));
             } catch (Exception e) {
-                logger.error("Failed to send OTP email to: {}", email, e);
-                // Clear OTP if email sending fails
-                try {
-                    user.setOtp(null);
-                    user.setOtpExpiryTime(null);
-                    userRepository.save(user);
-                    logger.info("Cleared OTP after email sending failure for user: {}", email);
-                } catch (Exception ex) {
-                    logger.error("Failed to clear OTP after email sending failure for user: {}", email, ex);
-                }
+                logger.error("Failed to save OTP for user: {}", email, e);
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(MessageResponse.error("Failed to send OTP email. Please try again later."));
+                    .body(MessageResponse.error("Failed to process password reset request. Please try again later."));
             }
         } catch (Exception e) {
             logger.error("Unexpected error during password reset request for email: {}", email, e);
@@ -555,6 +535,8 @@ public class AuthController {
             user.setOtp(null);
             user.setOtpExpiryTime(null);
             userRepository.save(user);
+            tokenVersionService.revokeAll(user.getId());
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
 
             logger.info("Password reset successful for user: {}", email);
             return ResponseEntity.ok(MessageResponse.success("Password has been reset successfully."));
@@ -566,6 +548,26 @@ public class AuthController {
         }
     }
 
+    @PostMapping("/logout")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('PRODUCT_MANAGER') or hasRole('DELIVERY_PARTNER')")
+    public ResponseEntity<?> logoutUser() {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+
+            // Revokes every self-contained token issued to this user, on all devices
+            tokenVersionService.revokeAll(userDetails.getId());
+            logger.info("User logged out: {}", userDetails.getEmail());
+
+            return ResponseEntity.ok(MessageResponse.success("Logged out successfully"));
+        } catch (Exception e) {
+            logger.error("Error during logout", e);
+            return ResponseEntity
+                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(MessageResponse.error("Error: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/profile")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('PRODUCT_MANAGER') or hasRole('DELIVERY_PARTNER')")
     public ResponseEntity<?> getUserProfile() {
@@ -576,37 +578,7 @@ public class AuthController {
             
             logger.info("Fetching profile for user: {}", email);
             
-            // Use eager fetching with join to load roles
-            User user = userRepository.findByEmailWithRoles(email)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            UserProfileResponse profile = new UserProfileResponse();
-            profile.setId(user.getId());
-            profile.setName(user.getName());
-            profile.setEmail(user.getEmail());
-            profile.setPhone(user.getPhone());
-            profile.setImageRelativePath(user.getProfileImage());
-            
-            // Handle profile image URL
-            if (user.getProfileImage() != null && !user.getProfileImage().isEmpty()) {
-                profile.setImageUrl(fileStorageService.getFileUrl(user.getProfileImage()));
-            }
-            
-            profile.setAddressLine1(user.getAddressLine1());
-            profile.setAddressLine2(user.getAddressLine2());
-            profile.setCity(user.getCity());
-            profile.setState(user.getState());
-            profile.setPostalCode(user.getPostalCode());
-            profile.setCountry(user.getCountry());
-            profile.setCreatedAt(user.getCreatedAt());
-            profile.setUpdatedAt(user.getUpdatedAt());
-            
-            // Convert roles to strings - now safe since roles are eagerly loaded
-            Set<String> roleStrings = user.getRoles().stream()
-                    .map(role -> role.getName().name())
-                    .collect(Collectors.toSet());
-            profile.setRoles(roleStrings);
-            
+            UserProfileResponse profile = accountService.getProfile(email);
             return ResponseEntity.ok(profile);
         } catch (Exception e) {
             logger.error("Error fetching user profile", e);
@@ -717,6 +689,7 @@ public class AuthController {
             
             try {
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
                 
                 // Delete old profile image if it was replaced
                 if (oldProfileImagePath != null && profileImagePath != null) {
@@ -789,37 +762,20 @@ public class AuthController {
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
             logger.info("Updating address for user: {}", userDetails.getEmail());
             
-            Optional<User> userOptional = userRepository.findById(userDetails.getId());
-            if (!userOptional.isPresent()) {
+            Map<String, Object> address;
+            try {
+                address = accountService.updateAddress(userDetails.getId(), addressRequest);
+            } catch (EntityNotFoundException e) {
                 logger.error("Address update failed - User not found: {}", userDetails.getId());
                 return ResponseEntity.badRequest().body(MessageResponse.error("Error: User not found."));
             }
             
-            User user = userOptional.get();
-            
-            // Update address fields
-            user.setAddressLine1(addressRequest.getAddressLine1());
-            user.setAddressLine2(addressRequest.getAddressLine2());
-            user.setCity(addressRequest.getCity());
-            user.setState(addressRequest.getState());
-            user.setPostalCode(addressRequest.getPostalCode());
-            user.setCountry(addressRequest.getCountry());
-            
-            userRepository.save(user);
-            
             // Create response with updated address
             Map<String, Object> response = new HashMap<>();
-            Map<String, Object> address = new HashMap<>();
-            address.put("addressLine1", user.getAddressLine1());
-            address.put("addressLine2", user.getAddressLine2());
-            address.put("city", user.getCity());
-            address.put("state", user.getState());
-            address.put("postalCode", user.getPostalCode());
-            address.put("country", user.getCountry());
             response.put("address", address);
             response.put("message", "Address updated successfully");
             
-            logger.info("Address updated successfully for user: {}", user.getEmail());
+            logger.info("Address updated successfully for user: {}", userDetails.getEmail());
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.error("Error updating user address", e);
@@ -890,6 +846,7 @@ public class AuthController {
                 // Update user with new profile image path
             user.setProfileImage(profileImagePath);
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
                 logger.info("Updated user profile with new image path for user: {}", user.getEmail());
                 
                 // Delete old profile image if it exists (after successful update)
@@ -939,37 +896,20 @@ public class AuthController {
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
             logger.info("Adding address for user: {}", userDetails.getEmail());
             
-            Optional<User> userOptional = userRepository.findById(userDetails.getId());
-            if (!userOptional.isPresent()) {
+            Map<String, Object> address;
+            try {
+                address = accountService.updateAddress(userDetails.getId(), addressRequest);
+            } catch (EntityNotFoundException e) {
                 logger.error("Address add failed - User not found: {}", userDetails.getId());
                 return ResponseEntity.badRequest().body(MessageResponse.error("Error: User not found."));
             }
             
-            User user = userOptional.get();
-            
-            // Add address fields
-            user.setAddressLine1(addressRequest.getAddressLine1());
-            user.setAddressLine2(addressRequest.getAddressLine2());
-            user.setCity(addressRequest.getCity());
-            user.setState(addressRequest.getState());
-            user.setPostalCode(addressRequest.getPostalCode());
-            user.setCountry(addressRequest.getCountry());
-            
-            userRepository.save(user);
-            
             // Create response with added address
             Map<String, Object> response = new HashMap<>();
-            Map<String, Object> address = new HashMap<>();
-            address.put("addressLine1", user.getAddressLine1());
-            address.put("addressLine2", user.getAddressLine2());
-            address.put("city", user.getCity());
-            address.put("state", user.getState());
-            address.put("postalCode", user.getPostalCode());
-            address.put("country", user.getCountry());
             response.put("address", address);
             response.put("message", "Address added successfully");
             
-            logger.info("Address added successfully for user: {}", user.getEmail());
+            logger.info("Address added successfully for user: {}", userDetails.getEmail());
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.error("Error adding user address", e);
@@ -980,28 +920,11 @@ public class AuthController {
     }
 
     @GetMapping("/profile-image/{filename:.+}")
-    public ResponseEntity<Resource> getProfileImage(@PathVariable String filename) {
+    public ResponseEntity<StreamingResponseBody> getProfileImage(
+            @PathVariable String filename,
+            @RequestHeader HttpHeaders headers) {
         try {
-            // Load file as Resource
-            Resource resource = fileStorageService.loadFileAsResource("profiles/" + filename);
-            
-            // Try to determine file's content type
-            String contentType = null;
-            try {
-                contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-            } catch (IOException ex) {
-                logger.info("Could not determine file type.");
-            }
-            
-            // Fallback to the default content type if type could not be determined
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-            
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
+            return fileDownloadService.serve("profiles/" + filename, filename, headers);
         } catch (Exception e) {
             logger.error("Error retrieving profile image: {}", filename, e);
             return ResponseEntity.notFound().build();
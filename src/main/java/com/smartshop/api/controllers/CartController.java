@@ -1,30 +1,31 @@
 package com.smartshop.api.controllers;
 
-import com.smartshop.api.models.CartItem;
-import com.smartshop.api.models.Product;
+import com.smartshop.api.exception.InsufficientStockException;
+import com.smartshop.api.models.Order;
+import com.smartshop.api.models.PaymentMethod;
 import com.smartshop.api.models.User;
-import com.smartshop.api.payload.request.CartItemRequest;
 import com.smartshop.api.payload.response.CartResponse;
 import com.smartshop.api.payload.response.MessageResponse;
-import com.smartshop.api.repositories.CartItemRepository;
-import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.payload.response.OrderDTO;
 import com.smartshop.api.repositories.UserRepository;
 import com.smartshop.api.security.services.UserDetailsImpl;
-import com.smartshop.api.services.FileStorageService;
+import com.smartshop.api.services.CartService;
+import com.smartshop.api.services.OrderPlacementService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.persistence.EntityNotFoundException;
-import javax.validation.Valid;
-import java.util.List;
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.Collections;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -33,33 +34,26 @@ public class CartController {
     private static final Logger logger = LoggerFactory.getLogger(CartController.class);
 
     @Autowired
-    private CartItemRepository cartItemRepository;
-
-    @Autowired
-    private ProductRepository productRepository;
+    private CartService cartService;
 
     @Autowired
     private UserRepository userRepository;
-    
+
     @Autowired
-    private FileStorageService fileStorageService;
+    private OrderPlacementService orderPlacementService;
 
     @GetMapping
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<CartResponse> getCart() {
         try {
-            User user = getCurrentUser();
-            logger.info("Fetching cart for user: {}", user.getEmail());
-            
-            List<CartItem> cartItems = cartItemRepository.findByUser(user);
-            logger.debug("Found {} items in cart for user: {}", cartItems.size(), user.getEmail());
-            
-            CartResponse response = new CartResponse(cartItems, fileStorageService);
+            Long userId = getCurrentUserId();
+            CartResponse response = cartService.getCart(userId);
+            logger.debug("cart.get userId={} items={}", userId, response.getItems().size());
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.error("Error fetching cart: {}", e.getMessage(), e);
             // Instead of rethrowing, return an empty cart response
-            return ResponseEntity.ok(new CartResponse(java.util.Collections.emptyList(), fileStorageService));
+            return ResponseEntity.ok(new CartResponse(Collections.emptyList()));
         }
     }
 
@@ -68,47 +62,22 @@ public class CartController {
     public ResponseEntity<?> addToCart(
             @RequestParam("productId") Long productId,
             @RequestParam("quantity") Integer quantity) {
+        Long userId = getCurrentUserId();
         try {
-            User user = getCurrentUser();
-            logger.info("Adding item to cart for user: {}", user.getEmail());
-            logger.debug("Cart request details: productId={}, quantity={}", 
-                    productId, quantity);
-            
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> {
-                        logger.error("Product not found with id: {}", productId);
-                        return new EntityNotFoundException("Product not found with id: " + productId);
-                    });
-            
-            // Check if product is in stock
-            if (product.getStockQuantity() < quantity) {
-                logger.warn("Product out of stock or insufficient quantity. Product ID: {}, Available: {}, Requested: {}", 
-                        product.getId(), product.getStockQuantity(), quantity);
-                return ResponseEntity.badRequest()
-                        .body(new MessageResponse("Product is out of stock or has insufficient quantity."));
+            CartResponse response = cartService.addItem(userId, productId, quantity);
+            if (logger.isDebugEnabled()) {
+                logger.debug("cart.add userId={} productId={} quantity={}", userId, productId, quantity);
             }
-            
-            // Check if product already exists in cart
-            Optional<CartItem> existingCartItem = cartItemRepository.findByUserAndProduct(user, product);
-            
-            if (existingCartItem.isPresent()) {
-                // Update quantity
-                CartItem cartItem = existingCartItem.get();
-                int newQuantity = cartItem.getQuantity() + quantity;
-                logger.debug("Updating existing cart item. Old quantity: {}, New quantity: {}", 
-                        cartItem.getQuantity(), newQuantity);
-                cartItem.setQuantity(newQuantity);
-                cartItemRepository.save(cartItem);
-            } else {
-                // Create new cart item
-                logger.debug("Creating new cart item for product: {}", product.getName());
-                CartItem cartItem = new CartItem(user, product, quantity);
-                cartItemRepository.save(cartItem);
+            return ResponseEntity.ok(response);
+        } catch (InsufficientStockException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("cart.add rejected reason=insufficient_stock userId={} productId={} quantity={}",
+                        userId, productId, quantity);
             }
-            
-            List<CartItem> cartItems = cartItemRepository.findByUser(user);
-            logger.info("Item added to cart successfully for user: {}", user.getEmail());
-            return ResponseEntity.ok(new CartResponse(cartItems, fileStorageService));
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Product is out of stock or has insufficient quantity."));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             logger.error("Error adding item to cart", e);
             throw e;
@@ -121,49 +90,22 @@ public class CartController {
             @PathVariable Long id,
             @RequestParam("productId") Long productId,
             @RequestParam("quantity") Integer quantity) {
+        Long userId = getCurrentUserId();
         try {
-            User user = getCurrentUser();
-            logger.info("Updating cart item {} for user: {}", id, user.getEmail());
-            
-            CartItem cartItem = cartItemRepository.findById(id)
-                    .orElseThrow(() -> {
-                        logger.error("Cart item not found with id: {}", id);
-                        return new EntityNotFoundException("Cart item not found with id: " + id);
-                    });
-            
-            // Verify ownership
-            if (!cartItem.getUser().getId().equals(user.getId())) {
-                logger.warn("Unauthorized attempt to update cart item. User: {}, Cart Item ID: {}", 
-                        user.getEmail(), id);
-                return ResponseEntity.badRequest()
-                        .body(new MessageResponse("You don't have permission to update this cart item."));
+            CartResponse response = cartService.updateItem(userId, id, productId, quantity);
+            if (logger.isDebugEnabled()) {
+                logger.debug("cart.update userId={} itemId={} productId={} quantity={}", userId, id, productId, quantity);
             }
-            
-            Product product = productRepository.findById(productId)
-                    .orElseThrow(() -> {
-                        logger.error("Product not found with id: {}", productId);
-                        return new EntityNotFoundException("Product not found with id: " + productId);
-                    });
-            
-            // Check if product is in stock
-            if (product.getStockQuantity() < quantity) {
-                logger.warn("Product out of stock or insufficient quantity. Product ID: {}, Available: {}, Requested: {}", 
-                        product.getId(), product.getStockQuantity(), quantity);
-                return ResponseEntity.badRequest()
-                        .body(new MessageResponse("Product is out of stock or has insufficient quantity."));
+            return ResponseEntity.ok(response);
+        } catch (InsufficientStockException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("cart.update rejected reason=insufficient_stock userId={} productId={} quantity={}",
+                        userId, productId, quantity);
             }
-            
-            logger.debug("Updating cart item. Old: [productId={}, quantity={}], New: [productId={}, quantity={}]",
-                    cartItem.getProduct().getId(), cartItem.getQuantity(),
-                    product.getId(), quantity);
-            
-            cartItem.setProduct(product);
-            cartItem.setQuantity(quantity);
-            cartItemRepository.save(cartItem);
-            
-            List<CartItem> cartItems = cartItemRepository.findByUser(user);
-            logger.info("Cart item updated successfully for user: {}", user.getEmail());
-            return ResponseEntity.ok(new CartResponse(cartItems, fileStorageService));
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("Product is out of stock or has insufficient quantity."));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             logger.error("Error updating cart item", e);
             throw e;
@@ -173,30 +115,11 @@ public class CartController {
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> removeFromCart(@PathVariable Long id) {
+        Long userId = getCurrentUserId();
         try {
-            User user = getCurrentUser();
-            logger.info("Removing item {} from cart for user: {}", id, user.getEmail());
-            
-            CartItem cartItem = cartItemRepository.findById(id)
-                    .orElseThrow(() -> {
-                        logger.error("Cart item not found with id: {}", id);
-                        return new EntityNotFoundException("Cart item not found with id: " + id);
-                    });
-            
-            // Verify ownership
-            if (!cartItem.getUser().getId().equals(user.getId())) {
-                logger.warn("Unauthorized attempt to remove cart item. User: {}, Cart Item ID: {}", 
-                        user.getEmail(), id);
-                return ResponseEntity.badRequest()
-                        .body(new MessageResponse("You don't have permission to delete this cart item."));
-            }
-            
-            cartItemRepository.delete(cartItem);
-            logger.debug("Cart item deleted: {}", id);
-            
-            List<CartItem> cartItems = cartItemRepository.findByUser(user);
-            logger.info("Item removed from cart successfully for user: {}", user.getEmail());
-            return ResponseEntity.ok(new CartResponse(cartItems, fileStorageService));
+            CartResponse response = cartService.removeItem(userId, id);
+            logger.debug("cart.remove userId={} itemId={}", userId, id);
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
             logger.error("Error removing item from cart", e);
             throw e;
@@ -205,27 +128,65 @@ public class CartController {
 
     @DeleteMapping
     @PreAuthorize("hasRole('USER')")
-    @Transactional
     public ResponseEntity<?> clearCart() {
+        Long userId = getCurrentUserId();
         try {
-            User user = getCurrentUser();
-            logger.info("Clearing cart for user: {}", user.getEmail());
-            
-            cartItemRepository.deleteByUser(user);
-            logger.info("Cart cleared successfully for user: {}", user.getEmail());
-            
+            cartService.clear(userId);
+            logger.debug("cart.clear userId={}", userId);
+
             return ResponseEntity.ok(new MessageResponse("Cart cleared successfully."));
         } catch (Exception e) {
             logger.error("Error clearing cart", e);
             throw e;
         }
     }
-    
-    private User getCurrentUser() {
+
+    @PostMapping(value = "/checkout", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> checkout(
+            @RequestParam("paymentMethod") String paymentMethodStr,
+            @RequestParam(value = "notes", required = false) String notes,
+            @RequestParam(value = "useProfileAddress", required = false, defaultValue = "true") Boolean useProfileAddress,
+            @RequestParam(value = "deliveryAddressLine1", required = false) String deliveryAddressLine1,
+            @RequestParam(value = "deliveryAddressLine2", required = false) String deliveryAddressLine2,
+            @RequestParam(value = "deliveryCity", required = false) String deliveryCity,
+            @RequestParam(value = "deliveryState", required = false) String deliveryState,
+            @RequestParam(value = "deliveryPostalCode", required = false) String deliveryPostalCode,
+            @RequestParam(value = "deliveryCountry", required = false) String deliveryCountry) {
+        Long userId = getCurrentUserId();
+        try {
+            PaymentMethod paymentMethod;
+            try {
+                paymentMethod = PaymentMethod.valueOf(paymentMethodStr.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest()
+                        .body(new MessageResponse("Invalid payment method. Valid options are: " +
+                                Arrays.toString(PaymentMethod.values())));
+            }
+
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new EntityNotFoundException("User not found"));
+            Order order = orderPlacementService.newOrder(user, paymentMethod, notes, useProfileAddress,
+                    deliveryAddressLine1, deliveryAddressLine2, deliveryCity, deliveryState,
+                    deliveryPostalCode, deliveryCountry);
+
+            // Reserve stock, save the order, update the rollups and empty the cart in one transaction
+            Order placed = cartService.checkout(userId, () -> orderPlacementService.placeCartOrder(order));
+            logger.info("cart.checkout userId={} orderNumber={} items={}", userId, placed.getOrderNumber(), placed.getItems().size());
+
+            String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
+            return ResponseEntity.status(HttpStatus.CREATED).body(new OrderDTO(placed, baseUrl));
+        } catch (InsufficientStockException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error checking out cart", e);
+            throw e;
+        }
+    }
+
+    private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        
-        return userRepository.findById(userDetails.getId())
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
+        return userDetails.getId();
     }
-} 
\ No newline at end of file
+}
@@ -1,16 +1,19 @@
 package com.smartshop.api.controllers;
 
+import com.smartshop.api.events.CatalogChangedEvent;
 import com.smartshop.api.models.Category;
 import com.smartshop.api.models.Product;
 import com.smartshop.api.payload.response.CategoryResponse;
 import com.smartshop.api.payload.response.MessageResponse;
 import com.smartshop.api.repositories.CategoryRepository;
 import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.services.CatalogReadService;
 import com.smartshop.api.services.FileStorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,7 +27,6 @@ import javax.validation.Valid;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -41,6 +43,12 @@ public class CategoryController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private CatalogReadService catalogReadService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Value("${app.url:}")
     private String appUrl;
 
@@ -53,23 +61,12 @@ public class CategoryController {
 
     @GetMapping
     public ResponseEntity<List<CategoryResponse>> getAllCategories() {
-        List<Category> categories = categoryRepository.findAll();
-        String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-        
-        List<CategoryResponse> responses = categories.stream()
-            .map(category -> CategoryResponse.fromCategory(category, baseUrl))
-            .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(catalogReadService.getAllCategories());
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<CategoryResponse> getCategoryById(@PathVariable Long id) {
-        Category category = categoryRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Category not found with id: " + id));
-            
-        String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-        return ResponseEntity.ok(CategoryResponse.fromCategory(category, baseUrl));
+        return ResponseEntity.ok(catalogReadService.getCategory(id));
     }
 
     @PostMapping
@@ -117,6 +114,7 @@ public class CategoryController {
             }
 
             Category savedCategory = categoryRepository.save(category);
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.CATEGORY, savedCategory.getId()));
             
             String baseUrl = getBaseUrl();
             return ResponseEntity.status(HttpStatus.CREATED).body(CategoryResponse.fromCategory(savedCategory, baseUrl));
@@ -183,6 +181,7 @@ public class CategoryController {
             category.setImageUrl(imagePath);
             
             categoryRepository.save(category);
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.CATEGORY, category.getId()));
             logger.info("Category updated successfully: {}", category.getName());
             
             String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
@@ -210,6 +209,7 @@ public class CategoryController {
             }
             
             categoryRepository.delete(category);
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.CATEGORY, category.getId()));
             logger.info("Category deleted successfully: {}", category.getName());
             
             return ResponseEntity.ok(MessageResponse.success("Category deleted successfully!"));
@@ -1,5 +1,8 @@
 package com.smartshop.api.controllers;
 
+import com.smartshop.api.services.CatalogCacheInvalidator;
+import com.smartshop.api.services.HotFileCache;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -22,6 +25,12 @@ public class DebugController {
     @Value("${server.servlet.context-path:/api}")
     private String contextPath;
 
+    @Autowired
+    private CatalogCacheInvalidator catalogCacheInvalidator;
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
     @GetMapping("/info")
     public ResponseEntity<Map<String, String>> getDebugInfo() {
         Map<String, String> debugInfo = new HashMap<>();
@@ -31,4 +40,14 @@ public class DebugController {
         
         return ResponseEntity.ok(debugInfo);
     }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(catalogCacheInvalidator.getStatistics());
+    }
+
+    @GetMapping("/file-cache-stats")
+    public ResponseEntity<Map<String, Object>> getFileCacheStats() {
+        return ResponseEntity.ok(hotFileCache.getStatistics());
+    }
 } 
\ No newline at end of file
@@ -1,23 +1,20 @@
 package com.smartshop.api.controllers;
 
 import com.smartshop.api.models.Offer;
-import com.smartshop.api.repositories.FileDataRepository;
+import com.smartshop.api.payload.response.MessageResponse;
 import com.smartshop.api.repositories.OfferRepository;
-import com.smartshop.api.services.FileStorageService;
+import com.smartshop.api.services.FileDownloadService;
+import com.smartshop.api.services.ImageRendition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import javax.servlet.http.HttpServletRequest;
-import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -29,13 +26,10 @@ public class FileController {
     private static final Logger logger = LoggerFactory.getLogger(FileController.class);
 
     @Autowired
-    private FileStorageService fileStorageService;
+    private FileDownloadService fileDownloadService;
     
     @Autowired
     private OfferRepository offerRepository;
-    
-    @Autowired
-    private FileDataRepository fileDataRepository;
 
     @Value("${app.url:}")
     private String appUrl;
@@ -48,52 +42,35 @@ public class FileController {
     }
 
     @GetMapping("/{directory}/{fileName:.+}")
-    public ResponseEntity<Resource> getFileWithDirectory(
+    public ResponseEntity<?> getFileWithDirectory(
             @PathVariable String directory,
             @PathVariable String fileName,
-            HttpServletRequest request) {
+            @RequestParam(value = "rendition", required = false) String rendition,
+            @RequestHeader HttpHeaders headers) {
         try {
             // Combine directory and filename
             String fullPath = directory + "/" + fileName;
-            logger.info("Retrieving file from path: {}", fullPath);
-            
-            // Load file as Resource
-            Resource resource = fileStorageService.loadFileAsResource(fullPath);
-            
-            // Get content type from database
-            String contentType = fileDataRepository.findByFilePath(fullPath)
-                .map(fileData -> fileData.getType())
-                .orElse("application/octet-stream");
+            logger.debug("file.get path={} rendition={}", fullPath, rendition);
             
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
-                    .body(resource);
+            return fileDownloadService.serve(fullPath, fileName, headers, ImageRendition.parse(rendition));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
         } catch (Exception e) {
-            logger.error("Error retrieving file: {}", directory + "/" + fileName, e);
+            logger.error("file.get failed directory={} file={}", directory, fileName, e);
             return ResponseEntity.notFound().build();
         }
     }
     
     @GetMapping("/{fileName:.+}")
-    public ResponseEntity<Resource> getFile(@PathVariable String fileName, HttpServletRequest request) {
+    public ResponseEntity<StreamingResponseBody> getFile(
+            @PathVariable String fileName,
+            @RequestHeader HttpHeaders headers) {
         try {
-            logger.info("Retrieving file: {}", fileName);
-            
-            // Load file as Resource
-            Resource resource = fileStorageService.loadFileAsResource(fileName);
-            
-            // Get content type from database
-            String contentType = fileDataRepository.findByFilePath(fileName)
-                .map(fileData -> fileData.getType())
-                .orElse("application/octet-stream");
+            logger.debug("file.get path={}", fileName);
             
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
-                    .body(resource);
+            return fileDownloadService.serve(fileName, fileName, headers);
         } catch (Exception e) {
-            logger.error("Error retrieving file: {}", fileName, e);
+            logger.error("file.get failed path={}", fileName, e);
             return ResponseEntity.notFound().build();
         }
     }
@@ -1,10 +1,14 @@
 package com.smartshop.api.controllers;
 
+import com.smartshop.api.events.CatalogChangedEvent;
 import com.smartshop.api.models.Offer;
 import com.smartshop.api.payload.response.MessageResponse;
+import com.smartshop.api.payload.response.OfferResponse;
 import com.smartshop.api.repositories.OfferRepository;
+import com.smartshop.api.services.CatalogReadService;
 import com.smartshop.api.services.FileStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -27,17 +31,20 @@ public class OfferController {
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private CatalogReadService catalogReadService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @GetMapping
-    public ResponseEntity<List<Offer>> getAllOffers() {
-        List<Offer> offers = offerRepository.findByActiveTrue();
-        return ResponseEntity.ok(offers);
+    public ResponseEntity<List<OfferResponse>> getAllOffers() {
+        return ResponseEntity.ok(catalogReadService.getActiveOffers());
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Offer> getOfferById(@PathVariable Long id) {
-        Offer offer = offerRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Offer not found with id: " + id));
-        return ResponseEntity.ok(offer);
+    public ResponseEntity<OfferResponse> getOfferById(@PathVariable Long id) {
+        return ResponseEntity.ok(catalogReadService.getOffer(id));
     }
     
     @PostMapping
@@ -70,6 +77,7 @@ public class OfferController {
         offer.setActive(true);
         
         offerRepository.save(offer);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.OFFER, offer.getId()));
         
         return ResponseEntity.status(HttpStatus.CREATED).body(offer);
     }
@@ -113,6 +121,7 @@ public class OfferController {
         }
         
         offerRepository.save(offer);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.OFFER, offer.getId()));
         
         return ResponseEntity.ok(offer);
     }
@@ -129,6 +138,7 @@ public class OfferController {
         }
         
         offerRepository.delete(offer);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.OFFER, offer.getId()));
         
         return ResponseEntity.ok(new MessageResponse("Offer deleted successfully"));
     }
@@ -1,20 +1,26 @@
 package com.smartshop.api.controllers;
 
+import com.smartshop.api.exception.IdempotencyKeyReuseException;
+import com.smartshop.api.exception.InsufficientStockException;
 import com.smartshop.api.models.*;
-import com.smartshop.api.models.ERole;
 import com.smartshop.api.payload.request.*;
 import com.smartshop.api.payload.response.MessageResponse;
 import com.smartshop.api.payload.response.OrderDTO;
 import com.smartshop.api.repositories.OrderRepository;
-import com.smartshop.api.repositories.ProductRepository;
 import com.smartshop.api.repositories.UserRepository;
-import com.smartshop.api.repositories.CategoryRepository;
-import com.smartshop.api.repositories.SubCategoryRepository;
 import com.smartshop.api.security.services.UserDetailsImpl;
+import com.smartshop.api.services.IdempotencyService;
+import com.smartshop.api.services.OrderAnalyticsService;
+import com.smartshop.api.services.OrderPlacementService;
+import com.smartshop.api.services.OrderQueryService;
+import com.smartshop.api.services.OrderService;
+import com.smartshop.api.services.SlowEndpointExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -23,16 +29,11 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.LocalDateTime;
-import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.Arrays;
-import java.util.ArrayList;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -42,51 +43,72 @@ public class OrderController {
     private OrderRepository orderRepository;
 
     @Autowired
-    private ProductRepository productRepository;
+    private UserRepository userRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private OrderAnalyticsService orderAnalyticsService;
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private OrderPlacementService orderPlacementService;
 
     @Autowired
-    private SubCategoryRepository subCategoryRepository;
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private OrderQueryService orderQueryService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SlowEndpointExecutor slowEndpointExecutor;
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAY_HEADER = "Idempotent-Replayed";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
 
     @GetMapping
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('DELIVERY_PARTNER')")
     public ResponseEntity<List<OrderDTO>> getUserOrders() {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-            
-            User user = userRepository.findById(userDetails.getId())
-                    .orElseThrow(() -> new EntityNotFoundException("User not found"));
-            
-            List<Order> orders;
-            
-            // If admin or delivery partner, return all orders
-            if (authentication.getAuthorities().stream()
-                    .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || 
-                                  a.getAuthority().equals("ROLE_DELIVERY_PARTNER"))) {
-                orders = orderRepository.findAllWithDetails();
-            } else {
-                // Otherwise, return only the user's orders
-                orders = orderRepository.findByUserWithDetailsOrderByCreatedAtDesc(user);
-            }
             
             String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-            List<OrderDTO> orderDTOs = orders.stream()
-                    .map(order -> new OrderDTO(order, baseUrl))
-                    .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(orderDTOs);
+            return ResponseEntity.ok(orderQueryService.getAll(listingUserId(authentication), baseUrl));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(List.of());
         }
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('DELIVERY_PARTNER')")
+    public ResponseEntity<?> getUserOrdersPage(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            
+            String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
+            return ResponseEntity.ok(orderQueryService.getPage(listingUserId(authentication), cursor, size, baseUrl));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new MessageResponse("Error: " + e.getMessage()));
+        }
+    }
+
+    // Admins and delivery partners list every order (null), everyone else only their own
+    private Long listingUserId(Authentication authentication) {
+        if (authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || 
+                              a.getAuthority().equals("ROLE_DELIVERY_PARTNER"))) {
+            return null;
+        }
+        return ((UserDetailsImpl) authentication.getPrincipal()).getId();
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN') or hasRole('DELIVERY_PARTNER')")
     public ResponseEntity<OrderDTO> getOrderById(@PathVariable Long id) {
@@ -94,22 +116,16 @@ public class OrderController {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
             
-            Order order = orderRepository.findByIdWithItems(id);
-            if (order == null) {
-                throw new EntityNotFoundException("Order not found with id: " + id);
-            }
-            
-            // Check if the user is the owner of the order or an admin/delivery partner
-            if (!order.getUser().getId().equals(userDetails.getId()) &&
-                    authentication.getAuthorities().stream()
-                            .noneMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || 
-                                          a.getAuthority().equals("ROLE_DELIVERY_PARTNER"))) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                        .build();
-            }
+            // Users may only read their own orders, admins and delivery partners any order
+            boolean privileged = authentication.getAuthorities().stream()
+                    .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN") || 
+                                  a.getAuthority().equals("ROLE_DELIVERY_PARTNER"));
             
             String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-            return ResponseEntity.ok(new OrderDTO(order, baseUrl));
+            return ResponseEntity.ok(orderService.getOrder(id, userDetails.getId(), privileged, baseUrl));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .build();
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (Exception e) {
@@ -130,11 +146,31 @@ public class OrderController {
             @RequestParam(value = "deliveryCity", required = false) String deliveryCity,
             @RequestParam(value = "deliveryState", required = false) String deliveryState,
             @RequestParam(value = "deliveryPostalCode", required = false) String deliveryPostalCode,
-            @RequestParam(value = "deliveryCountry", required = false) String deliveryCountry) {
+            @RequestParam(value = "deliveryCountry", required = false) String deliveryCountry,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+            String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
+            
+            // A retried request replays the stored order without reserving stock again
+            String requestHash = null;
+            if (idempotencyKey != null) {
+                idempotencyKey = idempotencyKey.trim();
+                if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                    return ResponseEntity.badRequest()
+                            .body(new MessageResponse("Idempotency-Key must be between 1 and " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters"));
+                }
+                requestHash = IdempotencyService.hashRequest(productIds, quantities, paymentMethodStr, notes, useProfileAddress,
+                        deliveryAddressLine1, deliveryAddressLine2, deliveryCity, deliveryState, deliveryPostalCode, deliveryCountry);
+                Optional<OrderDTO> replay = idempotencyService.findReplay(userDetails.getId(), idempotencyKey, requestHash, baseUrl);
+                if (replay.isPresent()) {
+                    return ResponseEntity.status(HttpStatus.CREATED)
+                            .header(IDEMPOTENT_REPLAY_HEADER, "true")
+                            .body(replay.get());
+                }
+            }
             
             User user = userRepository.findById(userDetails.getId())
                     .orElseThrow(() -> new EntityNotFoundException("User not found"));
@@ -149,62 +185,14 @@ public class OrderController {
                                 Arrays.toString(PaymentMethod.values())));
             }
             
-            // Create new order
-            Order order = new Order();
-            order.setUser(user);
-            order.setPaymentMethod(paymentMethod);
-            order.setNotes(notes);
-            
-            // Create shipping address from user's profile address
-            if (user.getAddressLine1() != null && user.getCity() != null && user.getState() != null && 
-                user.getPostalCode() != null && user.getCountry() != null) {
-                
-                Address shippingAddress = new Address();
-                shippingAddress.setAddressLine1(user.getAddressLine1());
-                shippingAddress.setAddressLine2(user.getAddressLine2());
-                shippingAddress.setCity(user.getCity());
-                shippingAddress.setState(user.getState());
-                shippingAddress.setPostalCode(user.getPostalCode());
-                shippingAddress.setCountry(user.getCountry());
-                shippingAddress.setUser(user);
-                
-                order.setShippingAddress(shippingAddress);
-            } else {
-                return ResponseEntity.badRequest()
-                        .body(new MessageResponse("User profile address is incomplete. Please update your profile with a complete address."));
-            }
-            
-            // Create delivery address (either from profile or custom)
-            if (useProfileAddress) {
-                // Use the same address as shipping
-                Address deliveryAddress = new Address();
-                deliveryAddress.setAddressLine1(user.getAddressLine1());
-                deliveryAddress.setAddressLine2(user.getAddressLine2());
-                deliveryAddress.setCity(user.getCity());
-                deliveryAddress.setState(user.getState());
-                deliveryAddress.setPostalCode(user.getPostalCode());
-                deliveryAddress.setCountry(user.getCountry());
-                deliveryAddress.setUser(user);
-                
-                order.setDeliveryAddress(deliveryAddress);
-            } else {
-                // Use custom delivery address
-                if (deliveryAddressLine1 == null || deliveryCity == null || deliveryState == null || 
-                    deliveryPostalCode == null || deliveryCountry == null) {
-                    return ResponseEntity.badRequest()
-                            .body(new MessageResponse("Delivery address is incomplete. Please provide all required fields."));
-                }
-                
-                Address deliveryAddress = new Address();
-                deliveryAddress.setAddressLine1(deliveryAddressLine1);
-                deliveryAddress.setAddressLine2(deliveryAddressLine2);
-                deliveryAddress.setCity(deliveryCity);
-                deliveryAddress.setState(deliveryState);
-                deliveryAddress.setPostalCode(deliveryPostalCode);
-                deliveryAddress.setCountry(deliveryCountry);
-                deliveryAddress.setUser(user);
-                
-                order.setDeliveryAddress(deliveryAddress);
+            // Create new order with its shipping and delivery addresses
+            Order order;
+            try {
+                order = orderPlacementService.newOrder(user, paymentMethod, notes, useProfileAddress,
+                        deliveryAddressLine1, deliveryAddressLine2, deliveryCity, deliveryState,
+                        deliveryPostalCode, deliveryCountry);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
             }
             
             // Parse product IDs and quantities
@@ -221,7 +209,9 @@ public class OrderController {
                         .body(new MessageResponse("Order must contain at least one item"));
             }
             
-            // Add order items
+            // Parse order lines
+            List<Long> lineProductIds = new ArrayList<>();
+            List<Integer> lineQuantities = new ArrayList<>();
             for (int i = 0; i < productIdArray.length; i++) {
                 try {
                     Long productId = Long.parseLong(productIdArray[i].trim());
@@ -232,37 +222,41 @@ public class OrderController {
                                 .body(new MessageResponse("Quantity must be greater than 0"));
                     }
                     
-                    Product product = productRepository.findById(productId)
-                            .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
-                    
-                    // Check if product is in stock
-                    if (product.getStockQuantity() < quantity) {
-                        return ResponseEntity.badRequest()
-                                .body(new MessageResponse("Product " + product.getName() + " is out of stock or has insufficient quantity."));
-                    }
-                    
-                    // Create order item
-                    OrderItem orderItem = new OrderItem(product, quantity);
-                    order.addOrderItem(orderItem);
-                    
-                    // Update product stock
-                    product.setStockQuantity(product.getStockQuantity() - quantity);
-                    productRepository.save(product);
-                    
+                    lineProductIds.add(productId);
+                    lineQuantities.add(quantity);
                 } catch (NumberFormatException e) {
                     return ResponseEntity.badRequest()
                             .body(new MessageResponse("Invalid product ID or quantity format"));
                 }
             }
             
-            // Calculate order totals
-            order.calculateTotals();
-            
-            // Save order
-            orderRepository.save(order);
+            // Reserve stock and save the order atomically
+            try {
+                orderPlacementService.placeOrder(order, lineProductIds, lineQuantities, idempotencyKey, requestHash);
+            } catch (InsufficientStockException e) {
+                return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+            } catch (DataIntegrityViolationException e) {
+                if (idempotencyKey == null || !IdempotencyService.isKeyConflict(e)) {
+                    throw e;
+                }
+                // A concurrent request with the same key placed the order first
+                Optional<OrderDTO> replay = idempotencyService.findConcurrentReplay(userDetails.getId(), idempotencyKey, requestHash, baseUrl);
+                if (replay.isPresent()) {
+                    return ResponseEntity.status(HttpStatus.CREATED)
+                            .header(IDEMPOTENT_REPLAY_HEADER, "true")
+                            .body(replay.get());
+                }
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new MessageResponse("A request with this Idempotency-Key is still being processed"));
+            }
             
-            String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-            return ResponseEntity.status(HttpStatus.CREATED).body(new OrderDTO(order, baseUrl));
+            OrderDTO response = new OrderDTO(order, baseUrl);
+            if (idempotencyKey != null) {
+                idempotencyService.remember(userDetails.getId(), idempotencyKey, requestHash, response);
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IdempotencyKeyReuseException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new MessageResponse("Error: " + e.getMessage()));
@@ -285,48 +279,12 @@ public class OrderController {
                                 Arrays.toString(OrderStatus.values())));
             }
             
-            Order order = orderRepository.findByIdWithItems(id);
-            if (order == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            OrderStatus oldStatus = order.getStatus();
-            
-            // Check if we're transitioning from a non-shipped/delivered status to shipped/delivered
-            boolean isShippingOrDelivering = (status == OrderStatus.SHIPPED || status == OrderStatus.DELIVERED) && 
-                                           !(oldStatus == OrderStatus.SHIPPED || oldStatus == OrderStatus.DELIVERED);
-            
-            // If the order is cancelled, don't allow updating to shipped/delivered
-            if (oldStatus == OrderStatus.CANCELLED && (status == OrderStatus.SHIPPED || status == OrderStatus.DELIVERED)) {
-                return ResponseEntity.badRequest()
-                        .body(new MessageResponse("Cannot update cancelled order to " + status + " status."));
-            }
-            
-            // Update the status
-            order.setStatus(status);
-            
-            // If order is delivered, set delivered time
-            if (status == OrderStatus.DELIVERED) {
-                order.setDeliveredAt(LocalDateTime.now());
-            }
-            
-            // If transitioning to shipped or delivered, update stock quantities
-            if (isShippingOrDelivering) {
-                for (OrderItem item : order.getItems()) {
-                    Product product = item.getProduct();
-                    int currentStock = product.getStockQuantity();
-                    int orderedQuantity = item.getQuantity();
-                    // Make sure we don't go negative with stock
-                    product.setStockQuantity(Math.max(0, currentStock - orderedQuantity));
-                    productRepository.save(product);
-                }
-            }
-            
-            // Save the updated order
-            orderRepository.save(order);
-            
             String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-            return ResponseEntity.ok(new OrderDTO(order, baseUrl));
+            return ResponseEntity.ok(orderService.updateStatus(id, status, baseUrl));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new MessageResponse("Error updating order status: " + e.getMessage()));
@@ -350,21 +308,10 @@ public class OrderController {
                                 Arrays.toString(PaymentStatus.values())));
             }
             
-            Order order = orderRepository.findByIdWithItems(id);
-            if (order == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            order.setPaymentStatus(status);
-            
-            if (transactionId != null) {
-                order.setTransactionId(transactionId);
-            }
-            
-            orderRepository.save(order);
-            
             String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-            return ResponseEntity.ok(new OrderDTO(order, baseUrl));
+            return ResponseEntity.ok(orderService.updatePaymentStatus(id, status, transactionId, baseUrl));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new MessageResponse("Error updating payment status: " + e.getMessage()));
@@ -378,40 +325,18 @@ public class OrderController {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
             
-            Order order = orderRepository.findByIdWithItems(id);
-            if (order == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
             boolean isAdmin = authentication.getAuthorities().stream()
                     .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
             
-            // Check if the user is the owner of the order or an admin
-            if (!isAdmin && !order.getUser().getId().equals(userDetails.getId())) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                        .body(new MessageResponse("You don't have permission to cancel this order. Only the user who created the order or an admin can cancel it."));
-            }
-            
-            // Check if order can be cancelled (status must be PENDING or PROCESSING)
-            if (!isAdmin && order.getStatus() != OrderStatus.PENDING && order.getStatus() != OrderStatus.PROCESSING) {
-                return ResponseEntity.badRequest()
-                        .body(new MessageResponse("Cannot cancel order. Order has already been " + order.getStatus().toString().toLowerCase() + ". Only orders with PENDING or PROCESSING status can be cancelled."));
-            }
-            
-            // Update order status to CANCELLED
-            order.setStatus(OrderStatus.CANCELLED);
-            
-            // Restore product quantities
-            for (OrderItem item : order.getItems()) {
-                Product product = item.getProduct();
-                product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-                productRepository.save(product);
-            }
-            
-            orderRepository.save(order);
-            
-            String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
+            orderService.cancel(id, userDetails.getId(), isAdmin);
             return ResponseEntity.ok(new MessageResponse("Order cancelled successfully."));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(new MessageResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new MessageResponse("Error cancelling order: " + e.getMessage()));
@@ -444,228 +369,29 @@ public class OrderController {
 
     @GetMapping("/admin/analytics")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> getOrderAnalytics() {
-        try {
-            List<Order> allOrders = orderRepository.findAllWithDetails();
-            String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-            
-            // Get total counts for products, categories and subcategories
-            long totalProducts = productRepository.count();
-            long totalCategories = categoryRepository.count();
-            long totalSubCategories = subCategoryRepository.count();
-            
-            // Calculate basic counts
-            int totalOrders = allOrders.size();
-            long pendingOrders = allOrders.stream().filter(o -> o.getStatus() == OrderStatus.PENDING).count();
-            long processingOrders = allOrders.stream().filter(o -> o.getStatus() == OrderStatus.PROCESSING).count();
-            long shippedOrders = allOrders.stream().filter(o -> o.getStatus() == OrderStatus.SHIPPED).count();
-            long deliveredOrders = allOrders.stream().filter(o -> o.getStatus() == OrderStatus.DELIVERED).count();
-            long cancelledOrders = allOrders.stream().filter(o -> o.getStatus() == OrderStatus.CANCELLED).count();
-            
-            // Calculate success rate
-            double successRate = totalOrders > 0 ? (double)deliveredOrders / totalOrders * 100 : 0;
-            
-            // Calculate cancellation rate
-            double cancellationRate = totalOrders > 0 ? (double)cancelledOrders / totalOrders * 100 : 0;
-            
-            // Calculate total revenue from successful orders using the discounted price
-            BigDecimal totalRevenue = allOrders.stream()
-                    .filter(o -> o.getStatus() == OrderStatus.DELIVERED)
-                    .flatMap(order -> order.getItems().stream()
-                        .map(item -> item.getDiscountedPrice().multiply(BigDecimal.valueOf(item.getQuantity()))))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            // Calculate revenue from pending/processing orders using the discounted price
-            BigDecimal pendingRevenue = allOrders.stream()
-                    .filter(o -> o.getStatus() == OrderStatus.PENDING || o.getStatus() == OrderStatus.PROCESSING)
-                    .flatMap(order -> order.getItems().stream()
-                        .map(item -> item.getDiscountedPrice().multiply(BigDecimal.valueOf(item.getQuantity()))))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            // Calculate lost revenue from cancelled orders using the discounted price
-            BigDecimal lostRevenue = allOrders.stream()
-                    .filter(o -> o.getStatus() == OrderStatus.CANCELLED)
-                    .flatMap(order -> order.getItems().stream()
-                        .map(item -> item.getDiscountedPrice().multiply(BigDecimal.valueOf(item.getQuantity()))))
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            // Count unique customers who have placed orders
-            long uniqueCustomers = allOrders.stream()
-                    .map(order -> order.getUser().getId())
-                    .distinct()
-                    .count();
-            
-            // Get total products sold in all delivered orders
-            long totalProductsSold = allOrders.stream()
-                    .filter(o -> o.getStatus() == OrderStatus.DELIVERED)
-                    .flatMap(order -> order.getItems().stream())
-                    .mapToLong(OrderItem::getQuantity)
-                    .sum();
-            
-            // Calculate average order value using discounted prices
-            BigDecimal avgOrderValue = totalOrders > 0 ? 
-                    allOrders.stream()
-                            .flatMap(order -> order.getItems().stream()
-                                .map(item -> item.getDiscountedPrice().multiply(BigDecimal.valueOf(item.getQuantity()))))
-                            .reduce(BigDecimal.ZERO, BigDecimal::add)
-                            .divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
-            
-            // Collect all ordered products with their quantities
-            Map<Long, Map<String, Object>> orderedProducts = new HashMap<>();
-            allOrders.stream()
-                    .flatMap(order -> order.getItems().stream())
-                    .forEach(item -> {
-                        Long productId = item.getProduct().getId();
-                        String productName = item.getProduct().getName();
-                        
-                        if (orderedProducts.containsKey(productId)) {
-                            Map<String, Object> productInfo = orderedProducts.get(productId);
-                            Long currentQuantity = (Long) productInfo.get("quantity");
-                            BigDecimal currentRevenue = (BigDecimal) productInfo.get("totalRevenue");
-                            BigDecimal itemRevenue = item.getDiscountedPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                            
-                            productInfo.put("quantity", currentQuantity + item.getQuantity());
-                            productInfo.put("totalRevenue", currentRevenue.add(itemRevenue));
-                            
-                            // Make sure we already have the full image URL
-                            String imageUrl = (String) productInfo.get("imageUrl");
-                            if (imageUrl != null && !imageUrl.isEmpty() && !imageUrl.startsWith("http")) {
-                                productInfo.put("imageUrl", baseUrl + "/files/" + imageUrl);
-                            }
-                            
-                            // Make sure we have the full category image URL too
-                            if (item.getProduct().getCategory() != null && !productInfo.containsKey("categoryImage")) {
-                                String categoryImageUrl = item.getProduct().getCategory().getImageUrl();
-                                if (categoryImageUrl != null && !categoryImageUrl.isEmpty()) {
-                                    if (!categoryImageUrl.startsWith("http")) {
-                                        categoryImageUrl = baseUrl + "/files/" + categoryImageUrl;
-                                    }
-                                    productInfo.put("categoryImage", categoryImageUrl);
-                                }
-                            }
-                        } else {
-                            Map<String, Object> productInfo = new HashMap<>();
-                            BigDecimal itemRevenue = item.getDiscountedPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                            String imageUrl = item.getProduct().getImageUrl();
-                            
-                            // Convert relative image path to full URL
-                            if (imageUrl != null && !imageUrl.isEmpty()) {
-                                if (!imageUrl.startsWith("http")) {
-                                    imageUrl = baseUrl + "/files/" + imageUrl;
-                                }
-                            }
-                            
-                            productInfo.put("id", productId);
-                            productInfo.put("name", productName);
-                            productInfo.put("quantity", (long) item.getQuantity());
-                            productInfo.put("price", item.getProduct().getPrice());
-                            productInfo.put("discountedPrice", item.getDiscountedPrice());
-                            productInfo.put("totalRevenue", itemRevenue);
-                            productInfo.put("imageUrl", imageUrl);
-                            
-                            if (item.getProduct().getCategory() != null) {
-                                productInfo.put("categoryId", item.getProduct().getCategory().getId());
-                                productInfo.put("categoryName", item.getProduct().getCategory().getName());
-                                
-                                // Add category image with full URL
-                                String categoryImageUrl = item.getProduct().getCategory().getImageUrl();
-                                if (categoryImageUrl != null && !categoryImageUrl.isEmpty()) {
-                                    if (!categoryImageUrl.startsWith("http")) {
-                                        categoryImageUrl = baseUrl + "/files/" + categoryImageUrl;
-                                    }
-                                    productInfo.put("categoryImage", categoryImageUrl);
-                                }
-                            }
-                            
-                            if (item.getProduct().getSubCategory() != null) {
-                                productInfo.put("subCategoryId", item.getProduct().getSubCategory().getId());
-                                productInfo.put("subCategoryName", item.getProduct().getSubCategory().getName());
-                            }
-                            
-                            orderedProducts.put(productId, productInfo);
-                        }
-                    });
-            
-            // Get payment method statistics
-            Map<String, Long> paymentMethodStats = allOrders.stream()
-                    .collect(Collectors.groupingBy(
-                            order -> order.getPaymentMethod().toString(),
-                            Collectors.counting()
-                    ));
-            
-            // Get monthly order counts for the last 6 months
-            Map<String, Long> monthlyOrderCounts = new HashMap<>();
-            LocalDateTime sixMonthsAgo = LocalDateTime.now().minusMonths(6);
-            
-            Map<YearMonth, Long> ordersByMonth = allOrders.stream()
-                    .filter(order -> order.getCreatedAt().isAfter(sixMonthsAgo))
-                    .collect(Collectors.groupingBy(
-                            order -> YearMonth.from(order.getCreatedAt()),
-                            Collectors.counting()
-                    ));
-                    
-            ordersByMonth.forEach((month, count) -> {
-                monthlyOrderCounts.put(month.toString(), count);
-            });
-            
-            // Create response map
-            Map<String, Object> response = new HashMap<>();
-            response.put("totalProducts", totalProducts);
-            response.put("totalCategories", totalCategories);
-            response.put("totalSubCategories", totalSubCategories);
-            response.put("totalOrders", totalOrders);
-            
-            // Add total users count (only users with ROLE_USER role, not admins or other roles)
-            long totalUsers = userRepository.findAll().stream()
-                    .filter(user -> user.getRoles().stream()
-                            .anyMatch(role -> role.getName() == ERole.ROLE_USER))
-                    .count();
-            response.put("totalUsers", totalUsers);
-            
-            response.put("pendingOrders", pendingOrders);
-            response.put("processingOrders", processingOrders);
-            response.put("shippedOrders", shippedOrders);
-            response.put("deliveredOrders", deliveredOrders);
-            response.put("cancelledOrders", cancelledOrders);
-            response.put("successRate", successRate);
-            response.put("cancellationRate", cancellationRate);
-            response.put("totalRevenue", totalRevenue);
-            response.put("pendingRevenue", pendingRevenue);
-            response.put("lostRevenue", lostRevenue);
-            response.put("uniqueCustomers", uniqueCustomers);
-            response.put("totalProductsSold", totalProductsSold);
-            response.put("averageOrderValue", avgOrderValue);
-            response.put("paymentMethodStats", paymentMethodStats);
-            response.put("monthlyOrderCounts", monthlyOrderCounts);
-            response.put("orderedProducts", new ArrayList<>(orderedProducts.values()));
-            
-            // Add detailed status report
-            Map<String, Object> statusReport = new HashMap<>();
-            for (OrderStatus status : OrderStatus.values()) {
-                List<Order> ordersWithStatus = allOrders.stream()
-                        .filter(o -> o.getStatus() == status)
-                        .collect(Collectors.toList());
-                
-                // Calculate revenue using discounted prices
-                BigDecimal statusRevenue = ordersWithStatus.stream()
-                        .flatMap(order -> order.getItems().stream()
-                            .map(item -> item.getDiscountedPrice().multiply(BigDecimal.valueOf(item.getQuantity()))))
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                
-                statusReport.put(status.toString().toLowerCase() + "Count", ordersWithStatus.size());
-                statusReport.put(status.toString().toLowerCase() + "Revenue", statusRevenue);
-                statusReport.put(status.toString().toLowerCase() + "Products", 
-                        ordersWithStatus.stream()
-                                .flatMap(order -> order.getItems().stream())
-                                .mapToLong(OrderItem::getQuantity)
-                                .sum());
+    public CompletableFuture<ResponseEntity<?>> getOrderAnalytics() {
+        String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
+        return slowEndpointExecutor.run(() -> {
+            try {
+                return ResponseEntity.ok(orderAnalyticsService.getAnalytics(baseUrl));
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(new MessageResponse("Error generating order analytics: " + e.getMessage()));
             }
-            response.put("statusReport", statusReport);
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new MessageResponse("Error generating order analytics: " + e.getMessage()));
-        }
+        });
+    }
+
+    @PostMapping("/admin/analytics/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public CompletableFuture<ResponseEntity<?>> rebuildOrderAnalytics() {
+        return slowEndpointExecutor.run(() -> {
+            try {
+                long orders = orderAnalyticsService.rebuild();
+                return ResponseEntity.ok(new MessageResponse("Order analytics rebuilt from " + orders + " orders."));
+            } catch (Exception e) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(new MessageResponse("Error rebuilding order analytics: " + e.getMessage()));
+            }
+        });
     }
 } 
\ No newline at end of file
@@ -1,13 +1,13 @@
 package com.smartshop.api.controllers;
 
-import com.smartshop.api.models.Category;
-import com.smartshop.api.models.Product;
 import com.smartshop.api.payload.response.MessageResponse;
 import com.smartshop.api.payload.response.ProductResponse;
-import com.smartshop.api.repositories.CategoryRepository;
-import com.smartshop.api.repositories.ProductRepository;
-import com.smartshop.api.repositories.SubCategoryRepository;
+import com.smartshop.api.payload.response.ProductSearchResponse;
+import com.smartshop.api.services.CatalogReadService;
 import com.smartshop.api.services.FileStorageService;
+import com.smartshop.api.services.ProductCatalogService;
+import com.smartshop.api.services.ProductSearchService;
+import com.smartshop.api.services.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,36 +31,44 @@ public class ProductController {
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
     @Autowired
-    private ProductRepository productRepository;
+    private FileStorageService fileStorageService;
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private ProductCatalogService productCatalogService;
 
     @Autowired
-    private SubCategoryRepository subCategoryRepository;
+    private ProductSearchService productSearchService;
 
     @Autowired
-    private FileStorageService fileStorageService;
+    private ProductService productService;
+
+    @Autowired
+    private CatalogReadService catalogReadService;
 
     @GetMapping
     public ResponseEntity<List<ProductResponse>> getAllProducts() {
-        List<Product> products = productRepository.findAll();
-        String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-        
-        List<ProductResponse> responses = products.stream()
-            .map(product -> ProductResponse.fromProduct(product, baseUrl))
-            .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(catalogReadService.getAllProducts());
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<?> getProductPage(
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "categoryId", required = false) Long categoryId,
+            @RequestParam(value = "subCategoryId", required = false) Long subCategoryId) {
+        try {
+            String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
+            return ResponseEntity.ok(productCatalogService.getPage(
+                    ProductCatalogService.parseSort(sort), cursor, size, categoryId, subCategoryId, baseUrl));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id));
-                
-        String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-        return ResponseEntity.ok(ProductResponse.fromProduct(product, baseUrl));
+        return ResponseEntity.ok(catalogReadService.getProduct(id));
     }
 
     @PostMapping
@@ -93,33 +101,8 @@ public class ProductController {
                 return ResponseEntity.badRequest().body(new MessageResponse("Error: Stock quantity must be a non-negative integer"));
             }
             
-            // Check if category exists
-            if (!categoryRepository.existsById(categoryId)) {
-                return ResponseEntity.badRequest().body(new MessageResponse("Error: Category not found"));
-            }
-            
-            // Check if subcategory exists
-            if (!subCategoryRepository.existsById(subCategoryId)) {
-                return ResponseEntity.badRequest().body(new MessageResponse("Error: SubCategory not found"));
-            }
-
-            // Find category and subcategory
-            Category category = categoryRepository.findById(categoryId)
-                    .orElseThrow(() -> new EntityNotFoundException("Category not found with id: " + categoryId));
-
-            Product product = new Product(name, description, price, stockQuantity, category);
-            product.setSubCategory(subCategoryRepository.findById(subCategoryId).orElseThrow());
-            
-            // Set discount percentage if provided
-            if (discountPercentage != null && discountPercentage > 0) {
-                product.setDiscountPercentage(discountPercentage);
-                // Calculate discounted price
-                BigDecimal discountAmount = price.multiply(BigDecimal.valueOf(discountPercentage))
-                        .divide(BigDecimal.valueOf(100), 2, BigDecimal.ROUND_HALF_UP);
-                product.setDiscountedPrice(price.subtract(discountAmount));
-            }
-
-            // Handle image upload
+            // Store the image first; it is removed again if the product cannot be created
+            String imageUrl = null;
             if (image != null && !image.isEmpty()) {
                 try {
                     // Check image type
@@ -128,22 +111,32 @@ public class ProductController {
                         return ResponseEntity.badRequest().body(new MessageResponse("Error: Only JPEG, JPG and PNG images are supported"));
                     }
                     
-                    String imageUrl = fileStorageService.storeFile(image, "products");
+                    imageUrl = fileStorageService.storeFile(image, "products");
                     if (imageUrl == null) {
                         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .body(new MessageResponse("Error: Failed to save image file"));
                     }
-                    product.setImageUrl(imageUrl);
                 } catch (Exception e) {
                     return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .body(new MessageResponse("Error saving product image: " + e.getMessage()));
                 }
             }
 
-            Product savedProduct = productRepository.save(product);
-            
             String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-            return ResponseEntity.status(HttpStatus.CREATED).body(ProductResponse.fromProduct(savedProduct, baseUrl));
+            boolean created = false;
+            try {
+                ProductResponse product = productService.create(name, description, price, stockQuantity,
+                        categoryId, subCategoryId, discountPercentage, imageUrl, baseUrl);
+                created = true;
+                return ResponseEntity.status(HttpStatus.CREATED).body(product);
+            } catch (EntityNotFoundException e) {
+                return ResponseEntity.badRequest().body(new MessageResponse("Error: " + e.getMessage()));
+            } finally {
+                if (!created && imageUrl != null) {
+                    // No product refers to the image
+                    fileStorageService.deleteFile(imageUrl);
+                }
+            }
         } catch (Exception e) {
             return ResponseEntity
                     .status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -164,30 +157,8 @@ public class ProductController {
             @RequestParam(value = "image", required = false) MultipartFile image) {
 
         try {
-            // Find the product
-            Product product = productRepository.findById(id)
-                    .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id));
-
-            // Update basic properties
-            product.setName(name);
-            product.setDescription(description);
-            product.setPrice(price);
-            product.setStockQuantity(stockQuantity);
-
-            // Update category if provided
-            if (categoryId != null) {
-                Category category = categoryRepository.findById(categoryId)
-                        .orElseThrow(() -> new EntityNotFoundException("Category not found with id: " + categoryId));
-                product.setCategory(category);
-            }
-
-            // Update subcategory if provided
-            if (subCategoryId != null) {
-                product.setSubCategory(subCategoryRepository.findById(subCategoryId)
-                        .orElseThrow(() -> new EntityNotFoundException("SubCategory not found with id: " + subCategoryId)));
-            }
-
-            // Update image if provided
+            // Store the new image first; the product update then replaces the old one
+            String imageUrl = null;
             if (image != null && !image.isEmpty()) {
                 try {
                     // Check image type
@@ -196,32 +167,20 @@ public class ProductController {
                         return ResponseEntity.badRequest().body(new MessageResponse("Error: Only JPEG, JPG and PNG images are supported"));
                     }
                     
-                    // Delete old image if exists
-                    if (product.getImageUrl() != null && !product.getImageUrl().isEmpty()) {
-                        boolean deleted = fileStorageService.deleteFile(product.getImageUrl());
-                        if (!deleted) {
-                            // Just log warning and continue - don't stop the update
-                            logger.warn("Could not delete old product image: {}", product.getImageUrl());
-                        }
-                    }
-                    
-                    // Save new image
-                    String imageUrl = fileStorageService.storeFile(image, "products");
+                    imageUrl = fileStorageService.storeFile(image, "products");
                     if (imageUrl == null) {
                         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .body(new MessageResponse("Error: Failed to save new image file"));
                     }
-                    product.setImageUrl(imageUrl);
                 } catch (Exception e) {
                     return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                             .body(new MessageResponse("Error updating product image: " + e.getMessage()));
                 }
             }
 
-            Product updatedProduct = productRepository.save(product);
-            
             String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-            return ResponseEntity.ok(ProductResponse.fromProduct(updatedProduct, baseUrl));
+            return ResponseEntity.ok(productService.update(id, name, description, price, stockQuantity,
+                    categoryId, subCategoryId, imageUrl, baseUrl));
         } catch (Exception e) {
             return ResponseEntity
                     .status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -232,38 +191,42 @@ public class ProductController {
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCT_MANAGER')")
     public ResponseEntity<?> deleteProduct(@PathVariable Long id) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id));
-
-        // Delete product image if exists
-        if (product.getImageUrl() != null) {
-            fileStorageService.deleteFile(product.getImageUrl());
-        }
-
-        productRepository.delete(product);
-
+        productService.delete(id);
         return ResponseEntity.ok(new MessageResponse("Product deleted successfully!"));
     }
 
     @GetMapping("/search")
     public ResponseEntity<List<ProductResponse>> searchProducts(@RequestParam(required = false) String name,
-                                                       @RequestParam(required = false) String query) {
-        List<Product> products;
-        
-        if (name != null && !name.isEmpty()) {
-            products = productRepository.findByNameContainingIgnoreCase(name);
-        } else if (query != null && !query.isEmpty()) {
-            products = productRepository.search(query);
-        } else {
-            products = productRepository.findAll();
+                                                       @RequestParam(required = false) String query,
+                                                       @RequestParam(required = false) Long categoryId,
+                                                       @RequestParam(required = false) BigDecimal minPrice,
+                                                       @RequestParam(required = false) BigDecimal maxPrice,
+                                                       @RequestParam(required = false) Integer limit) {
+        String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
+        return ResponseEntity.ok(productService.search(name, query, categoryId, minPrice, maxPrice, limit, baseUrl));
+    }
+
+    @GetMapping("/search/faceted")
+    public ResponseEntity<?> searchProductsFaceted(@RequestParam String query,
+                                                   @RequestParam(required = false) Long categoryId,
+                                                   @RequestParam(required = false) BigDecimal minPrice,
+                                                   @RequestParam(required = false) BigDecimal maxPrice,
+                                                   @RequestParam(required = false, defaultValue = "20") Integer limit) {
+        if (!productSearchService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new MessageResponse("Error: Search index is not available yet"));
         }
         
+        ProductSearchService.SearchResult result = productSearchService.search(
+                query, categoryId, minPrice, maxPrice, Math.max(1, limit));
+        
         String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-        List<ProductResponse> responses = products.stream()
+        List<ProductResponse> items = productSearchService.loadProducts(result.getProductIds()).stream()
             .map(product -> ProductResponse.fromProduct(product, baseUrl))
             .collect(Collectors.toList());
             
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(new ProductSearchResponse(
+                items, result.getTotal(), result.getCategoryFacets(), result.getPriceFacets()));
     }
 
     @GetMapping("/filter")
@@ -272,25 +235,13 @@ public class ProductController {
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice) {
         
-        List<Product> products = productRepository.filter(category, minPrice, maxPrice);
-        
         String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-        List<ProductResponse> responses = products.stream()
-            .map(product -> ProductResponse.fromProduct(product, baseUrl))
-            .collect(Collectors.toList());
-            
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(productService.filter(category, minPrice, maxPrice, baseUrl));
     }
 
     @GetMapping("/subcategory/{subCategoryId}")
     public ResponseEntity<List<ProductResponse>> getProductsBySubCategory(@PathVariable Long subCategoryId) {
         String baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-        List<Product> products = productRepository.findBySubCategoryId(subCategoryId);
-        
-        List<ProductResponse> responses = products.stream()
-            .map(product -> ProductResponse.fromProduct(product, baseUrl))
-            .collect(Collectors.toList());
-            
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(productService.getBySubCategory(subCategoryId, baseUrl));
     }
 } 
\ No newline at end of file
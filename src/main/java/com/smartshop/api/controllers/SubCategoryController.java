@@ -1,16 +1,19 @@
 package com.smartshop.api.controllers;
 
+import com.smartshop.api.events.CatalogChangedEvent;
 import com.smartshop.api.models.Category;
 import com.smartshop.api.models.SubCategory;
 import com.smartshop.api.payload.response.MessageResponse;
 import com.smartshop.api.payload.response.SubCategoryResponse;
 import com.smartshop.api.repositories.CategoryRepository;
 import com.smartshop.api.repositories.SubCategoryRepository;
+import com.smartshop.api.services.CatalogReadService;
 import com.smartshop.api.services.FileStorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,7 +24,6 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/subcategories")
@@ -32,15 +34,20 @@ public class SubCategoryController {
     private final SubCategoryRepository subCategoryRepository;
     private final CategoryRepository categoryRepository;
     private final FileStorageService fileStorageService;
+    private final CatalogReadService catalogReadService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Value("${app.url:}")
     private String appUrl;
 
     @Autowired
-    public SubCategoryController(SubCategoryRepository subCategoryRepository, CategoryRepository categoryRepository, FileStorageService fileStorageService) {
+    public SubCategoryController(SubCategoryRepository subCategoryRepository, CategoryRepository categoryRepository, FileStorageService fileStorageService,
+                                 CatalogReadService catalogReadService, ApplicationEventPublisher eventPublisher) {
         this.subCategoryRepository = subCategoryRepository;
         this.categoryRepository = categoryRepository;
         this.fileStorageService = fileStorageService;
+        this.catalogReadService = catalogReadService;
+        this.eventPublisher = eventPublisher;
     }
     
     private String getBaseUrl() {
@@ -51,16 +58,8 @@ public class SubCategoryController {
     }
 
     @GetMapping("/category/{categoryId}")
-    @Transactional(readOnly = true)
     public ResponseEntity<List<SubCategoryResponse>> getSubCategoriesByCategory(@PathVariable Long categoryId) {
-        String baseUrl = getBaseUrl();
-        List<SubCategory> subCategories = subCategoryRepository.findByCategoryId(categoryId);
-        
-        List<SubCategoryResponse> responses = subCategories.stream()
-            .map(subCategory -> SubCategoryResponse.fromSubCategory(subCategory, baseUrl))
-            .collect(Collectors.toList());
-            
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(catalogReadService.getSubCategoriesByCategory(categoryId));
     }
 
     @PostMapping
@@ -114,6 +113,7 @@ public class SubCategoryController {
             }
 
             SubCategory savedSubCategory = subCategoryRepository.save(subCategory);
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.SUBCATEGORY, savedSubCategory.getId()));
             
             String baseUrl = getBaseUrl();
             return ResponseEntity.status(HttpStatus.CREATED).body(SubCategoryResponse.fromSubCategory(savedSubCategory, baseUrl));
@@ -125,26 +125,14 @@ public class SubCategoryController {
     }
 
     @GetMapping
-    @Transactional(readOnly = true)
     public ResponseEntity<List<SubCategoryResponse>> getAllSubCategories() {
-        String baseUrl = getBaseUrl();
-        List<SubCategory> subCategories = subCategoryRepository.findAll();
-        
-        List<SubCategoryResponse> responses = subCategories.stream()
-            .map(subCategory -> SubCategoryResponse.fromSubCategory(subCategory, baseUrl))
-            .collect(Collectors.toList());
-            
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(catalogReadService.getAllSubCategories());
     }
 
     @GetMapping("/{id}")
-    @Transactional(readOnly = true)
     public ResponseEntity<SubCategoryResponse> getSubCategory(@PathVariable Long id) {
-        return subCategoryRepository.findById(id)
-                .map(subCategory -> {
-                    String baseUrl = getBaseUrl();
-                    return ResponseEntity.ok(SubCategoryResponse.fromSubCategory(subCategory, baseUrl));
-                })
+        return catalogReadService.getSubCategory(id)
+                .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -204,6 +192,7 @@ public class SubCategoryController {
             }
 
             SubCategory updatedSubCategory = subCategoryRepository.save(subCategory);
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.SUBCATEGORY, updatedSubCategory.getId()));
             
             String baseUrl = getBaseUrl();
             return ResponseEntity.ok(SubCategoryResponse.fromSubCategory(updatedSubCategory, baseUrl));
@@ -231,6 +220,7 @@ public class SubCategoryController {
             }
             
             subCategoryRepository.delete(subCategory);
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.SUBCATEGORY, subCategory.getId()));
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Error: " + e.getMessage());
@@ -46,10 +46,8 @@ public class WishlistController {
     public ResponseEntity<WishlistResponse> getWishlist() {
         try {
             User user = getCurrentUser();
-            logger.info("Fetching wishlist for user: {}", user.getEmail());
-            
             List<WishlistItem> wishlistItems = wishlistItemRepository.findByUser(user);
-            logger.debug("Found {} items in wishlist for user: {}", wishlistItems.size(), user.getEmail());
+            logger.debug("wishlist.get userId={} items={}", user.getId(), wishlistItems.size());
             
             return ResponseEntity.ok(new WishlistResponse(wishlistItems, fileStorageService));
         } catch (Exception e) {
@@ -63,29 +61,27 @@ public class WishlistController {
     public ResponseEntity<?> addToWishlist(@PathVariable Long productId) {
         try {
             User user = getCurrentUser();
-            logger.info("Adding product {} to wishlist for user: {}", productId, user.getEmail());
-            
             Product product = productRepository.findById(productId)
                     .orElseThrow(() -> {
-                        logger.error("Product not found with id: {}", productId);
+                        logger.warn("wishlist.add rejected reason=product_not_found userId={} productId={}", user.getId(), productId);
                         return new EntityNotFoundException("Product not found with id: " + productId);
                     });
             
             // Check if product already exists in wishlist
             if (wishlistItemRepository.existsByUserAndProduct(user, product)) {
-                logger.warn("Product already exists in wishlist. User: {}, Product ID: {}", 
-                        user.getEmail(), productId);
+                logger.debug("wishlist.add rejected reason=duplicate userId={} productId={}", user.getId(), productId);
                 return ResponseEntity.badRequest()
                         .body(new MessageResponse("Product already exists in wishlist."));
             }
             
             // Create new wishlist item
-            logger.debug("Creating new wishlist item for product: {}", product.getName());
             WishlistItem wishlistItem = new WishlistItem(user, product);
             wishlistItemRepository.save(wishlistItem);
             
             List<WishlistItem> wishlistItems = wishlistItemRepository.findByUser(user);
-            logger.info("Product added to wishlist successfully for user: {}", user.getEmail());
+            if (logger.isDebugEnabled()) {
+                logger.debug("wishlist.add userId={} productId={} items={}", user.getId(), productId, wishlistItems.size());
+            }
             return ResponseEntity.ok(new WishlistResponse(wishlistItems, fileStorageService));
         } catch (Exception e) {
             logger.error("Error adding product to wishlist", e);
@@ -99,18 +95,18 @@ public class WishlistController {
     public ResponseEntity<?> removeFromWishlist(@PathVariable Long productId) {
         try {
             User user = getCurrentUser();
-            logger.info("Removing product {} from wishlist for user: {}", productId, user.getEmail());
-            
             Product product = productRepository.findById(productId)
                     .orElseThrow(() -> {
-                        logger.error("Product not found with id: {}", productId);
+                        logger.warn("wishlist.remove rejected reason=product_not_found userId={} productId={}", user.getId(), productId);
                         return new EntityNotFoundException("Product not found with id: " + productId);
                     });
             
             wishlistItemRepository.deleteByUserAndProduct(user, product);
             
             List<WishlistItem> wishlistItems = wishlistItemRepository.findByUser(user);
-            logger.info("Product removed from wishlist successfully for user: {}", user.getEmail());
+            if (logger.isDebugEnabled()) {
+                logger.debug("wishlist.remove userId={} productId={} items={}", user.getId(), productId, wishlistItems.size());
+            }
             return ResponseEntity.ok(new WishlistResponse(wishlistItems, fileStorageService));
         } catch (Exception e) {
             logger.error("Error removing product from wishlist", e);
@@ -123,12 +119,10 @@ public class WishlistController {
     public ResponseEntity<?> clearWishlist() {
         try {
             User user = getCurrentUser();
-            logger.info("Clearing wishlist for user: {}", user.getEmail());
-            
             List<WishlistItem> wishlistItems = wishlistItemRepository.findByUser(user);
             wishlistItemRepository.deleteAll(wishlistItems);
             
-            logger.info("Wishlist cleared successfully for user: {}", user.getEmail());
+            logger.debug("wishlist.clear userId={} removed={}", user.getId(), wishlistItems.size());
             return ResponseEntity.ok(new WishlistResponse(wishlistItemRepository.findByUser(user), fileStorageService));
         } catch (Exception e) {
             logger.error("Error clearing wishlist", e);
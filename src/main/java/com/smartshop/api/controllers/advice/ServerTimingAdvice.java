@@ -0,0 +1,40 @@
+package com.smartshop.api.controllers.advice;
+
+import com.smartshop.api.config.StatementCountingDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Locale;
+
+/**
+ * Adds a Server-Timing header with the SQL statements the request has run so far, e.g.
+ * {@code Server-Timing: db;dur=4.2;desc="3 statements"}. It is written just before the body,
+ * so statements run while serializing (lazy loads) are only in the logged and recorded count.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "jdbc.statement-count.enabled", havingValue = "true")
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        StatementCountingDataSource.Counter counter = StatementCountingDataSource.current();
+        if (counter != null) {
+            response.getHeaders().add("Server-Timing", String.format(Locale.ROOT, "db;dur=%.1f;desc=\"%d statements\"",
+                    counter.getMillis(), counter.getStatements()));
+        }
+        return body;
+    }
+}
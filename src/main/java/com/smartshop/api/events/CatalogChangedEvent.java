@@ -0,0 +1,32 @@
+package com.smartshop.api.events;
+
+/**
+ * Published by the catalog controllers after a product, category, subcategory or offer is
+ * created, updated or deleted, so cached read models can be invalidated and the product search
+ * index updated.
+ */
+public class CatalogChangedEvent {
+
+    public enum Type {
+        PRODUCT,
+        CATEGORY,
+        SUBCATEGORY,
+        OFFER
+    }
+
+    private final Type type;
+    private final Long id;
+
+    public CatalogChangedEvent(Type type, Long id) {
+        this.type = type;
+        this.id = id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,18 @@
+package com.smartshop.api.events;
+
+/**
+ * Published when an entity is saved with a new file in place of a stored one, or deleted along
+ * with its file. FileStorageService deletes the old file once the transaction commits.
+ */
+public class FileReplacedEvent {
+
+    private final String filePath;
+
+    public FileReplacedEvent(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+}
@@ -0,0 +1,29 @@
+package com.smartshop.api.events;
+
+/**
+ * Published by FileStorageService after an uploaded file has been stored.
+ */
+public class FileStoredEvent {
+
+    private final String filePath;
+    private final String contentType;
+    private final byte[] data;
+
+    public FileStoredEvent(String filePath, String contentType, byte[] data) {
+        this.filePath = filePath;
+        this.contentType = contentType;
+        this.data = data;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,24 @@
+package com.smartshop.api.events;
+
+/**
+ * Published when an order is placed, cancelled or has its status or payment status changed, so
+ * the owner's next reads of their orders can be sent to the primary.
+ */
+public class OrderChangedEvent {
+
+    private final Long orderId;
+    private final Long userId;
+
+    public OrderChangedEvent(Long orderId, Long userId) {
+        this.orderId = orderId;
+        this.userId = userId;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
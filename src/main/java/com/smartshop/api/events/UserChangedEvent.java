@@ -0,0 +1,18 @@
+package com.smartshop.api.events;
+
+/**
+ * Published after an existing user's profile, roles or password are changed, so cached
+ * authentication principals for that user can be dropped.
+ */
+public class UserChangedEvent {
+
+    private final Long userId;
+
+    public UserChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
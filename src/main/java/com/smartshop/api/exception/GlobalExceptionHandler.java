@@ -4,6 +4,7 @@ import com.smartshop.api.payload.response.MessageResponse;
 import org.hibernate.LazyInitializationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -40,6 +41,30 @@ public class GlobalExceptionHandler {
                 HttpStatus.NOT_FOUND);
     }
     
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<Object> handleInsufficientStock(InsufficientStockException ex) {
+        logger.warn("Insufficient stock for product {}", ex.getProductId());
+        return new ResponseEntity<>(
+                MessageResponse.error(ex.getMessage()),
+                HttpStatus.BAD_REQUEST);
+    }
+    
+    @ExceptionHandler(IdempotencyKeyReuseException.class)
+    public ResponseEntity<Object> handleIdempotencyKeyReuse(IdempotencyKeyReuseException ex) {
+        logger.warn("Idempotency key reuse: {}", ex.getMessage());
+        return new ResponseEntity<>(
+                MessageResponse.error(ex.getMessage()),
+                HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+    
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Object> handleTaskRejected(TaskRejectedException ex) {
+        logger.warn("Request rejected, worker pool is full: {}", ex.getMessage());
+        return new ResponseEntity<>(
+                MessageResponse.error("The server is busy. Please try again shortly."),
+                HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity<Object> handleAccessDenied(AccessDeniedException ex) {
         logger.error("Access denied: {}", ex.getMessage());
@@ -0,0 +1,15 @@
+package com.smartshop.api.exception;
+
+public class InsufficientStockException extends RuntimeException {
+
+    private final Long productId;
+
+    public InsufficientStockException(Long productId, String productName) {
+        super("Product " + productName + " is out of stock or has insufficient quantity.");
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
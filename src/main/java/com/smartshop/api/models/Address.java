@@ -3,6 +3,7 @@ package com.smartshop.api.models;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -13,6 +14,8 @@ import javax.validation.constraints.Size;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+// The shipping and delivery addresses of a list of orders are fetched in one IN query
+@BatchSize(size = 50)
 public class Address {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
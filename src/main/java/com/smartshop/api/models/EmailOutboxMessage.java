@@ -0,0 +1,73 @@
+package com.smartshop.api.models;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * An email queued in the same transaction as the change that triggered it, and sent later by
+ * EmailOutboxDispatcher. Rows stay PENDING until sent, until they run out of attempts, or until
+ * expires_at passes. The body is blanked once a row leaves PENDING, and finished rows are purged
+ * after email.outbox.retention-days.
+ */
+@Entity
+@Table(name = "email_outbox",
+        indexes = {
+                @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+        })
+@Data
+@NoArgsConstructor
+public class EmailOutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 255)
+    private String recipient;
+
+    @Column(nullable = false, length = 255)
+    private String subject;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EmailOutboxStatus status = EmailOutboxStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // Not picked up before this time: the retry backoff, or the lease of a dispatcher working on it
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    // Not sent after this time (null: no limit)
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    public EmailOutboxMessage(String recipient, String subject, String body) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+        this.nextAttemptAt = LocalDateTime.now();
+    }
+
+    public EmailOutboxMessage(String recipient, String subject, String body, LocalDateTime expiresAt) {
+        this(recipient, subject, body);
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,9 @@
+package com.smartshop.api.models;
+
+public enum EmailOutboxStatus {
+    PENDING,
+    SENT,
+    FAILED,
+    // Not sent before expires_at; its content (such as an OTP) was no longer valid
+    EXPIRED
+}
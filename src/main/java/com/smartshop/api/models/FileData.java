@@ -7,6 +7,8 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.Type;
 
 import javax.persistence.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 
 @Entity
@@ -37,6 +39,19 @@ public class FileData {
     @CreationTimestamp
     private LocalDateTime createdAt;
     
+    // Hex SHA-256 of data, used as the HTTP ETag; null for rows stored before it was introduced
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
+    // Where the bytes live; null means DATABASE (rows stored before blob stores were introduced)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "storage", length = 16)
+    private StorageBackend storage;
+    
+    // Byte length of the file, independent of where the bytes are stored
+    @Column(name = "size_bytes")
+    private Long size;
+    
     /**
      * Constructor for file storage - used by DatabaseFileStorageService and DataMigrationUtil
      */
@@ -47,6 +62,32 @@ public class FileData {
         this.data = data;
     }
     
+    /**
+     * Stored files never change after upload, so the hash and size are computed once when the row is inserted
+     */
+    @PrePersist
+    protected void computeContentHash() {
+        if (contentHash == null && data != null) {
+            contentHash = sha256Hex(data);
+        }
+        if (size == null && data != null) {
+            size = (long) data.length;
+        }
+    }
+    
+    public static String sha256Hex(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
     /**
      * Utility method to determine file type from MIME type
      */
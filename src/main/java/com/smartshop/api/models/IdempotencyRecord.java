@@ -0,0 +1,53 @@
+package com.smartshop.api.models;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * An Idempotency-Key a user has sent with POST /orders, and the order it produced.
+ * The unique constraint makes a concurrent retry wait for, then fail against, the first attempt.
+ */
+@Entity
+@Table(name = "idempotency_keys",
+        uniqueConstraints = {
+                @UniqueConstraint(name = IdempotencyRecord.KEY_CONSTRAINT, columnNames = {"user_id", "idempotency_key"})
+        },
+        indexes = {
+                @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at")
+        })
+@Data
+@NoArgsConstructor
+public class IdempotencyRecord {
+    public static final String KEY_CONSTRAINT = "uk_idempotency_keys_user_key";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    // SHA-256 of the request parameters, to reject a key reused for a different request
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    public IdempotencyRecord(Long userId, String idempotencyKey, String requestHash) {
+        this.userId = userId;
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+    }
+}
@@ -3,6 +3,7 @@ package com.smartshop.api.models;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -13,7 +14,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders",
+        indexes = {
+                @Index(name = "idx_orders_created_at_id", columnList = "created_at, id"),
+                @Index(name = "idx_orders_user_created_at_id", columnList = "user_id, created_at, id")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,6 +35,7 @@ public class Order {
     private User user;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     private List<OrderItem> items = new ArrayList<>();
 
     @ManyToOne(cascade = CascadeType.ALL)
@@ -66,6 +72,7 @@ public class Order {
     private String notes;
 
     @CreationTimestamp
+    @Column(name = "created_at")
     private LocalDateTime createdAt;
 
     @UpdateTimestamp
@@ -0,0 +1,54 @@
+package com.smartshop.api.models;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated order totals for one bucket of a dimension (a day, a status, a product, ...).
+ * Kept current by OrderAnalyticsService as orders are created and change status.
+ */
+@Entity
+@Table(name = "order_rollups",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"dimension", "bucket"})
+        })
+@Data
+@NoArgsConstructor
+public class OrderRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RollupDimension dimension;
+
+    @Column(nullable = false, length = 64)
+    private String bucket;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount = 0L;
+
+    @Column(name = "item_quantity", nullable = false)
+    private Long itemQuantity = 0L;
+
+    @Column(nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "updated_at")
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    public OrderRollup(RollupDimension dimension, String bucket, Long orderCount, Long itemQuantity, BigDecimal revenue) {
+        this.dimension = dimension;
+        this.bucket = bucket;
+        this.orderCount = orderCount;
+        this.itemQuantity = itemQuantity;
+        this.revenue = revenue;
+    }
+}
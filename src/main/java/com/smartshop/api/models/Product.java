@@ -2,6 +2,7 @@ package com.smartshop.api.models;
 
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -14,9 +15,15 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products",
+        indexes = {
+                @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+                @Index(name = "idx_products_price_id", columnList = "price, id")
+        })
 @Data
 @NoArgsConstructor
+// Products referenced by several loaded order or cart items are fetched in one IN query
+@BatchSize(size = 50)
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,10 @@
+package com.smartshop.api.models;
+
+public enum RollupDimension {
+    DAY,
+    MONTH,
+    STATUS,
+    PRODUCT,
+    PAYMENT_METHOD,
+    CUSTOMER
+}
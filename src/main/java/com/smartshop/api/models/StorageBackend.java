@@ -0,0 +1,6 @@
+package com.smartshop.api.models;
+
+public enum StorageBackend {
+    DATABASE,
+    FILESYSTEM
+}
@@ -3,6 +3,7 @@ package com.smartshop.api.models;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -79,7 +80,9 @@ public class User {
     @Column(length = 100)
     private String country;
 
+    // Roles of the users behind a list of orders are fetched in one IN query
     @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @JoinTable(name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
             inverseJoinColumns = @JoinColumn(name = "role_id"))
@@ -95,6 +98,10 @@ public class User {
     
     private String referralCode;
 
+    // Bumped to revoke every self-contained token issued to this user (logout, password reset)
+    @Column(name = "token_version", columnDefinition = "integer default 0")
+    private int tokenVersion;
+
     @CreationTimestamp
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -27,6 +27,18 @@ public class CartResponse {
         this.subtotal = calculateSubtotal();
     }
     
+    public CartResponse(List<CartItemDTO> items) {
+        this.items = items;
+        this.itemCount = items.size();
+        this.subtotal = calculateSubtotal();
+    }
+    
+    // The discounted price applies only when it actually differs from the list price
+    public static BigDecimal lineTotal(BigDecimal price, BigDecimal discountedPrice, int quantity) {
+        BigDecimal priceToUse = discountedPrice != null && !discountedPrice.equals(price) ? discountedPrice : price;
+        return priceToUse.multiply(BigDecimal.valueOf(quantity));
+    }
+    
     private CartItemDTO convertToDTO(CartItem cartItem) {
         CartItemDTO dto = new CartItemDTO();
         dto.setId(cartItem.getId());
@@ -51,12 +63,8 @@ public class CartResponse {
         dto.setQuantity(cartItem.getQuantity());
         
         // Calculate total price for this item
-        BigDecimal priceToUse = cartItem.getProduct().getDiscountedPrice() != null && 
-                !cartItem.getProduct().getDiscountedPrice().equals(cartItem.getProduct().getPrice()) ? 
-                cartItem.getProduct().getDiscountedPrice() : 
-                cartItem.getProduct().getPrice();
-        
-        dto.setTotalPrice(priceToUse.multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+        dto.setTotalPrice(lineTotal(cartItem.getProduct().getPrice(), cartItem.getProduct().getDiscountedPrice(),
+                cartItem.getQuantity()));
         
         return dto;
     }
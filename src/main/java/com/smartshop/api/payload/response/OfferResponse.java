@@ -0,0 +1,29 @@
+package com.smartshop.api.payload.response;
+
+import com.smartshop.api.models.Offer;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class OfferResponse {
+    private Long id;
+    private String title;
+    private String description;
+    private String imageUrl;
+    private boolean active;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public static OfferResponse fromOffer(Offer offer) {
+        OfferResponse response = new OfferResponse();
+        response.setId(offer.getId());
+        response.setTitle(offer.getTitle());
+        response.setDescription(offer.getDescription());
+        response.setImageUrl(offer.getImageUrl());
+        response.setActive(offer.isActive());
+        response.setCreatedAt(offer.getCreatedAt());
+        response.setUpdatedAt(offer.getUpdatedAt());
+        return response;
+    }
+}
@@ -5,6 +5,8 @@ import com.smartshop.api.models.Order;
 import com.smartshop.api.models.OrderItem;
 import com.smartshop.api.models.OrderStatus;
 import com.smartshop.api.models.PaymentStatus;
+import com.smartshop.api.repositories.projections.OrderHeaderRow;
+import com.smartshop.api.repositories.projections.OrderItemRow;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -88,6 +90,59 @@ public class OrderDTO {
         this.deliveredAt = order.getDeliveredAt();
     }
     
+    /**
+     * Builds the same response as {@link #OrderDTO(Order, String)} from listing projections,
+     * without loading any entities.
+     */
+    public static OrderDTO fromRows(OrderHeaderRow header, List<OrderItemRow> itemRows, String baseUrl) {
+        OrderDTO dto = new OrderDTO();
+        dto.id = header.getId();
+        dto.orderNumber = header.getOrderNumber();
+        dto.items = itemRows.stream()
+                .map(row -> convertToOrderItemDTO(row, baseUrl))
+                .collect(Collectors.toList());
+        dto.subtotal = dto.items.stream()
+                .map(OrderItemDTO::getTotalPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        dto.shippingAddress = header.getShippingAddressLine1() == null && header.getShippingCity() == null ? null
+                : new AddressDTO(header.getShippingAddressLine1(), header.getShippingAddressLine2(), header.getShippingCity(),
+                        header.getShippingState(), header.getShippingPostalCode(), header.getShippingCountry());
+        dto.deliveryAddress = header.getDeliveryAddressLine1() == null && header.getDeliveryCity() == null ? null
+                : new AddressDTO(header.getDeliveryAddressLine1(), header.getDeliveryAddressLine2(), header.getDeliveryCity(),
+                        header.getDeliveryState(), header.getDeliveryPostalCode(), header.getDeliveryCountry());
+        dto.status = header.getStatus();
+        dto.paymentStatus = header.getPaymentStatus();
+        dto.paymentMethod = header.getPaymentMethod() != null ? header.getPaymentMethod().toString() : null;
+
+        dto.tax = header.getTax() != null ? header.getTax() : BigDecimal.ZERO;
+        dto.shippingCost = header.getShippingCost() != null ? header.getShippingCost() : BigDecimal.ZERO;
+        BigDecimal discount = header.getDiscount() != null ? header.getDiscount() : BigDecimal.ZERO;
+        dto.total = dto.subtotal
+                .add(dto.tax)
+                .add(dto.shippingCost)
+                .subtract(discount);
+
+        dto.createdAt = header.getCreatedAt();
+        dto.deliveredAt = header.getDeliveredAt();
+        return dto;
+    }
+    
+    private static OrderItemDTO convertToOrderItemDTO(OrderItemRow row, String baseUrl) {
+        String imageUrl = row.getProductImageUrl();
+        if (baseUrl != null && imageUrl != null && !imageUrl.isEmpty() && !imageUrl.startsWith("http")) {
+            imageUrl = baseUrl + "/files/" + imageUrl;
+        }
+
+        // Same price fallback as for entities: order line, then product discount, then list price
+        BigDecimal price = row.getDiscountedPrice();
+        if (price == null) {
+            price = row.getProductDiscountedPrice() != null ? row.getProductDiscountedPrice() : row.getProductPrice();
+        }
+        return new OrderItemDTO(row.getId(), row.getProductId(), row.getProductName(), imageUrl, price,
+                row.getQuantity(), price.multiply(BigDecimal.valueOf(row.getQuantity())));
+    }
+    
     private OrderItemDTO convertToOrderItemDTO(OrderItem orderItem) {
         return convertToOrderItemDTO(orderItem, null);
     }
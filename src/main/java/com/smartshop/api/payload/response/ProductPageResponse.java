@@ -0,0 +1,18 @@
+package com.smartshop.api.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageResponse {
+    private List<ProductResponse> items;
+    private int size;
+    private boolean hasMore;
+    // Opaque cursor to pass back as ?cursor= for the next page, null on the last page
+    private String nextCursor;
+}
@@ -1,6 +1,7 @@
 package com.smartshop.api.payload.response;
 
 import com.smartshop.api.models.Product;
+import com.smartshop.api.repositories.projections.ProductRow;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -81,4 +82,35 @@ public class ProductResponse {
         
         return response;
     }
+    
+    public static ProductResponse fromRow(ProductRow row, String baseUrl) {
+        ProductResponse response = new ProductResponse();
+        response.setId(row.getId());
+        response.setName(row.getName());
+        response.setDescription(row.getDescription());
+        response.setPrice(row.getPrice());
+        response.setDiscountedPrice(row.getDiscountedPrice());
+        response.setStockQuantity(row.getStockQuantity());
+        response.setDiscountPercentage(row.getDiscountPercentage());
+        response.setCreatedAt(row.getCreatedAt());
+        response.setUpdatedAt(row.getUpdatedAt());
+        response.setImageUrl(toFileUrl(row.getImageUrl(), baseUrl));
+        
+        response.setCategoryId(row.getCategoryId());
+        response.setCategoryName(row.getCategoryName());
+        response.setCategoryImageUrl(toFileUrl(row.getCategoryImageUrl(), baseUrl));
+        
+        response.setSubCategoryId(row.getSubCategoryId());
+        response.setSubCategoryName(row.getSubCategoryName());
+        response.setSubCategoryImageUrl(toFileUrl(row.getSubCategoryImageUrl(), baseUrl));
+        
+        return response;
+    }
+    
+    private static String toFileUrl(String path, String baseUrl) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        return path.startsWith("http") ? path : baseUrl + "/files/" + path;
+    }
 } 
\ No newline at end of file
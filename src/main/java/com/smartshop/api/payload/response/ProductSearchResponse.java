@@ -0,0 +1,19 @@
+package com.smartshop.api.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResponse {
+    private List<ProductResponse> items;
+    private int total;
+    // Matching product counts keyed by category id, and by price range such as "500-1000"
+    private Map<Long, Long> categoryFacets;
+    private Map<String, Long> priceFacets;
+}
@@ -3,7 +3,11 @@ package com.smartshop.api.repositories;
 import com.smartshop.api.models.CartItem;
 import com.smartshop.api.models.Product;
 import com.smartshop.api.models.User;
+import com.smartshop.api.repositories.projections.CartLineRow;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -18,4 +22,16 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     void deleteByUserAndProduct(User user, Product product);
     
     void deleteByUser(User user);
+    
+    @Query("SELECT c.id AS id, c.product.id AS productId, c.quantity AS quantity FROM CartItem c " +
+            "WHERE c.user.id = :userId ORDER BY c.id")
+    List<CartLineRow> findLinesByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.product WHERE c.user.id = :userId ORDER BY c.id")
+    List<CartItem> findByUserIdWithProducts(@Param("userId") Long userId);
+
+    // One bulk statement instead of the load-then-delete of deleteByUser
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.user.id = :userId")
+    int deleteAllByUserId(@Param("userId") Long userId);
 } 
\ No newline at end of file
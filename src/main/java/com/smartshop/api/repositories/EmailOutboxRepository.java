@@ -0,0 +1,62 @@
+package com.smartshop.api.repositories;
+
+import com.smartshop.api.models.EmailOutboxMessage;
+import com.smartshop.api.models.EmailOutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    @Query("SELECT m.id FROM EmailOutboxMessage m WHERE m.status = :status AND m.nextAttemptAt <= :now ORDER BY m.id")
+    List<Long> findDueIds(@Param("status") EmailOutboxStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Leases a due message to the caller; 0 means another dispatcher got it first
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.nextAttemptAt = :leaseUntil " +
+            "WHERE m.id = :id AND m.status = com.smartshop.api.models.EmailOutboxStatus.PENDING AND m.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.smartshop.api.models.EmailOutboxStatus.SENT, " +
+            "m.attempts = m.attempts + 1, m.sentAt = :sentAt, m.lastError = NULL, m.body = '' WHERE m.id IN :ids")
+    int markSent(@Param("ids") List<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    // Retries are over for these; the body is blanked so a one-time code does not outlive its use
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.smartshop.api.models.EmailOutboxStatus.FAILED, " +
+            "m.attempts = m.attempts + 1, m.lastError = :error, m.body = '' WHERE m.id = :id")
+    int markGivenUp(@Param("id") Long id, @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = com.smartshop.api.models.EmailOutboxStatus.EXPIRED, m.body = '' " +
+            "WHERE m.status = com.smartshop.api.models.EmailOutboxStatus.PENDING AND m.expiresAt < :now")
+    int expirePending(@Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EmailOutboxMessage m " +
+            "WHERE m.status <> com.smartshop.api.models.EmailOutboxStatus.PENDING AND m.createdAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutboxMessage m SET m.status = :status, m.attempts = m.attempts + 1, " +
+            "m.nextAttemptAt = :nextAttemptAt, m.lastError = :error WHERE m.id = :id")
+    int markFailedAttempt(@Param("id") Long id,
+                          @Param("status") EmailOutboxStatus status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                          @Param("error") String error);
+}
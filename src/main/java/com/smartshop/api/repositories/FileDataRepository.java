@@ -1,12 +1,56 @@
 package com.smartshop.api.repositories;
 
 import com.smartshop.api.models.FileData;
+import com.smartshop.api.models.StorageBackend;
+import com.smartshop.api.repositories.projections.FileMetadata;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface FileDataRepository extends JpaRepository<FileData, Long> {
     Optional<FileData> findByFilePath(String filePath);
-} 
\ No newline at end of file
+
+    // Everything needed to answer a download request, without loading the blob itself
+    @Query("SELECT f.id AS id, f.name AS name, f.type AS type, f.filePath AS filePath, " +
+           "COALESCE(f.size, LENGTH(f.data)) AS size, f.createdAt AS createdAt, f.contentHash AS contentHash, " +
+           "f.storage AS storage FROM FileData f WHERE f.filePath = :filePath")
+    Optional<FileMetadata> findMetadataByFilePath(@Param("filePath") String filePath);
+
+    // Reads one slice of the blob; start is 1-based as in SQL SUBSTRING
+    @Query(value = "SELECT SUBSTRING(data FROM :start FOR :length) FROM file_data WHERE id = :id", nativeQuery = true)
+    byte[] findDataChunk(@Param("id") Long id, @Param("start") long start, @Param("length") int length);
+
+    @Query(value = "SELECT data FROM file_data WHERE id = :id", nativeQuery = true)
+    byte[] findDataById(@Param("id") Long id);
+
+    // A migrated row keeps its id but not its data, so existsById is not enough
+    @Query("SELECT CASE WHEN COUNT(f) > 0 THEN true ELSE false END FROM FileData f " +
+           "WHERE f.id = :id AND (f.storage IS NULL OR f.storage = :storage)")
+    boolean existsByIdInStorage(@Param("id") Long id, @Param("storage") StorageBackend storage);
+
+    long countByContentHashAndStorage(String contentHash, StorageBackend storage);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FileData f WHERE f.id = :id")
+    int deleteFileById(@Param("id") Long id);
+
+    @Query("SELECT f.id FROM FileData f WHERE f.id > :afterId AND (f.storage IS NULL OR f.storage = :storage) ORDER BY f.id")
+    List<Long> findIdsByStorageAfter(@Param("storage") StorageBackend storage, @Param("afterId") Long afterId, Pageable pageable);
+
+    // Only moves rows still held in the database, so a concurrent delete or second migrator run is harmless
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileData f SET f.storage = :target, f.size = :size, f.contentHash = :contentHash, f.data = :emptyData " +
+           "WHERE f.id = :id AND (f.storage IS NULL OR f.storage = :source)")
+    int moveToStorage(@Param("id") Long id, @Param("source") StorageBackend source, @Param("target") StorageBackend target,
+                      @Param("size") Long size, @Param("contentHash") String contentHash, @Param("emptyData") byte[] emptyData);
+}
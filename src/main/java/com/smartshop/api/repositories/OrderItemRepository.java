@@ -2,10 +2,13 @@ package com.smartshop.api.repositories;
 
 import com.smartshop.api.models.Order;
 import com.smartshop.api.models.OrderItem;
+import com.smartshop.api.repositories.projections.OrderItemRow;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,4 +17,13 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     @Query("SELECT SUM(oi.quantity) FROM OrderItem oi")
     Long sumTotalQuantity();
+    
+    @Query("SELECT oi.order.id, oi.product.id, oi.quantity, oi.discountedPrice FROM OrderItem oi WHERE oi.order.id IN :orderIds")
+    List<Object[]> findRollupLinesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+    
+    @Query("SELECT oi.order.id AS orderId, oi.id AS id, oi.quantity AS quantity, oi.discountedPrice AS discountedPrice, " +
+            "p.id AS productId, p.name AS productName, p.imageUrl AS productImageUrl, " +
+            "p.price AS productPrice, p.discountedPrice AS productDiscountedPrice " +
+            "FROM OrderItem oi JOIN oi.product p WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderItemRow> findRowsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
 } 
\ No newline at end of file
@@ -3,8 +3,13 @@ package com.smartshop.api.repositories;
 import com.smartshop.api.models.Order;
 import com.smartshop.api.models.OrderStatus;
 import com.smartshop.api.models.User;
+import com.smartshop.api.repositories.projections.DailyRevenue;
+import com.smartshop.api.repositories.projections.OrderHeaderRow;
+import com.smartshop.api.repositories.projections.OrderStatusSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
@@ -14,6 +19,24 @@ import java.util.Map;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    String ORDER_HEADER_SELECT = "SELECT o.id AS id, o.orderNumber AS orderNumber, o.status AS status, " +
+            "o.paymentStatus AS paymentStatus, o.paymentMethod AS paymentMethod, o.tax AS tax, " +
+            "o.shippingCost AS shippingCost, o.discount AS discount, o.createdAt AS createdAt, o.deliveredAt AS deliveredAt, " +
+            "sa.addressLine1 AS shippingAddressLine1, sa.addressLine2 AS shippingAddressLine2, sa.city AS shippingCity, " +
+            "sa.state AS shippingState, sa.postalCode AS shippingPostalCode, sa.country AS shippingCountry, " +
+            "da.addressLine1 AS deliveryAddressLine1, da.addressLine2 AS deliveryAddressLine2, da.city AS deliveryCity, " +
+            "da.state AS deliveryState, da.postalCode AS deliveryPostalCode, da.country AS deliveryCountry " +
+            "FROM Order o LEFT JOIN o.shippingAddress sa LEFT JOIN o.deliveryAddress da ";
+
+    String USER_ORDERS = "WHERE o.user.id = :userId ";
+
+    // Keyset continuations. Orders without created_at sort first (PostgreSQL puts NULLs first in
+    // descending order), so after an undated order come the older undated ones and every dated one.
+    String CREATED_BEFORE = "(o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) ";
+    String UNDATED_BEFORE = "(o.createdAt IS NOT NULL OR o.id < :id) ";
+
+    String NEWEST_FIRST = "ORDER BY o.createdAt DESC, o.id DESC";
+
     List<Order> findByUser(User user);
     
     List<Order> findByUserOrderByCreatedAtDesc(User user);
@@ -23,11 +46,34 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id = ?1")
     Order findByIdWithItems(Long id);
     
-    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items LEFT JOIN FETCH o.shippingAddress LEFT JOIN FETCH o.deliveryAddress")
-    List<Order> findAllWithDetails();
+    // Order listing headers, newest first: one user's orders (findUser*) or every order. Separate
+    // queries rather than an optional filter, so each gets a plan that uses its own index. Items
+    // are loaded separately for the whole page, so no collection is fetched here.
+    
+    @Query(ORDER_HEADER_SELECT + USER_ORDERS + NEWEST_FIRST)
+    List<OrderHeaderRow> findUserHeaderPage(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query(ORDER_HEADER_SELECT + USER_ORDERS + "AND " + CREATED_BEFORE + NEWEST_FIRST)
+    List<OrderHeaderRow> findUserHeaderPageAfter(@Param("userId") Long userId,
+                                                 @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id,
+                                                 Pageable pageable);
     
-    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items LEFT JOIN FETCH o.shippingAddress LEFT JOIN FETCH o.deliveryAddress WHERE o.user = ?1 ORDER BY o.createdAt DESC")
-    List<Order> findByUserWithDetailsOrderByCreatedAtDesc(User user);
+    @Query(ORDER_HEADER_SELECT + USER_ORDERS + "AND " + UNDATED_BEFORE + NEWEST_FIRST)
+    List<OrderHeaderRow> findUserHeaderPageAfterUndated(@Param("userId") Long userId,
+                                                        @Param("id") Long id,
+                                                        Pageable pageable);
+    
+    @Query(ORDER_HEADER_SELECT + NEWEST_FIRST)
+    List<OrderHeaderRow> findHeaderPage(Pageable pageable);
+    
+    @Query(ORDER_HEADER_SELECT + "WHERE " + CREATED_BEFORE + NEWEST_FIRST)
+    List<OrderHeaderRow> findHeaderPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+    
+    @Query(ORDER_HEADER_SELECT + "WHERE " + UNDATED_BEFORE + NEWEST_FIRST)
+    List<OrderHeaderRow> findHeaderPageAfterUndated(@Param("id") Long id, Pageable pageable);
     
     @Query("SELECT COUNT(DISTINCT o.user.id) FROM Order o")
     Long countDistinctUsers();
@@ -56,4 +102,17 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     
     @Query("SELECT o FROM Order o JOIN FETCH o.items i JOIN FETCH o.user u JOIN FETCH i.product")
     List<Order> findAllWithItemsAndUser();
+    
+    @Query("SELECT o.id, o.createdAt, o.status, o.paymentMethod, o.user.id FROM Order o WHERE o.id > ?1 ORDER BY o.id")
+    List<Object[]> findRollupRowsAfter(Long afterId, Pageable pageable);
+    
+    @Query("SELECT o.status AS status, COUNT(o) AS orderCount, SUM(o.total) AS totalAmount, " +
+            "(SELECT COUNT(DISTINCT o2.user.id) FROM Order o2) AS totalUsers, " +
+            "(SELECT SUM(oi.quantity) FROM OrderItem oi) AS totalProductsSold " +
+            "FROM Order o GROUP BY o.status")
+    List<OrderStatusSummary> summarizeByStatus();
+    
+    @Query("SELECT CAST(o.createdAt AS date) AS day, SUM(o.total) AS revenue FROM Order o " +
+            "WHERE o.createdAt >= ?1 GROUP BY CAST(o.createdAt AS date)")
+    List<DailyRevenue> sumRevenueByDaySince(LocalDateTime since);
 } 
\ No newline at end of file
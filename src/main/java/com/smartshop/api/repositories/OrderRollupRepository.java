@@ -0,0 +1,42 @@
+package com.smartshop.api.repositories;
+
+import com.smartshop.api.models.OrderRollup;
+import com.smartshop.api.models.RollupDimension;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface OrderRollupRepository extends JpaRepository<OrderRollup, Long> {
+    List<OrderRollup> findByDimension(RollupDimension dimension);
+
+    List<OrderRollup> findByDimensionAndBucketGreaterThanEqual(RollupDimension dimension, String bucket);
+
+    long countByDimension(RollupDimension dimension);
+
+    // Creates the bucket or adds to it in one statement, so concurrent first orders of a bucket cannot collide
+    String UPSERT_SQL = "INSERT INTO order_rollups (dimension, bucket, order_count, item_quantity, revenue, updated_at) " +
+            "VALUES (:dimension, :bucket, :orders, :quantity, :revenue, now()) " +
+            "ON CONFLICT (dimension, bucket) DO UPDATE SET " +
+            "order_count = order_rollups.order_count + EXCLUDED.order_count, " +
+            "item_quantity = order_rollups.item_quantity + EXCLUDED.item_quantity, " +
+            "revenue = order_rollups.revenue + EXCLUDED.revenue, updated_at = EXCLUDED.updated_at";
+
+    @Modifying
+    @Query(value = UPSERT_SQL, nativeQuery = true)
+    int upsert(@Param("dimension") String dimension,
+               @Param("bucket") String bucket,
+               @Param("orders") long orders,
+               @Param("quantity") long quantity,
+               @Param("revenue") BigDecimal revenue);
+
+    // A bucket incremented concurrently is re-checked against its new values and kept
+    @Modifying
+    @Query("DELETE FROM OrderRollup r WHERE r.orderCount = 0 AND r.itemQuantity = 0 AND r.revenue = 0")
+    int deleteEmptyRollups();
+}
@@ -2,23 +2,49 @@ package com.smartshop.api.repositories;
 
 import com.smartshop.api.models.Category;
 import com.smartshop.api.models.Product;
+import com.smartshop.api.repositories.projections.ProductRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
-    List<Product> findByNameContainingIgnoreCase(String name);
+    String PRODUCT_ROW_SELECT = "SELECT p.id AS id, p.name AS name, p.description AS description, " +
+            "p.price AS price, p.discountedPrice AS discountedPrice, p.stockQuantity AS stockQuantity, " +
+            "p.discountPercentage AS discountPercentage, p.imageUrl AS imageUrl, " +
+            "p.createdAt AS createdAt, p.updatedAt AS updatedAt, " +
+            "c.id AS categoryId, c.name AS categoryName, c.imageUrl AS categoryImageUrl, " +
+            "s.id AS subCategoryId, s.name AS subCategoryName, s.imageUrl AS subCategoryImageUrl " +
+            "FROM Product p LEFT JOIN p.category c LEFT JOIN p.subCategory s " +
+            "WHERE (:categoryId IS NULL OR c.id = :categoryId) " +
+            "AND (:subCategoryId IS NULL OR s.id = :subCategoryId) ";
+
+    @Override
+    @EntityGraph(attributePaths = {"category", "subCategory", "subCategory.category"})
+    List<Product> findAll();
+
+    @EntityGraph(attributePaths = {"category", "subCategory", "subCategory.category"})
+    List<Product> findAllBy(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"category", "subCategory", "subCategory.category"})
+    List<Product> findByNameContainingIgnoreCase(String name, Pageable pageable);
     
     List<Product> findByCategory(Category category);
     
+    @EntityGraph(attributePaths = {"category", "subCategory", "subCategory.category"})
     @Query("SELECT p FROM Product p WHERE p.name LIKE %:query% OR p.description LIKE %:query%")
-    List<Product> search(@Param("query") String query);
+    List<Product> search(@Param("query") String query, Pageable pageable);
     
+    @EntityGraph(attributePaths = {"category", "subCategory", "subCategory.category"})
     @Query("SELECT p FROM Product p WHERE (:categoryId IS NULL OR p.category.id = :categoryId) " +
             "AND (:minPrice IS NULL OR p.price >= :minPrice) " +
             "AND (:maxPrice IS NULL OR p.price <= :maxPrice)")
@@ -26,5 +52,56 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
                          @Param("minPrice") BigDecimal minPrice, 
                          @Param("maxPrice") BigDecimal maxPrice);
     
+    @EntityGraph(attributePaths = {"category", "subCategory", "subCategory.category"})
     List<Product> findBySubCategoryId(Long subCategoryId);
-} 
\ No newline at end of file
+    
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.subCategory WHERE p.id IN :ids")
+    List<Product> findAllWithCategoriesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id, p.name, p.description, p.price, p.category.id FROM Product p WHERE p.id > ?1 ORDER BY p.id")
+    List<Object[]> findSearchDocumentsAfter(Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id, p.name, p.description, p.price, p.category.id FROM Product p WHERE p.id = ?1")
+    List<Object[]> findSearchDocument(Long id);
+    
+    // Keyset pages: the Pageable only carries the LIMIT, ordering is fixed by each query
+    
+    @Query(PRODUCT_ROW_SELECT + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductRow> findNewestPage(@Param("categoryId") Long categoryId,
+                                    @Param("subCategoryId") Long subCategoryId,
+                                    Pageable pageable);
+    
+    @Query(PRODUCT_ROW_SELECT + "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductRow> findNewestPageAfter(@Param("categoryId") Long categoryId,
+                                         @Param("subCategoryId") Long subCategoryId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("id") Long id,
+                                         Pageable pageable);
+    
+    // Products without created_at come first in descending order (NULLs first in PostgreSQL), so
+    // after an undated product come the undated ones with a lower id and every dated one
+    @Query(PRODUCT_ROW_SELECT + "AND (p.createdAt IS NOT NULL OR p.id < :id) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductRow> findNewestPageAfterUndated(@Param("categoryId") Long categoryId,
+                                                @Param("subCategoryId") Long subCategoryId,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+    
+    @Query(PRODUCT_ROW_SELECT + "ORDER BY p.price ASC, p.id ASC")
+    List<ProductRow> findPriceAscPage(@Param("categoryId") Long categoryId,
+                                      @Param("subCategoryId") Long subCategoryId,
+                                      Pageable pageable);
+    
+    @Query(PRODUCT_ROW_SELECT + "AND (p.price > :price OR (p.price = :price AND p.id > :id)) " +
+            "ORDER BY p.price ASC, p.id ASC")
+    List<ProductRow> findPriceAscPageAfter(@Param("categoryId") Long categoryId,
+                                           @Param("subCategoryId") Long subCategoryId,
+                                           @Param("price") BigDecimal price,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+    
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+}
@@ -1,12 +1,19 @@
 package com.smartshop.api.repositories;
 
 import com.smartshop.api.models.SubCategory;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
 public interface SubCategoryRepository extends JpaRepository<SubCategory, Long> {
+    // The category is EAGER; without the join it is loaded by one extra query per category
+    @Override
+    @EntityGraph(attributePaths = "category")
+    List<SubCategory> findAll();
+
+    @EntityGraph(attributePaths = "category")
     List<SubCategory> findByCategoryId(Long categoryId);
     boolean existsByNameAndCategoryId(String name, Long categoryId);
 } 
\ No newline at end of file
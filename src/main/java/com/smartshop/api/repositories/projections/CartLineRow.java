@@ -0,0 +1,12 @@
+package com.smartshop.api.repositories.projections;
+
+/**
+ * A persisted cart line, without the user and product entities.
+ */
+public interface CartLineRow {
+    Long getId();
+
+    Long getProductId();
+
+    Integer getQuantity();
+}
@@ -0,0 +1,10 @@
+package com.smartshop.api.repositories.projections;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+public interface DailyRevenue {
+    Date getDay();
+
+    BigDecimal getRevenue();
+}
@@ -0,0 +1,23 @@
+package com.smartshop.api.repositories.projections;
+
+import com.smartshop.api.models.StorageBackend;
+
+import java.time.LocalDateTime;
+
+public interface FileMetadata {
+    Long getId();
+
+    String getName();
+
+    String getType();
+
+    String getFilePath();
+
+    Long getSize();
+
+    LocalDateTime getCreatedAt();
+
+    String getContentHash();
+
+    StorageBackend getStorage();
+}
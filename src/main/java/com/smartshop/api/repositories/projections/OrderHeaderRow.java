@@ -0,0 +1,58 @@
+package com.smartshop.api.repositories.projections;
+
+import com.smartshop.api.models.OrderStatus;
+import com.smartshop.api.models.PaymentMethod;
+import com.smartshop.api.models.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order listing row with both addresses joined in the same query. Items are loaded separately
+ * as {@link OrderItemRow}s for a whole page of orders at once.
+ */
+public interface OrderHeaderRow {
+    Long getId();
+
+    String getOrderNumber();
+
+    OrderStatus getStatus();
+
+    PaymentStatus getPaymentStatus();
+
+    PaymentMethod getPaymentMethod();
+
+    BigDecimal getTax();
+
+    BigDecimal getShippingCost();
+
+    BigDecimal getDiscount();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getDeliveredAt();
+
+    String getShippingAddressLine1();
+
+    String getShippingAddressLine2();
+
+    String getShippingCity();
+
+    String getShippingState();
+
+    String getShippingPostalCode();
+
+    String getShippingCountry();
+
+    String getDeliveryAddressLine1();
+
+    String getDeliveryAddressLine2();
+
+    String getDeliveryCity();
+
+    String getDeliveryState();
+
+    String getDeliveryPostalCode();
+
+    String getDeliveryCountry();
+}
@@ -0,0 +1,26 @@
+package com.smartshop.api.repositories.projections;
+
+import java.math.BigDecimal;
+
+/**
+ * Order line with the product columns an order listing shows.
+ */
+public interface OrderItemRow {
+    Long getOrderId();
+
+    Long getId();
+
+    Integer getQuantity();
+
+    BigDecimal getDiscountedPrice();
+
+    Long getProductId();
+
+    String getProductName();
+
+    String getProductImageUrl();
+
+    BigDecimal getProductPrice();
+
+    BigDecimal getProductDiscountedPrice();
+}
@@ -0,0 +1,20 @@
+package com.smartshop.api.repositories.projections;
+
+import com.smartshop.api.models.OrderStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * One row per order status. The user and product totals are table-wide and repeated on every row.
+ */
+public interface OrderStatusSummary {
+    OrderStatus getStatus();
+
+    Long getOrderCount();
+
+    BigDecimal getTotalAmount();
+
+    Long getTotalUsers();
+
+    Long getTotalProductsSold();
+}
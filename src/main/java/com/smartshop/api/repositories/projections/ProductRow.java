@@ -0,0 +1,41 @@
+package com.smartshop.api.repositories.projections;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat product listing row with its category and subcategory columns joined in the same query.
+ */
+public interface ProductRow {
+    Long getId();
+
+    String getName();
+
+    String getDescription();
+
+    BigDecimal getPrice();
+
+    BigDecimal getDiscountedPrice();
+
+    Integer getStockQuantity();
+
+    Integer getDiscountPercentage();
+
+    String getImageUrl();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    Long getCategoryId();
+
+    String getCategoryName();
+
+    String getCategoryImageUrl();
+
+    Long getSubCategoryId();
+
+    String getSubCategoryName();
+
+    String getSubCategoryImageUrl();
+}
@@ -4,6 +4,7 @@ import com.smartshop.api.security.jwt.AuthEntryPointJwt;
 import com.smartshop.api.security.jwt.AuthTokenFilter;
 import com.smartshop.api.security.services.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -17,6 +18,8 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import javax.servlet.http.HttpServletRequest;
+
 @Configuration
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
@@ -27,6 +30,10 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
 
+    // Internal port for actuator endpoints (management.server.port), -1 when they share the app port
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
@@ -64,12 +71,19 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .antMatchers("/products/**").permitAll()
                 .antMatchers("/api/files/**").permitAll()
                 .antMatchers("/files/**").permitAll()
-                .antMatchers("/api/debug/**").permitAll()
-                .antMatchers("/debug/**").permitAll()
+                // Configuration and cache statistics
+                .antMatchers("/api/debug/**").hasRole("ADMIN")
+                .antMatchers("/debug/**").hasRole("ADMIN")
                 .antMatchers("/h2-console/**").permitAll()
                 .antMatchers("/api-docs/**").permitAll()
                 .antMatchers("/swagger-ui.html").permitAll()
                 .antMatchers("/swagger-ui/**").permitAll()
+                .antMatchers("/actuator/health").permitAll()
+                // Prometheus scrapes without a token on the internal management port only
+                .requestMatchers(this::isScrapeOnManagementPort).permitAll()
+                .antMatchers("/actuator/prometheus", "/actuator/metrics", "/actuator/metrics/**").hasRole("ADMIN")
+                // Runtime log level changes
+                .antMatchers("/actuator/loggers/**").hasRole("ADMIN")
                 .anyRequest().authenticated();
 
         // Fix H2 console
@@ -77,4 +91,9 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
     }
+
+    private boolean isScrapeOnManagementPort(HttpServletRequest request) {
+        return managementPort > 0 && request.getLocalPort() == managementPort
+                && "/actuator/prometheus".equals(request.getServletPath());
+    }
 } 
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.smartshop.api.security.jwt;
 
-import com.smartshop.api.security.services.UserDetailsServiceImpl;
+import com.smartshop.api.security.services.TokenVersionService;
+import com.smartshop.api.security.services.UserDetailsCache;
+import com.smartshop.api.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,7 +25,10 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
@@ -31,10 +37,20 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String email = jwtUtils.getEmailFromJwtToken(jwt);
+            Claims claims = jwt != null ? jwtUtils.parseValidClaims(jwt) : null;
+            UserDetails userDetails = null;
+            if (claims != null && jwtUtils.isSelfContained(claims)) {
+                UserDetailsImpl principal = jwtUtils.getUserDetailsFromClaims(claims);
+                if (tokenVersionService.isCurrent(principal.getId(), principal.getTokenVersion())) {
+                    userDetails = principal;
+                } else {
+                    logger.warn("Rejected revoked token for user {}", principal.getId());
+                }
+            } else if (claims != null) {
+                userDetails = userDetailsCache.loadUserBySubject(claims.getSubject());
+            }
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(email);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -1,6 +1,7 @@
 package com.smartshop.api.security.jwt;
 
 import com.smartshop.api.security.services.UserDetailsImpl;
+import org.springframework.security.core.GrantedAuthority;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
@@ -14,6 +15,8 @@ import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtUtils {
@@ -22,10 +25,22 @@ public class JwtUtils {
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLES = "roles";
+    private static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${jwt.expiration.ms}")
     private int jwtExpirationMs;
+
+    // When enabled, tokens carry the user id, roles and token version so requests can be
+    // authorized without loading the user
+    @Value("${jwt.claims.self-contained:false}")
+    private boolean selfContained;
     
     private SecretKey signingKey;
+
+    // Thread-safe once built, so one instance is shared by all requests
+    private JwtParser jwtParser;
     
     @PostConstruct
     public void init() {
@@ -42,35 +57,66 @@ public class JwtUtils {
         
         // Create the signing key that will be used for all operations
         signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     public String generateJwtToken(Authentication authentication) {
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
         
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject((userPrincipal.getEmail()))
                 .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(signingKey, SignatureAlgorithm.HS512)
-                .compact();
+                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs));
+
+        if (selfContained) {
+            List<String> roles = userPrincipal.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .collect(Collectors.toList());
+            builder.claim(CLAIM_USER_ID, userPrincipal.getId())
+                    .claim(CLAIM_ROLES, roles)
+                    .claim(CLAIM_TOKEN_VERSION, userPrincipal.getTokenVersion());
+        }
+
+        return builder.signWith(signingKey, SignatureAlgorithm.HS512).compact();
+    }
+
+    /**
+     * True for tokens issued in self-contained mode while that mode is still enabled. Older
+     * tokens, and all tokens once the mode is switched off, are resolved from the database.
+     */
+    public boolean isSelfContained(Claims claims) {
+        return selfContained && claims.get(CLAIM_USER_ID) != null && claims.get(CLAIM_TOKEN_VERSION) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+        Long userId = ((Number) claims.get(CLAIM_USER_ID)).longValue();
+        List<String> roles = claims.get(CLAIM_ROLES, List.class);
+        return UserDetailsImpl.fromClaims(userId, claims.getSubject(), roles, getTokenVersion(claims));
+    }
+
+    private int getTokenVersion(Claims claims) {
+        return ((Number) claims.get(CLAIM_TOKEN_VERSION)).intValue();
     }
 
     public String getEmailFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token)
+        return jwtParser.parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
 
     public boolean validateJwtToken(String authToken) {
+        return parseValidClaims(authToken) != null;
+    }
+
+    /**
+     * Verifies the token once and returns its claims, or null if it is not valid.
+     */
+    public Claims parseValidClaims(String authToken) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(signingKey)
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseClaimsJws(authToken).getBody();
         } catch (SecurityException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -83,6 +129,6 @@ public class JwtUtils {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
 
-        return false;
+        return null;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.smartshop.api.security.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartshop.api.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * Revocation list for self-contained tokens. Every such token carries the user's token version
+ * at issue time; bumping the version invalidates all of them at once.
+ *
+ * Current versions are cached in memory, so checking a token normally costs no database call.
+ * Revocations made on this instance take effect immediately; those made on another instance are
+ * picked up within security.token-version.cache-ttl-seconds.
+ */
+@Service
+public class TokenVersionService {
+
+    @Value("${security.token-version.cache-ttl-seconds:60}")
+    private long cacheTtlSeconds;
+
+    @Value("${security.token-version.max-entries:100000}")
+    private long maxEntries;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Cache<Long, Integer> versions;
+
+    @PostConstruct
+    public void init() {
+        versions = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        // A deleted user gets a version no token can carry
+        Integer current = versions.get(userId, id -> userRepository.findTokenVersionById(id).orElse(-1));
+        return current != null && current == tokenVersion;
+    }
+
+    public void revokeAll(Long userId) {
+        userRepository.incrementTokenVersion(userId);
+        versions.invalidate(userId);
+    }
+}
@@ -0,0 +1,60 @@
+package com.smartshop.api.security.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartshop.api.events.UserChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * Short-lived cache of authentication principals keyed by JWT subject (the user's email), so
+ * AuthTokenFilter does not load the user and their roles on every request.
+ *
+ * Entries are dropped once a change to the user commits, and expire after
+ * security.user-cache.ttl-seconds in any case. Login still goes through UserDetailsServiceImpl
+ * directly, so a password check never sees a cached hash.
+ */
+@Component
+public class UserDetailsCache {
+
+    @Value("${security.user-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${security.user-cache.max-entries:10000}")
+    private long maxEntries;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    private Cache<String, UserDetailsImpl> principals;
+
+    @PostConstruct
+    public void init() {
+        principals = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public UserDetailsImpl loadUserBySubject(String subject) {
+        if (!enabled) {
+            return (UserDetailsImpl) userDetailsService.loadUserByUsername(subject);
+        }
+        return principals.get(subject, email -> (UserDetailsImpl) userDetailsService.loadUserByUsername(email));
+    }
+
+    // Matched by id rather than email, since the change may have been to the email itself
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        principals.asMap().values().removeIf(principal -> principal.getId().equals(event.getUserId()));
+    }
+}
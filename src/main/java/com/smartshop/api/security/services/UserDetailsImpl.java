@@ -25,6 +25,8 @@ public class UserDetailsImpl implements UserDetails {
 
     private Collection<? extends GrantedAuthority> authorities;
 
+    private int tokenVersion;
+
     public UserDetailsImpl(Long id, String name, String email, String password, String phone, String profileImage,
                            Collection<? extends GrantedAuthority> authorities) {
         this.id = id;
@@ -41,7 +43,7 @@ public class UserDetailsImpl implements UserDetails {
                 .map(role -> new SimpleGrantedAuthority(role.getName().name()))
                 .collect(Collectors.toList());
 
-        return new UserDetailsImpl(
+        UserDetailsImpl userDetails = new UserDetailsImpl(
                 user.getId(),
                 user.getName(),
                 user.getEmail(),
@@ -49,6 +51,22 @@ public class UserDetailsImpl implements UserDetails {
                 user.getPhone(),
                 user.getProfileImage(),
                 authorities);
+        userDetails.tokenVersion = user.getTokenVersion();
+        return userDetails;
+    }
+
+    /**
+     * Builds a principal from the signed claims of a self-contained token. Only the id, email and
+     * roles are known; profile fields and the password are left empty.
+     */
+    public static UserDetailsImpl fromClaims(Long id, String email, List<String> roles, int tokenVersion) {
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+
+        UserDetailsImpl userDetails = new UserDetailsImpl(id, null, email, null, null, null, authorities);
+        userDetails.tokenVersion = tokenVersion;
+        return userDetails;
     }
 
     @Override
@@ -76,6 +94,10 @@ public class UserDetailsImpl implements UserDetails {
         return profileImage;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
     @Override
     public String getPassword() {
         return password;
@@ -0,0 +1,90 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.User;
+import com.smartshop.api.payload.request.AddressUpdateRequest;
+import com.smartshop.api.payload.response.UserProfileResponse;
+import com.smartshop.api.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Profile reads and address changes of the signed-in user, returned as response objects.
+ */
+@Service
+public class AccountService {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Transactional(readOnly = true)
+    public UserProfileResponse getProfile(String email) {
+        // Use eager fetching with join to load roles
+        User user = userRepository.findByEmailWithRoles(email)
+                .orElseThrow(() -> new EntityNotFoundException("User not found"));
+
+        UserProfileResponse profile = new UserProfileResponse();
+        profile.setId(user.getId());
+        profile.setName(user.getName());
+        profile.setEmail(user.getEmail());
+        profile.setPhone(user.getPhone());
+        profile.setImageRelativePath(user.getProfileImage());
+
+        // Handle profile image URL
+        if (user.getProfileImage() != null && !user.getProfileImage().isEmpty()) {
+            profile.setImageUrl(fileStorageService.getFileUrl(user.getProfileImage()));
+        }
+
+        profile.setAddressLine1(user.getAddressLine1());
+        profile.setAddressLine2(user.getAddressLine2());
+        profile.setCity(user.getCity());
+        profile.setState(user.getState());
+        profile.setPostalCode(user.getPostalCode());
+        profile.setCountry(user.getCountry());
+        profile.setCreatedAt(user.getCreatedAt());
+        profile.setUpdatedAt(user.getUpdatedAt());
+
+        Set<String> roleStrings = user.getRoles().stream()
+                .map(role -> role.getName().name())
+                .collect(Collectors.toSet());
+        profile.setRoles(roleStrings);
+        return profile;
+    }
+
+    /**
+     * Replaces the user's address.
+     *
+     * @return the stored address fields
+     */
+    @Transactional
+    public Map<String, Object> updateAddress(Long userId, AddressUpdateRequest addressRequest) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new EntityNotFoundException("User not found"));
+
+        user.setAddressLine1(addressRequest.getAddressLine1());
+        user.setAddressLine2(addressRequest.getAddressLine2());
+        user.setCity(addressRequest.getCity());
+        user.setState(addressRequest.getState());
+        user.setPostalCode(addressRequest.getPostalCode());
+        user.setCountry(addressRequest.getCountry());
+        userRepository.save(user);
+
+        Map<String, Object> address = new HashMap<>();
+        address.put("addressLine1", user.getAddressLine1());
+        address.put("addressLine2", user.getAddressLine2());
+        address.put("city", user.getCity());
+        address.put("state", user.getState());
+        address.put("postalCode", user.getPostalCode());
+        address.put("country", user.getCountry());
+        return address;
+    }
+}
@@ -0,0 +1,568 @@
+package com.smartshop.api.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartshop.api.events.CatalogChangedEvent;
+import com.smartshop.api.exception.InsufficientStockException;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.payload.response.CartItemDTO;
+import com.smartshop.api.payload.response.CartResponse;
+import com.smartshop.api.repositories.CartItemRepository;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.repositories.projections.CartLineRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityNotFoundException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Shopping carts held in memory, with write-behind persistence to cart_items.
+ *
+ * Active carts live in a bounded cache keyed by user id, and the products they show come from a
+ * short-lived product snapshot cache, so reading a cart normally costs no query. Mutations only
+ * change the in-memory cart and mark it dirty. Every cart.store.flush-interval-ms the changes of
+ * all dirty carts are written with one JDBC batch per statement type, so repeated edits of the
+ * same line collapse into one write. Checkout goes through {@link #checkout}, which flushes first.
+ *
+ * New lines get their id from the cart_items sequence up front (in blocks), so clients see
+ * stable ids before the line is written. A dirty cart stays reachable through the dirty map even
+ * if the cache evicts it, so no change is lost to eviction; changes not yet flushed are lost if
+ * the process dies. A cart whose flush fails stays dirty and is retried with exponential backoff,
+ * unless the database rejected its data (SQLState class 22 or 23, e.g. a foreign key violation for
+ * a product deleted meanwhile); only then are its changes dropped and the cart reloaded. Carts are per instance: deployments with several instances need sticky
+ * sessions for the cart endpoints.
+ */
+@Service
+public class CartService {
+    private static final Logger logger = LoggerFactory.getLogger(CartService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cart_items (id, user_id, product_id, quantity, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL =
+            "UPDATE cart_items SET product_id = ?, quantity = ?, updated_at = ? WHERE id = ?";
+    private static final String DELETE_SQL =
+            "DELETE FROM cart_items WHERE id = ?";
+    private static final String ALLOCATE_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('cart_items', 'id')) FROM generate_series(1, ?)";
+
+    @Value("${cart.store.max-carts:10000}")
+    private long maxCarts;
+
+    @Value("${cart.store.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${cart.store.max-products:10000}")
+    private long maxProducts;
+
+    @Value("${cart.store.product-ttl-seconds:60}")
+    private long productTtlSeconds;
+
+    @Value("${cart.store.id-block-size:50}")
+    private int idBlockSize;
+
+    @Value("${cart.store.retry-backoff-initial-ms:1000}")
+    private long retryBackoffInitialMs;
+
+    @Value("${cart.store.retry-backoff-max-ms:60000}")
+    private long retryBackoffMaxMs;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Cache<Long, Cart> carts;
+    private Cache<Long, ProductSnapshot> products;
+    private final Map<Long, Cart> dirtyCarts = new ConcurrentHashMap<>();
+    private final Deque<Long> allocatedIds = new ArrayDeque<>();
+
+    @PostConstruct
+    public void init() {
+        carts = Caffeine.newBuilder()
+                .maximumSize(maxCarts)
+                .expireAfterAccess(Duration.ofMinutes(idleMinutes))
+                .build();
+        products = Caffeine.newBuilder()
+                .maximumSize(maxProducts)
+                .expireAfterWrite(Duration.ofSeconds(productTtlSeconds))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // One last attempt for every cart, including those waiting out a backoff
+        flushDirty(true);
+    }
+
+    public CartResponse getCart(Long userId) {
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            return render(cart);
+        }
+    }
+
+    public CartResponse addItem(Long userId, Long productId, int quantity) {
+        requirePositive(quantity);
+        ProductSnapshot product = product(productId);
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            Line line = cart.findByProduct(productId);
+            int newQuantity = line != null ? line.quantity + quantity : quantity;
+            // Best effort; stock is reserved atomically only when the order is placed
+            if (product.stockQuantity < newQuantity) {
+                throw new InsufficientStockException(product.id, product.name);
+            }
+
+            if (line != null) {
+                line.change(productId, newQuantity);
+            } else {
+                line = new Line(nextId(), productId, quantity, false);
+                cart.lines.put(line.id, line);
+            }
+            markDirty(cart);
+            return render(cart);
+        }
+    }
+
+    public CartResponse updateItem(Long userId, Long itemId, Long productId, int quantity) {
+        requirePositive(quantity);
+        ProductSnapshot product = product(productId);
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            Line line = cart.lines.get(itemId);
+            if (line == null) {
+                throw new EntityNotFoundException("Cart item not found with id: " + itemId);
+            }
+            if (product.stockQuantity < quantity) {
+                throw new InsufficientStockException(product.id, product.name);
+            }
+
+            line.change(productId, quantity);
+            markDirty(cart);
+            return render(cart);
+        }
+    }
+
+    public CartResponse removeItem(Long userId, Long itemId) {
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            Line line = cart.lines.remove(itemId);
+            if (line == null) {
+                throw new EntityNotFoundException("Cart item not found with id: " + itemId);
+            }
+            if (line.persisted) {
+                cart.deletedIds.add(line.id);
+            }
+            markDirty(cart);
+            return render(cart);
+        }
+    }
+
+    public void clear(Long userId) {
+        Cart cart = cart(userId);
+        synchronized (cart) {
+            for (Line line : cart.lines.values()) {
+                if (line.persisted) {
+                    cart.deletedIds.add(line.id);
+                }
+            }
+            cart.lines.clear();
+            markDirty(cart);
+        }
+    }
+
+    /**
+     * Writes any pending changes of this user's cart now, so that cart_items is current.
+     */
+    public void flush(Long userId) {
+        Cart cart = dirtyCarts.get(userId);
+        if (cart == null) {
+            return;
+        }
+        cart.writeLock.lock();
+        try {
+            write(List.of(cart));
+        } finally {
+            cart.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the user's cart and runs the order placement while holding the cart, so no edit
+     * can slip in between. The placement is expected to delete the cart_items rows; afterwards
+     * the in-memory cart is emptied to match.
+     */
+    public <T> T checkout(Long userId, Supplier<T> placeOrder) {
+        Cart cart = cart(userId);
+        cart.writeLock.lock();
+        try {
+            synchronized (cart) {
+                if (cart.hasChanges()) {
+                    write(List.of(cart));
+                }
+                T result = placeOrder.get();
+                cart.lines.clear();
+                cart.deletedIds.clear();
+                dirtyCarts.remove(userId, cart);
+                return result;
+            }
+        } finally {
+            cart.writeLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:2000}")
+    public void flushDirty() {
+        flushDirty(false);
+    }
+
+    private void flushDirty(boolean ignoreBackoff) {
+        if (dirtyCarts.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // Carts being flushed or checked out by a request thread wait for the next round
+        List<Cart> pending = new ArrayList<>();
+        for (Cart cart : dirtyCarts.values()) {
+            if ((ignoreBackoff || cart.retryAt <= now) && cart.writeLock.tryLock()) {
+                pending.add(cart);
+            }
+        }
+        try {
+            write(pending);
+        } catch (Exception e) {
+            // Retry cart by cart so one bad cart cannot hold back the others
+            logger.warn("Batched cart flush failed, retrying {} carts individually: {}", pending.size(), e.getMessage());
+            for (Cart cart : pending) {
+                try {
+                    write(List.of(cart));
+                } catch (Exception cartFailure) {
+                    if (isRejectedData(cartFailure)) {
+                        discard(cart, cartFailure);
+                    } else {
+                        postpone(cart, cartFailure);
+                    }
+                }
+            }
+        } finally {
+            for (Cart cart : pending) {
+                cart.writeLock.unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.getType() == CatalogChangedEvent.Type.PRODUCT) {
+            products.invalidate(event.getId());
+        }
+    }
+
+    private Cart cart(Long userId) {
+        return carts.get(userId, id -> {
+            // An evicted cart with unwritten changes is still the current one
+            Cart pending = dirtyCarts.get(id);
+            return pending != null ? pending : load(id);
+        });
+    }
+
+    private Cart load(Long userId) {
+        Cart cart = new Cart(userId);
+        for (CartLineRow row : cartItemRepository.findLinesByUserId(userId)) {
+            cart.lines.put(row.getId(), new Line(row.getId(), row.getProductId(), row.getQuantity(), true));
+        }
+        return cart;
+    }
+
+    private ProductSnapshot product(Long productId) {
+        ProductSnapshot product = products.getIfPresent(productId);
+        if (product != null) {
+            return product;
+        }
+        return productRepository.findById(productId)
+                .map(this::remember)
+                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + productId));
+    }
+
+    private ProductSnapshot remember(Product product) {
+        ProductSnapshot snapshot = new ProductSnapshot(product);
+        products.put(snapshot.id, snapshot);
+        return snapshot;
+    }
+
+    private CartResponse render(Cart cart) {
+        Set<Long> missing = new HashSet<>();
+        for (Line line : cart.lines.values()) {
+            if (products.getIfPresent(line.productId) == null) {
+                missing.add(line.productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            productRepository.findAllById(missing).forEach(this::remember);
+        }
+
+        List<CartItemDTO> items = new ArrayList<>(cart.lines.size());
+        for (Line line : cart.lines.values()) {
+            ProductSnapshot product = products.getIfPresent(line.productId);
+            if (product == null) {
+                // The product no longer exists
+                continue;
+            }
+            String imageUrl = null;
+            if (product.imageUrl != null && !product.imageUrl.isEmpty()) {
+                imageUrl = product.imageUrl.startsWith("http") ? product.imageUrl : fileStorageService.getFileUrl(product.imageUrl);
+            }
+            items.add(new CartItemDTO(line.id, product.id, product.name, product.imageUrl, imageUrl,
+                    product.price, product.discountedPrice, line.quantity,
+                    CartResponse.lineTotal(product.price, product.discountedPrice, line.quantity)));
+        }
+        return new CartResponse(items);
+    }
+
+    private void markDirty(Cart cart) {
+        dirtyCarts.put(cart.userId, cart);
+    }
+
+    // Callers hold the write lock of every cart, so the same change is never written twice
+    private void write(Collection<Cart> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        Map<Cart, Snapshot> written = new HashMap<>();
+
+        for (Cart cart : pending) {
+            synchronized (cart) {
+                Snapshot snapshot = new Snapshot();
+                for (Line line : cart.lines.values()) {
+                    if (!line.dirty) {
+                        continue;
+                    }
+                    if (line.persisted) {
+                        updates.add(new Object[]{line.productId, line.quantity, now, line.id});
+                    } else {
+                        inserts.add(new Object[]{line.id, cart.userId, line.productId, line.quantity, now, now});
+                    }
+                    snapshot.lineVersions.put(line.id, line.version);
+                }
+                for (Long id : cart.deletedIds) {
+                    deletes.add(new Object[]{id});
+                    snapshot.deletedIds.add(id);
+                }
+                written.put(cart, snapshot);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            }
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            }
+        });
+
+        for (Map.Entry<Cart, Snapshot> entry : written.entrySet()) {
+            Cart cart = entry.getKey();
+            synchronized (cart) {
+                for (Map.Entry<Long, Integer> version : entry.getValue().lineVersions.entrySet()) {
+                    Line line = cart.lines.get(version.getKey());
+                    if (line != null) {
+                        line.persisted = true;
+                        // Changed again while we were writing: keep it dirty for the next flush
+                        line.dirty = line.version != version.getValue();
+                    } else {
+                        // Removed while we were writing, after its insert went out
+                        cart.deletedIds.add(version.getKey());
+                    }
+                }
+                cart.deletedIds.removeAll(entry.getValue().deletedIds);
+                cart.failedFlushes = 0;
+                cart.retryAt = 0;
+                if (!cart.hasChanges()) {
+                    dirtyCarts.remove(cart.userId, cart);
+                }
+            }
+        }
+    }
+
+    // Drops the unwritable in-memory state (e.g. a product or user deleted meanwhile) and reloads
+    private void discard(Cart cart, Exception cause) {
+        logger.error("Discarding unsaved cart changes for user {}: {}", cart.userId, cause.getMessage());
+        dirtyCarts.remove(cart.userId, cart);
+        carts.invalidate(cart.userId);
+    }
+
+    // Keeps the cart dirty and skips it in the flush rounds until the backoff has passed
+    private void postpone(Cart cart, Exception cause) {
+        int attempt = ++cart.failedFlushes;
+        long backoff = Math.min(retryBackoffMaxMs, retryBackoffInitialMs << Math.min(attempt - 1, 20));
+        cart.retryAt = System.currentTimeMillis() + backoff;
+        logger.warn("Cart flush for user {} failed (attempt {}), retrying in {} ms: {}",
+                cart.userId, attempt, backoff, cause.getMessage());
+    }
+
+    /**
+     * True when the database rejected the data itself: SQLState class 22 (data exception) or 23
+     * (integrity constraint violation, e.g. 23503 for a deleted product). Writing the same
+     * changes again would fail the same way. Anything else (lost connections, timeouts,
+     * serialization failures) may succeed on a later attempt.
+     */
+    static boolean isRejectedData(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                // A batch failure carries the state of the failing statement in its chain
+                for (SQLException e = (SQLException) cause; e != null; e = e.getNextException()) {
+                    String state = e.getSQLState();
+                    if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private synchronized Long nextId() {
+        if (allocatedIds.isEmpty()) {
+            allocatedIds.addAll(jdbcTemplate.queryForList(ALLOCATE_IDS_SQL, Long.class, idBlockSize));
+        }
+        return allocatedIds.pollFirst();
+    }
+
+    private static void requirePositive(int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be greater than 0");
+        }
+    }
+
+    private static class Cart {
+        private final Long userId;
+        // Held while the cart's changes are being written
+        private final ReentrantLock writeLock = new ReentrantLock();
+        // Keyed by cart item id, in the order the lines were added
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+        // Persisted lines removed from the cart but not yet deleted from cart_items
+        private final Set<Long> deletedIds = new HashSet<>();
+        // Consecutive failed flushes, and the earliest time the next one is attempted
+        private int failedFlushes;
+        private volatile long retryAt;
+
+        Cart(Long userId) {
+            this.userId = userId;
+        }
+
+        Line findByProduct(Long productId) {
+            for (Line line : lines.values()) {
+                if (line.productId.equals(productId)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        boolean hasChanges() {
+            if (!deletedIds.isEmpty()) {
+                return true;
+            }
+            for (Line line : lines.values()) {
+                if (line.dirty) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Line {
+        private final Long id;
+        private Long productId;
+        private int quantity;
+        private boolean persisted;
+        private boolean dirty;
+        private int version;
+
+        Line(Long id, Long productId, int quantity, boolean persisted) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.persisted = persisted;
+            this.dirty = !persisted;
+        }
+
+        void change(Long productId, int quantity) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.dirty = true;
+            this.version++;
+        }
+    }
+
+    // What one flush wrote for a cart, to clear exactly those changes afterwards
+    private static class Snapshot {
+        private final Map<Long, Integer> lineVersions = new HashMap<>();
+        private final Set<Long> deletedIds = new HashSet<>();
+    }
+
+    private static class ProductSnapshot {
+        private final Long id;
+        private final String name;
+        private final String imageUrl;
+        private final BigDecimal price;
+        private final BigDecimal discountedPrice;
+        private final int stockQuantity;
+
+        ProductSnapshot(Product product) {
+            this.id = product.getId();
+            this.name = product.getName();
+            this.imageUrl = product.getImageUrl();
+            this.price = product.getPrice();
+            this.discountedPrice = product.getDiscountedPrice();
+            this.stockQuantity = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        }
+    }
+}
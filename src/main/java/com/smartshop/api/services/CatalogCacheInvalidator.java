@@ -0,0 +1,93 @@
+package com.smartshop.api.services;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.smartshop.api.config.CacheConfig;
+import com.smartshop.api.config.ReadYourWrites;
+import com.smartshop.api.events.CatalogChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Evicts cached catalog reads when the catalog changes and reports cache statistics.
+ *
+ * Eviction runs after the surrounding transaction commits (or immediately when the publisher has
+ * no transaction), so a concurrent read cannot repopulate the cache with uncommitted state.
+ * Whole caches are cleared rather than single keys because the list entries embed the changed
+ * item, and catalog writes are rare admin operations. The change is recorded with ReadYourWrites
+ * before anything is evicted, so the fills that follow read the primary rather than a replica
+ * that may not have the change yet.
+ */
+@Component
+public class CatalogCacheInvalidator {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCacheInvalidator.class);
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        readYourWrites.recordWrite(ReadYourWrites.CATALOG);
+        switch (event.getType()) {
+            case PRODUCT:
+                clear(CacheConfig.PRODUCTS, CacheConfig.PRODUCT);
+                break;
+            case CATEGORY:
+                // Products and subcategories embed category names and images
+                clear(CacheConfig.CATEGORIES, CacheConfig.CATEGORY,
+                        CacheConfig.SUBCATEGORIES, CacheConfig.SUBCATEGORY, CacheConfig.SUBCATEGORIES_BY_CATEGORY,
+                        CacheConfig.PRODUCTS, CacheConfig.PRODUCT);
+                break;
+            case SUBCATEGORY:
+                clear(CacheConfig.SUBCATEGORIES, CacheConfig.SUBCATEGORY, CacheConfig.SUBCATEGORIES_BY_CATEGORY,
+                        CacheConfig.PRODUCTS, CacheConfig.PRODUCT);
+                break;
+            case OFFER:
+                clear(CacheConfig.OFFERS, CacheConfig.OFFER);
+                break;
+        }
+        logger.debug("Invalidated catalog caches after {} {} changed", event.getType(), event.getId());
+    }
+
+    public Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (!(cache instanceof CaffeineCache)) {
+                continue;
+            }
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+            CacheStats stats = nativeCache.stats();
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("size", nativeCache.estimatedSize());
+            entry.put("hits", stats.hitCount());
+            entry.put("misses", stats.missCount());
+            entry.put("hitRate", stats.hitRate());
+            entry.put("evictions", stats.evictionCount());
+            statistics.put(name, entry);
+        }
+        return statistics;
+    }
+
+    private void clear(String... cacheNames) {
+        for (String name : cacheNames) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+}
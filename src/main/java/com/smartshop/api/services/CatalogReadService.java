@@ -0,0 +1,129 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.config.CacheConfig;
+import com.smartshop.api.config.ReadYourWrites;
+import com.smartshop.api.payload.response.CategoryResponse;
+import com.smartshop.api.payload.response.OfferResponse;
+import com.smartshop.api.payload.response.ProductResponse;
+import com.smartshop.api.payload.response.SubCategoryResponse;
+import com.smartshop.api.repositories.CategoryRepository;
+import com.smartshop.api.repositories.OfferRepository;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.repositories.SubCategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache in front of the public catalog endpoints.
+ *
+ * Everything returned here is already mapped to response DTOs, so a cache hit needs neither a
+ * database connection nor an open persistence context, and callers cannot change a cached entry
+ * through a managed entity. Image URLs are made absolute with the configured app.url rather than
+ * the request's Host header, so one entry serves every client. Entries are evicted by
+ * CatalogCacheInvalidator when the catalog controllers publish a CatalogChangedEvent.
+ *
+ * Fills are read-only and normally read a replica. The first read after an eviction usually
+ * follows the change that caused it, and a replica that has not replayed the change yet would put
+ * the old data back in the cache until the entry expires, so within the read-your-writes window
+ * of a catalog change fills read the primary instead.
+ */
+@Service
+public class CatalogReadService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SubCategoryRepository subCategoryRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Value("${app.url}")
+    private String baseUrl;
+
+    @Cacheable(CacheConfig.PRODUCTS)
+    @Transactional(readOnly = true)
+    public List<ProductResponse> getAllProducts() {
+        return readYourWrites.read(ReadYourWrites.CATALOG, () -> productRepository.findAll().stream()
+                .map(product -> ProductResponse.fromProduct(product, baseUrl))
+                .collect(Collectors.toList()));
+    }
+
+    @Cacheable(CacheConfig.PRODUCT)
+    @Transactional(readOnly = true)
+    public ProductResponse getProduct(Long id) {
+        return readYourWrites.read(ReadYourWrites.CATALOG, () -> productRepository.findById(id)
+                .map(product -> ProductResponse.fromProduct(product, baseUrl))
+                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id)));
+    }
+
+    @Cacheable(CacheConfig.CATEGORIES)
+    @Transactional(readOnly = true)
+    public List<CategoryResponse> getAllCategories() {
+        return readYourWrites.read(ReadYourWrites.CATALOG, () -> categoryRepository.findAll().stream()
+                .map(category -> CategoryResponse.fromCategory(category, baseUrl))
+                .collect(Collectors.toList()));
+    }
+
+    @Cacheable(CacheConfig.CATEGORY)
+    @Transactional(readOnly = true)
+    public CategoryResponse getCategory(Long id) {
+        return readYourWrites.read(ReadYourWrites.CATALOG, () -> categoryRepository.findById(id)
+                .map(category -> CategoryResponse.fromCategory(category, baseUrl))
+                .orElseThrow(() -> new EntityNotFoundException("Category not found with id: " + id)));
+    }
+
+    @Cacheable(CacheConfig.SUBCATEGORIES)
+    @Transactional(readOnly = true)
+    public List<SubCategoryResponse> getAllSubCategories() {
+        return readYourWrites.read(ReadYourWrites.CATALOG, () -> subCategoryRepository.findAll().stream()
+                .map(subCategory -> SubCategoryResponse.fromSubCategory(subCategory, baseUrl))
+                .collect(Collectors.toList()));
+    }
+
+    @Cacheable(value = CacheConfig.SUBCATEGORY, unless = "#result == null")
+    @Transactional(readOnly = true)
+    public Optional<SubCategoryResponse> getSubCategory(Long id) {
+        return readYourWrites.read(ReadYourWrites.CATALOG, () -> subCategoryRepository.findById(id)
+                .map(subCategory -> SubCategoryResponse.fromSubCategory(subCategory, baseUrl)));
+    }
+
+    @Cacheable(CacheConfig.SUBCATEGORIES_BY_CATEGORY)
+    @Transactional(readOnly = true)
+    public List<SubCategoryResponse> getSubCategoriesByCategory(Long categoryId) {
+        return readYourWrites.read(ReadYourWrites.CATALOG, () -> subCategoryRepository.findByCategoryId(categoryId).stream()
+                .map(subCategory -> SubCategoryResponse.fromSubCategory(subCategory, baseUrl))
+                .collect(Collectors.toList()));
+    }
+
+    @Cacheable(CacheConfig.OFFERS)
+    @Transactional(readOnly = true)
+    public List<OfferResponse> getActiveOffers() {
+        return readYourWrites.read(ReadYourWrites.CATALOG, () -> offerRepository.findByActiveTrue().stream()
+                .map(OfferResponse::fromOffer)
+                .collect(Collectors.toList()));
+    }
+
+    @Cacheable(CacheConfig.OFFER)
+    @Transactional(readOnly = true)
+    public OfferResponse getOffer(Long id) {
+        return readYourWrites.read(ReadYourWrites.CATALOG, () -> offerRepository.findById(id)
+                .map(OfferResponse::fromOffer)
+                .orElseThrow(() -> new EntityNotFoundException("Offer not found with id: " + id)));
+    }
+}
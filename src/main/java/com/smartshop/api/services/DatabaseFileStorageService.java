@@ -41,7 +41,7 @@ public class DatabaseFileStorageService {
             );
 
             fileDataRepository.save(fileData);
-            logger.info("File saved to database: {}", filePath);
+            logger.debug("file.store storage=database path={}", filePath);
 
             return filePath;
         } catch (IOException e) {
@@ -51,13 +51,8 @@ public class DatabaseFileStorageService {
     }
 
     public FileData getFile(String filePath) {
-        logger.info("Retrieving file from database: {}", filePath);
         FileData fileData = fileDataRepository.findByFilePath(filePath).orElse(null);
-        if (fileData == null) {
-            logger.warn("File not found in database: {}", filePath);
-        } else {
-            logger.info("File found in database: {}", filePath);
-        }
+        logger.debug("file.get storage=database path={} found={}", filePath, fileData != null);
         return fileData;
     }
 
@@ -66,7 +61,7 @@ public class DatabaseFileStorageService {
             FileData fileData = fileDataRepository.findByFilePath(filePath).orElse(null);
             if (fileData != null) {
                 fileDataRepository.delete(fileData);
-                logger.info("File deleted from database: {}", filePath);
+                logger.debug("file.delete storage=database path={}", filePath);
                 return true;
             }
             return false;
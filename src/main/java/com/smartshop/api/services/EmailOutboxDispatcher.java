@@ -0,0 +1,220 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.EmailOutboxMessage;
+import com.smartshop.api.models.EmailOutboxStatus;
+import com.smartshop.api.repositories.EmailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers queued emails from the email_outbox table.
+ *
+ * Every tick leases a batch of due messages and hands them to a small worker pool in groups
+ * that are each sent over one SMTP connection. A failed message is retried with exponential
+ * backoff until it has used up email.outbox.max-attempts. The lease is just a later
+ * next_attempt_at, so messages held by a crashed worker or a rejected task are retried once
+ * it runs out; several instances can dispatch from the same table.
+ *
+ * Messages with an expires_at (password reset OTPs) are not sent or retried after it. Sent,
+ * failed and expired rows have their body blanked and are deleted after
+ * email.outbox.retention-days.
+ */
+@Service
+public class EmailOutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Value("${email.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${email.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${email.outbox.session-batch-size:20}")
+    private int sessionBatchSize;
+
+    @Value("${email.outbox.threads:2}")
+    private int threads;
+
+    @Value("${email.outbox.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Value("${email.outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${email.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.backoff-initial-seconds:30}")
+    private long backoffInitialSeconds;
+
+    @Value("${email.outbox.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    @Value("${email.outbox.retention-days:7}")
+    private long retentionDays;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "email-outbox-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public void dispatchDue() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int expired = emailOutboxRepository.expirePending(now);
+        if (expired > 0) {
+            logger.warn("Dropped {} queued emails that were not sent before they expired", expired);
+        }
+
+        List<Long> dueIds = emailOutboxRepository.findDueIds(EmailOutboxStatus.PENDING, now, PageRequest.of(0, batchSize));
+        if (dueIds.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+        List<Long> claimed = new ArrayList<>();
+        for (Long id : dueIds) {
+            if (emailOutboxRepository.claim(id, now, leaseUntil) == 1) {
+                claimed.add(id);
+            }
+        }
+
+        for (int from = 0; from < claimed.size(); from += sessionBatchSize) {
+            List<Long> group = claimed.subList(from, Math.min(from + sessionBatchSize, claimed.size()));
+            List<Long> ids = new ArrayList<>(group);
+            try {
+                executor.execute(() -> sendGroup(ids));
+            } catch (RejectedExecutionException e) {
+                // The lease runs out and a later tick picks these up again
+                logger.warn("Email outbox workers busy, deferring {} messages", ids.size());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.purge-interval-ms:3600000}")
+    public void purgeFinished() {
+        int deleted = emailOutboxRepository.deleteFinishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("Purged {} finished outbox emails", deleted);
+        }
+    }
+
+    private void sendGroup(List<Long> ids) {
+        List<EmailOutboxMessage> messages = emailOutboxRepository.findAllById(ids);
+        Map<MimeMessage, EmailOutboxMessage> byMime = new HashMap<>();
+        List<Long> sent = new ArrayList<>();
+
+        LocalDateTime now = LocalDateTime.now();
+        for (EmailOutboxMessage message : messages) {
+            if (message.getExpiresAt() != null && message.getExpiresAt().isBefore(now)) {
+                // Expired while leased; the next tick marks it EXPIRED
+                continue;
+            }
+            try {
+                byMime.put(emailService.toMimeMessage(message), message);
+            } catch (Exception e) {
+                recordFailure(message, e);
+            }
+        }
+        if (byMime.isEmpty()) {
+            return;
+        }
+
+        try {
+            // One call, one SMTP connection for the whole group
+            mailSender.send(byMime.keySet().toArray(new MimeMessage[0]));
+            byMime.values().forEach(message -> sent.add(message.getId()));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (Map.Entry<MimeMessage, EmailOutboxMessage> entry : byMime.entrySet()) {
+                Exception failure = failed.get(entry.getKey());
+                if (failure != null) {
+                    recordFailure(entry.getValue(), failure);
+                } else if (failed.isEmpty()) {
+                    // Connection-level failure: nothing was sent
+                    recordFailure(entry.getValue(), e);
+                } else {
+                    sent.add(entry.getValue().getId());
+                }
+            }
+        } catch (Exception e) {
+            byMime.values().forEach(message -> recordFailure(message, e));
+        }
+
+        if (!sent.isEmpty()) {
+            emailOutboxRepository.markSent(sent, LocalDateTime.now());
+            logger.info("Sent {} queued emails", sent.size());
+        }
+    }
+
+    private void recordFailure(EmailOutboxMessage message, Exception e) {
+        int attempt = message.getAttempts() + 1;
+        String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+
+        if (attempt >= maxAttempts) {
+            emailOutboxRepository.markGivenUp(message.getId(), error);
+            logger.error("Giving up on email {} to {} after {} attempts: {}", message.getId(), message.getRecipient(), attempt, error);
+            return;
+        }
+
+        long backoff = Math.min(backoffMaxSeconds, backoffInitialSeconds << Math.min(attempt - 1, 20));
+        emailOutboxRepository.markFailedAttempt(message.getId(), EmailOutboxStatus.PENDING,
+                LocalDateTime.now().plusSeconds(backoff), error);
+        logger.warn("Email {} to {} failed (attempt {}), retrying in {}s: {}",
+                message.getId(), message.getRecipient(), attempt, backoff, error);
+    }
+}
@@ -0,0 +1,195 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.repositories.projections.FileMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds streaming HTTP responses for stored files.
+ *
+ * Metadata (content type, size, content hash) comes from a single query that does not touch the
+ * blob. Conditional requests are answered from that metadata alone: a matching If-None-Match or
+ * an unchanged If-Modified-Since returns 304 without reading any file data. Otherwise the body is
+ * copied to the servlet output in chunks by FileStorageService, so neither the whole file nor a
+ * database connection is held for the duration of a slow download. Single byte ranges are
+ * answered with 206 Partial Content; multi-range requests get the full file.
+ *
+ * Small, frequently requested files are served from HotFileCache without touching the database.
+ *
+ * Stored paths embed a random UUID and are never rewritten, so responses are marked immutable.
+ * The exception is a rendition request answered with the original while the rendition does not
+ * exist yet: that response may only be cached for file.cache.fallback-max-age-seconds.
+ */
+@Service
+public class FileDownloadService {
+    private static final Logger logger = LoggerFactory.getLogger(FileDownloadService.class);
+
+    @Value("${file.cache.max-age-seconds:31536000}")
+    private long cacheMaxAgeSeconds;
+
+    @Value("${file.cache.fallback-max-age-seconds:60}")
+    private long fallbackMaxAgeSeconds;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
+    public ResponseEntity<StreamingResponseBody> serve(String filePath, String fileName, HttpHeaders requestHeaders) {
+        return serve(filePath, fileName, requestHeaders, null);
+    }
+
+    /**
+     * Serves the requested rendition of an image, or the original when that rendition does not
+     * exist (not an image, already smaller than the rendition, or still being generated).
+     */
+    public ResponseEntity<StreamingResponseBody> serve(String filePath, String fileName, HttpHeaders requestHeaders,
+                                                       ImageRendition rendition) {
+        if (rendition != null) {
+            String renditionPath = rendition.pathFor(filePath);
+            HotFileCache.Entry cached = hotFileCache.get(renditionPath);
+            if (cached != null) {
+                return respond(renditionPath, fileName, requestHeaders, cached, cached.getMetadata(), false);
+            }
+            Optional<FileMetadata> found = fileStorageService.findFileMetadata(renditionPath);
+            if (found.isPresent()) {
+                return respond(renditionPath, fileName, requestHeaders, null, found.get(), false);
+            }
+        }
+
+        // Standing in for a rendition that may still be generated
+        boolean fallback = rendition != null;
+        HotFileCache.Entry cached = hotFileCache.get(filePath);
+        if (cached != null) {
+            return respond(filePath, fileName, requestHeaders, cached, cached.getMetadata(), fallback);
+        }
+        Optional<FileMetadata> found = fileStorageService.findFileMetadata(filePath);
+        if (!found.isPresent()) {
+            logger.debug("file.get missing path={}", filePath);
+            return ResponseEntity.notFound().build();
+        }
+        return respond(filePath, fileName, requestHeaders, null, found.get(), fallback);
+    }
+
+    private ResponseEntity<StreamingResponseBody> respond(String filePath, String fileName, HttpHeaders requestHeaders,
+                                                          HotFileCache.Entry cached, FileMetadata file, boolean fallback) {
+        long size = file.getSize() != null ? file.getSize() : 0L;
+        String etag = etagFor(file, size);
+        long lastModified = file.getCreatedAt() != null
+                ? file.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / 1000 * 1000
+                : -1;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        if (lastModified > 0) {
+            headers.setLastModified(lastModified);
+        }
+        headers.setCacheControl(fallback
+                ? "public, max-age=" + fallbackMaxAgeSeconds
+                : "public, max-age=" + cacheMaxAgeSeconds + ", immutable");
+
+        if (isNotModified(requestHeaders, etag, lastModified)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        if (cached == null && hotFileCache.accepts(file)) {
+            try {
+                cached = hotFileCache.put(file, fileStorageService.readFile(file));
+            } catch (IOException e) {
+                logger.warn("Could not load {} into the hot file cache: {}", filePath, e.getMessage());
+            }
+        }
+
+        headers.setContentType(parseContentType(file.getType()));
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long end = size - 1;
+        HttpStatus status = HttpStatus.OK;
+
+        String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+        if (rangeHeader != null && !rangeHeader.isEmpty()) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(size);
+            }
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                start = range.getRangeStart(size);
+                end = range.getRangeEnd(size);
+                if (size == 0 || start >= size || start > end) {
+                    return rangeNotSatisfiable(size);
+                }
+                status = HttpStatus.PARTIAL_CONTENT;
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        long length = Math.max(0, end - start + 1);
+        headers.setContentLength(length);
+
+        final long from = start;
+        final HotFileCache.Entry entry = cached;
+        StreamingResponseBody body = entry != null
+                ? outputStream -> entry.copyRange(from, length, outputStream)
+                : outputStream -> fileStorageService.copyFileRange(file, from, length, outputStream);
+        return new ResponseEntity<>(body, headers, status);
+    }
+
+    private static String etagFor(FileMetadata file, long size) {
+        if (file.getContentHash() != null) {
+            return "\"" + file.getContentHash() + "\"";
+        }
+        // Rows stored before content hashes existed; path and content never change, so id and size are stable
+        return "\"" + file.getId() + "-" + size + "\"";
+    }
+
+    private static boolean isNotModified(HttpHeaders requestHeaders, String etag, long lastModified) {
+        // If-None-Match takes precedence over If-Modified-Since (RFC 7232, section 6)
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            for (String candidate : ifNoneMatch) {
+                String tag = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+                if ("*".equals(tag) || etag.equals(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        return lastModified > 0 && ifModifiedSince >= lastModified;
+    }
+
+    private static ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long size) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                .build();
+    }
+
+    private static MediaType parseContentType(String type) {
+        try {
+            return type != null ? MediaType.parseMediaType(type) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (Exception e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
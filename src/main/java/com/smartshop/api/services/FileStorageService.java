@@ -1,22 +1,35 @@
 package com.smartshop.api.services;
 
+import com.smartshop.api.config.ReadWriteRoutingDataSource;
+import com.smartshop.api.config.ReadYourWrites;
+import com.smartshop.api.events.FileReplacedEvent;
+import com.smartshop.api.events.FileStoredEvent;
 import com.smartshop.api.models.FileData;
+import com.smartshop.api.models.StorageBackend;
 import com.smartshop.api.repositories.FileDataRepository;
+import com.smartshop.api.repositories.projections.FileMetadata;
+import com.smartshop.api.services.storage.BlobStore;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -26,13 +39,42 @@ public class FileStorageService {
     @Value("${file.upload-dir}")
     private String uploadDir;
 
+    @Value("${file.blob.store:database}")
+    private String activeStoreName;
+
     @Autowired
     private FileDataRepository fileDataRepository;
 
+    @Autowired
+    private List<BlobStore> blobStores;
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    private final Map<StorageBackend, BlobStore> storesByBackend = new EnumMap<>(StorageBackend.class);
+    private BlobStore activeStore;
+
     @PostConstruct
     public void init() {
-        // No need to create physical directories anymore as we're storing in the database
-        logger.info("Initialized file storage service for database storage");
+        for (BlobStore store : blobStores) {
+            storesByBackend.put(store.getBackend(), store);
+        }
+        activeStore = storesByBackend.get(StorageBackend.valueOf(activeStoreName.trim().toUpperCase()));
+        logger.info("Initialized file storage service, new files go to the {} blob store", activeStore.getBackend());
+    }
+
+    public BlobStore getActiveStore() {
+        return activeStore;
+    }
+
+    public BlobStore getStore(StorageBackend backend) {
+        return storesByBackend.get(backend != null ? backend : StorageBackend.DATABASE);
     }
 
     @Transactional(propagation = Propagation.NOT_SUPPORTED)
@@ -73,60 +115,132 @@ public class FileStorageService {
                 contentType = "application/octet-stream";
             }
             
-            // Create and save file data using constructor instead of setters
-            FileData fileData = new FileData(
-                originalFilename,  // name
-                contentType,       // type
-                filePath,          // filePath
-                fileBytes          // data
-            );
-            
-            try {
-                saveFileData(fileData);
-                logger.info("Successfully stored file in database with path: {}", filePath);
-                return filePath;
-            } catch (Exception e) {
-                logger.error("Database error storing file: {}", e.getMessage(), e);
+            if (!storeBytes(originalFilename, contentType, filePath, fileBytes)) {
                 return null;
             }
+            eventPublisher.publishEvent(new FileStoredEvent(filePath, contentType, fileBytes));
+            return filePath;
         } catch (Exception e) {
             logger.error("Unexpected error storing file: {}", e.getMessage(), e);
             return null;
         }
     }
 
+    /**
+     * Stores generated content (such as an image rendition) under a fixed path.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean storeGeneratedFile(String name, String contentType, String filePath, byte[] bytes) {
+        return storeBytes(name, contentType, filePath, bytes);
+    }
+
+    private boolean storeBytes(String name, String contentType, String filePath, byte[] bytes) {
+        // Create file data using constructor; the blob store fills in the content
+        FileData fileData = new FileData(
+            name,         // name
+            contentType,  // type
+            filePath,     // filePath
+            null          // data
+        );
+        fileData.setContentHash(FileData.sha256Hex(bytes));
+        fileData.setSize((long) bytes.length);
+        
+        try {
+            activeStore.store(fileData, bytes);
+        } catch (IOException e) {
+            logger.error("Failed to write file content: {}", e.getMessage(), e);
+            return false;
+        }
+        
+        boolean saved = false;
+        try {
+            saveFileData(fileData);
+            saved = true;
+            logger.debug("file.store storage={} path={}", fileData.getStorage(), filePath);
+            return true;
+        } catch (Exception e) {
+            logger.error("Database error storing file: {}", e.getMessage(), e);
+            return false;
+        } finally {
+            activeStore.storeCompleted(fileData);
+            if (!saved) {
+                // Drop the content again unless another row shares it
+                activeStore.release(fileData.getContentHash());
+            }
+        }
+    }
+
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     protected FileData saveFileData(FileData fileData) {
         return fileDataRepository.save(fileData);
     }
 
+    /**
+     * Looks the file up on a replica, and on the primary if the replica does not have it: files
+     * are read right after they are stored (renditions, the URL returned by the upload).
+     */
+    @Transactional(readOnly = true, propagation = Propagation.NOT_SUPPORTED)
+    public Optional<FileMetadata> findFileMetadata(String filePath) {
+        return readYourWrites.lookup(() -> fileDataRepository.findMetadataByFilePath(filePath));
+    }
+
+    /**
+     * Copies length bytes of the file starting at offset to the output stream, from whichever
+     * blob store holds the content.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.NOT_SUPPORTED)
+    public void copyFileRange(FileMetadata file, long offset, long length, OutputStream outputStream) throws IOException {
+        if (length <= 0) {
+            return;
+        }
+
+        long written = copyContent(file, offset, length, outputStream);
+        if (written == 0) {
+            // Nothing has been written yet, so the copy can be repeated on the primary, which a
+            // replica may not have caught up with for a file stored moments ago
+            written = ReadWriteRoutingDataSource.onPrimary(() -> copyContent(file, offset, length, outputStream));
+        }
+        if (written == 0) {
+            throw new IOException("File content not found: " + file.getFilePath());
+        }
+        outputStream.flush();
+    }
+
+    private long copyContent(FileMetadata file, long offset, long length, OutputStream outputStream) throws IOException {
+        BlobStore store = storeHolding(file);
+        long written = store.copyRange(file.getId(), file.getContentHash(), offset, length, outputStream);
+        if (written == 0 && store.getBackend() != StorageBackend.FILESYSTEM) {
+            // Moved between the exists check and the first chunk
+            written = getStore(StorageBackend.FILESYSTEM).copyRange(file.getId(), file.getContentHash(), offset, length, outputStream);
+        }
+        return written;
+    }
+
     @Transactional(readOnly = true, propagation = Propagation.NOT_SUPPORTED)
-    public Resource loadFileAsResource(String filePath) {
+    public byte[] readFile(FileMetadata file) throws IOException {
         try {
-            // Load from database
-            return getFileResource(filePath);
-        } catch (Exception e) {
-            logger.error("Error loading file: {}", e.getMessage(), e);
-            throw new RuntimeException("Error loading file: " + e.getMessage());
+            return readContent(file);
+        } catch (IOException e) {
+            // A replica may not have the content of a file stored moments ago
+            return ReadWriteRoutingDataSource.onPrimary(() -> readContent(file));
         }
     }
-    
-    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
-    protected Resource getFileResource(String filePath) {
-        return fileDataRepository.findByFilePath(filePath)
-            .map(fileData -> {
-                byte[] data = fileData.getData();
-                if (data == null || data.length == 0) {
-                    logger.error("File data is empty for path: {}", filePath);
-                    throw new RuntimeException("File data is empty: " + filePath);
-                }
-                logger.info("Successfully loaded file from database: {}, size: {} bytes", filePath, data.length);
-                return new ByteArrayResource(data);
-            })
-            .orElseThrow(() -> {
-                logger.error("File not found in database: {}", filePath);
-                return new RuntimeException("File not found: " + filePath);
-            });
+
+    private byte[] readContent(FileMetadata file) throws IOException {
+        byte[] data = storeHolding(file).read(file.getId(), file.getContentHash());
+        if (file.getSize() != null && data.length != file.getSize()) {
+            throw new IOException("File content does not match its size: " + file.getFilePath());
+        }
+        return data;
+    }
+
+    private BlobStore storeHolding(FileMetadata file) {
+        BlobStore store = getStore(file.getStorage());
+        if (file.getStorage() != StorageBackend.FILESYSTEM && !store.exists(file.getId(), file.getContentHash())) {
+            // Moved by the blob migrator after the metadata was read
+            return getStore(StorageBackend.FILESYSTEM);
+        }
+        return store;
     }
 
     @Transactional(propagation = Propagation.NOT_SUPPORTED)
@@ -136,6 +250,12 @@ public class FileStorageService {
                 return false;
             }
             
+            for (ImageRendition rendition : ImageRendition.values()) {
+                String renditionPath = rendition.pathFor(filePath);
+                hotFileCache.evict(renditionPath);
+                performDeleteFile(renditionPath);
+            }
+            hotFileCache.evict(filePath);
             return performDeleteFile(filePath);
         } catch (Exception e) {
             logger.error("Failed to delete file from database: {}", e.getMessage(), e);
@@ -143,13 +263,27 @@ public class FileStorageService {
         }
     }
     
+    /**
+     * Deletes a replaced file once the change that stopped referencing it has committed; if that
+     * transaction rolls back, the entity still points at the old file and it is kept.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onFileReplaced(FileReplacedEvent event) {
+        if (!deleteFile(event.getFilePath())) {
+            // The new file is in place; the old one is only left behind
+            logger.warn("Could not delete replaced file: {}", event.getFilePath());
+        }
+    }
+
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     protected boolean performDeleteFile(String filePath) {
-        return fileDataRepository.findByFilePath(filePath)
-            .map(fileData -> {
+        return fileDataRepository.findMetadataByFilePath(filePath)
+            .map(file -> {
                 try {
-                    fileDataRepository.delete(fileData);
-                    logger.info("Successfully deleted file from database: {}", filePath);
+                    fileDataRepository.deleteFileById(file.getId());
+                    getStore(file.getStorage()).release(file.getContentHash());
+                    logger.debug("file.delete path={}", filePath);
                     return true;
                 } catch (Exception e) {
                     logger.error("Error deleting file: {}", e.getMessage(), e);
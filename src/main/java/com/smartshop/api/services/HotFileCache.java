@@ -0,0 +1,244 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.StorageBackend;
+import com.smartshop.api.repositories.projections.FileMetadata;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the content and metadata of frequently served files in direct (off-heap) buffers.
+ *
+ * Entries are kept in access order and the least recently used ones are evicted until the total
+ * size fits the byte budget, so a handful of large files cannot push out the hot set of small
+ * images. Files larger than the per-entry limit are never cached. A hit needs no database access
+ * at all; FileStorageService evicts an entry when its file is deleted.
+ *
+ * Hits, misses, evictions and the current size are exported as hot.file.cache.* meters.
+ */
+@Component
+public class HotFileCache implements MeterBinder {
+
+    @Value("${file.hot-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.hot-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${file.hot-cache.max-entry-bytes:2097152}")
+    private long maxEntryBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public boolean accepts(FileMetadata file) {
+        return enabled && file.getSize() != null && file.getSize() > 0 && file.getSize() <= maxEntryBytes;
+    }
+
+    public Entry get(String filePath) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(filePath);
+        }
+        (entry != null ? hits : misses).incrementAndGet();
+        return entry;
+    }
+
+    public Entry put(FileMetadata file, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        Entry entry = new Entry(new CachedMetadata(file, data.length), buffer.asReadOnlyBuffer());
+
+        synchronized (this) {
+            Entry previous = entries.put(file.getFilePath(), entry);
+            if (previous != null) {
+                totalBytes -= previous.getSize();
+            }
+            totalBytes += entry.getSize();
+
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Entry evicted = eldest.next().getValue();
+                if (evicted == entry) {
+                    continue;
+                }
+                eldest.remove();
+                totalBytes -= evicted.getSize();
+                evictions.incrementAndGet();
+            }
+        }
+        return entry;
+    }
+
+    public void evict(String filePath) {
+        synchronized (this) {
+            Entry removed = entries.remove(filePath);
+            if (removed != null) {
+                totalBytes -= removed.getSize();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("hot.file.cache.gets", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Downloads served from the hot file cache")
+                .register(registry);
+        FunctionCounter.builder("hot.file.cache.gets", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Downloads not found in the hot file cache")
+                .register(registry);
+        FunctionCounter.builder("hot.file.cache.evictions", evictions, AtomicLong::get)
+                .description("Entries evicted to stay within the byte budget")
+                .register(registry);
+        Gauge.builder("hot.file.cache.entries", this, HotFileCache::entryCount)
+                .description("Files held in the hot file cache")
+                .register(registry);
+        Gauge.builder("hot.file.cache.size", this, HotFileCache::byteCount)
+                .baseUnit("bytes")
+                .description("Bytes held in the hot file cache")
+                .register(registry);
+        Gauge.builder("hot.file.cache.max.size", this, cache -> cache.maxBytes)
+                .baseUnit("bytes")
+                .description("Byte budget of the hot file cache")
+                .register(registry);
+    }
+
+    private synchronized int entryCount() {
+        return entries.size();
+    }
+
+    private synchronized long byteCount() {
+        return totalBytes;
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        synchronized (this) {
+            statistics.put("entries", entries.size());
+            statistics.put("bytes", totalBytes);
+        }
+        statistics.put("maxBytes", maxBytes);
+        statistics.put("hits", hitCount);
+        statistics.put("misses", missCount);
+        statistics.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        statistics.put("evictions", evictions.get());
+        return statistics;
+    }
+
+    public static class Entry {
+        private final FileMetadata metadata;
+        private final ByteBuffer data;
+
+        Entry(FileMetadata metadata, ByteBuffer data) {
+            this.metadata = metadata;
+            this.data = data;
+        }
+
+        public FileMetadata getMetadata() {
+            return metadata;
+        }
+
+        public long getSize() {
+            return data.capacity();
+        }
+
+        public void copyRange(long offset, long length, OutputStream outputStream) throws IOException {
+            // Each reader works on its own view, so concurrent downloads do not share a position
+            ByteBuffer view = data.duplicate();
+            view.position((int) offset).limit((int) (offset + length));
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            while (view.hasRemaining()) {
+                target.write(view);
+            }
+            outputStream.flush();
+        }
+    }
+
+    // Detached copy of the metadata; the projection proxy must not outlive its query
+    private static class CachedMetadata implements FileMetadata {
+        private final Long id;
+        private final String name;
+        private final String type;
+        private final String filePath;
+        private final Long size;
+        private final LocalDateTime createdAt;
+        private final String contentHash;
+        private final StorageBackend storage;
+
+        CachedMetadata(FileMetadata file, long size) {
+            this.id = file.getId();
+            this.name = file.getName();
+            this.type = file.getType();
+            this.filePath = file.getFilePath();
+            this.size = size;
+            this.createdAt = file.getCreatedAt();
+            this.contentHash = file.getContentHash();
+            this.storage = file.getStorage();
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public String getFilePath() {
+            return filePath;
+        }
+
+        @Override
+        public Long getSize() {
+            return size;
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        @Override
+        public StorageBackend getStorage() {
+            return storage;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.smartshop.api.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartshop.api.config.ReadWriteRoutingDataSource;
+import com.smartshop.api.config.ReadYourWrites;
+import com.smartshop.api.exception.IdempotencyKeyReuseException;
+import com.smartshop.api.models.FileData;
+import com.smartshop.api.models.IdempotencyRecord;
+import com.smartshop.api.models.Order;
+import com.smartshop.api.payload.response.OrderDTO;
+import com.smartshop.api.repositories.IdempotencyRecordRepository;
+import com.smartshop.api.repositories.OrderRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * De-duplicates POST /orders retries that carry the same Idempotency-Key.
+ *
+ * The response of the first attempt is kept in a bounded in-memory cache, so most replays cost
+ * nothing. Each key is also recorded in idempotency_keys inside the order transaction; that row
+ * survives restarts and other instances, and its unique constraint stops two concurrent attempts
+ * from both placing an order. Keys expire after orders.idempotency.ttl-hours in both places.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    @Value("${orders.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${orders.idempotency.max-entries:10000}")
+    private long maxEntries;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    private Cache<String, StoredResponse> responses;
+
+    @PostConstruct
+    public void init() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .build();
+    }
+
+    public static String hashRequest(Object... parts) {
+        StringBuilder canonical = new StringBuilder();
+        for (Object part : parts) {
+            canonical.append(part == null ? "" : part.toString().trim()).append('\u0000');
+        }
+        return FileData.sha256Hex(canonical.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the response of an earlier attempt with this key, if there was one.
+     *
+     * @throws IdempotencyKeyReuseException if the key was used for a different request
+     */
+    @Transactional(readOnly = true)
+    public Optional<OrderDTO> findReplay(Long userId, String idempotencyKey, String requestHash, String baseUrl) {
+        return readYourWrites.read(ReadYourWrites.user(userId), () -> replay(userId, idempotencyKey, requestHash, baseUrl));
+    }
+
+    /**
+     * {@link #findReplay} for a key that a concurrent request has just claimed. Reads the primary,
+     * because that request committed a moment ago and a replica may not have its order yet.
+     *
+     * @throws IdempotencyKeyReuseException if the key was used for a different request
+     */
+    @Transactional(readOnly = true)
+    public Optional<OrderDTO> findConcurrentReplay(Long userId, String idempotencyKey, String requestHash, String baseUrl) {
+        return ReadWriteRoutingDataSource.onPrimary(() -> replay(userId, idempotencyKey, requestHash, baseUrl));
+    }
+
+    private Optional<OrderDTO> replay(Long userId, String idempotencyKey, String requestHash, String baseUrl) {
+        StoredResponse stored = responses.getIfPresent(cacheKey(userId, idempotencyKey));
+        if (stored != null) {
+            checkSameRequest(stored.requestHash, requestHash, idempotencyKey);
+            return Optional.of(stored.order);
+        }
+
+        Optional<IdempotencyRecord> record = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey);
+        if (!record.isPresent() || record.get().getOrderId() == null || isExpired(record.get())) {
+            return Optional.empty();
+        }
+        checkSameRequest(record.get().getRequestHash(), requestHash, idempotencyKey);
+
+        Order order = orderRepository.findByIdWithItems(record.get().getOrderId());
+        if (order == null) {
+            return Optional.empty();
+        }
+        OrderDTO response = new OrderDTO(order, baseUrl);
+        responses.put(cacheKey(userId, idempotencyKey), new StoredResponse(requestHash, response));
+        return Optional.of(response);
+    }
+
+    /**
+     * Records the key inside the caller's order transaction. The insert is flushed immediately,
+     * so a concurrent attempt with the same key blocks here and then fails on the unique
+     * constraint before it reserves any stock.
+     */
+    @Transactional
+    public IdempotencyRecord claim(Long userId, String idempotencyKey, String requestHash) {
+        // A record left over from an expired key must not block a new request
+        idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                .filter(this::isExpired)
+                .ifPresent(expired -> {
+                    idempotencyRecordRepository.delete(expired);
+                    idempotencyRecordRepository.flush();
+                });
+        return idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(userId, idempotencyKey, requestHash));
+    }
+
+    /**
+     * Whether the failure is the (user_id, idempotency_key) unique constraint, meaning a concurrent
+     * attempt with the same key claimed it first, rather than any other integrity violation.
+     */
+    public static boolean isKeyConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraint = ((ConstraintViolationException) cause).getConstraintName();
+                return IdempotencyRecord.KEY_CONSTRAINT.equalsIgnoreCase(constraint);
+            }
+        }
+        return false;
+    }
+
+    public void remember(Long userId, String idempotencyKey, String requestHash, OrderDTO response) {
+        responses.put(cacheKey(userId, idempotencyKey), new StoredResponse(requestHash, response));
+    }
+
+    @Scheduled(fixedDelayString = "${orders.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(ttlHours));
+        if (deleted > 0) {
+            logger.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private boolean isExpired(IdempotencyRecord record) {
+        return record.getCreatedAt() != null && record.getCreatedAt().isBefore(LocalDateTime.now().minusHours(ttlHours));
+    }
+
+    private static void checkSameRequest(String storedHash, String requestHash, String idempotencyKey) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IdempotencyKeyReuseException(idempotencyKey);
+        }
+    }
+
+    private static String cacheKey(Long userId, String idempotencyKey) {
+        return userId + ":" + idempotencyKey;
+    }
+
+    private static class StoredResponse {
+        private final String requestHash;
+        private final OrderDTO order;
+
+        StoredResponse(String requestHash, OrderDTO order) {
+            this.requestHash = requestHash;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.smartshop.api.services;
+
+/**
+ * Downscaled variants generated for every uploaded image. A rendition of "products/abc.png"
+ * is stored at "renditions/thumbnail/products/abc.png".
+ */
+public enum ImageRendition {
+    THUMBNAIL(160),
+    MEDIUM(480),
+    LARGE(1080);
+
+    private final int maxDimension;
+
+    ImageRendition(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    public String pathFor(String filePath) {
+        return "renditions/" + name().toLowerCase() + "/" + filePath;
+    }
+
+    public static ImageRendition parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid rendition. Valid options are: thumbnail, medium, large");
+        }
+    }
+}
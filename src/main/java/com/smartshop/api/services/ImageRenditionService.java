@@ -0,0 +1,252 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.events.FileStoredEvent;
+import com.smartshop.api.repositories.projections.FileMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates thumbnail, medium and large renditions of uploaded images.
+ *
+ * Work is queued on a small fixed pool when FileStorageService publishes a FileStoredEvent, so
+ * uploads return as soon as the original is stored. If the queue is full only the path is kept,
+ * and retryRejected() resubmits it later, re-reading the original from storage. Until the
+ * renditions exist clients get the original. Opaque images are re-encoded as JPEG; images with
+ * transparency stay PNG.
+ */
+@Service
+public class ImageRenditionService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageRenditionService.class);
+
+    // Refuse to decode anything larger, to keep one upload from exhausting the heap
+    private static final long MAX_SOURCE_PIXELS = 40_000_000L;
+
+    // Upper bound on paths waiting for a retry after the queue was full
+    private static final int MAX_DEFERRED = 10_000;
+
+    @Value("${image.renditions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${image.renditions.threads:2}")
+    private int threads;
+
+    @Value("${image.renditions.queue-capacity:50}")
+    private int queueCapacity;
+
+    @Value("${image.renditions.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private ThreadPoolExecutor executor;
+
+    private final Set<String> deferred = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-renditions-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @EventListener
+    public void onFileStored(FileStoredEvent event) {
+        if (!enabled || !isSupportedImage(event.getContentType())) {
+            return;
+        }
+        try {
+            executor.execute(() -> generateRenditions(event.getFilePath(), event.getData()));
+        } catch (RejectedExecutionException e) {
+            defer(event.getFilePath());
+        }
+    }
+
+    /**
+     * Resubmits jobs that found the queue full, as far as the queue has room for them.
+     */
+    @Scheduled(fixedDelayString = "${image.renditions.retry-interval-ms:30000}")
+    public void retryRejected() {
+        Iterator<String> paths = deferred.iterator();
+        while (paths.hasNext() && executor.getQueue().remainingCapacity() > 0) {
+            String filePath = paths.next();
+            paths.remove();
+            try {
+                executor.execute(() -> regenerate(filePath));
+            } catch (RejectedExecutionException e) {
+                deferred.add(filePath);
+                return;
+            }
+        }
+    }
+
+    private void defer(String filePath) {
+        if (deferred.size() < MAX_DEFERRED) {
+            deferred.add(filePath);
+            logger.warn("Rendition queue full, will retry {}", filePath);
+        } else {
+            logger.warn("Rendition queue and retry list full, serving the original only for {}", filePath);
+        }
+    }
+
+    private void regenerate(String filePath) {
+        Optional<FileMetadata> file = fileStorageService.findFileMetadata(filePath);
+        if (!file.isPresent()) {
+            // Deleted or replaced while waiting
+            return;
+        }
+        try {
+            generateRenditions(filePath, fileStorageService.readFile(file.get()));
+        } catch (IOException e) {
+            logger.error("Failed to read {} for renditions: {}", filePath, e.getMessage(), e);
+        }
+    }
+
+    private void generateRenditions(String filePath, byte[] data) {
+        try {
+            BufferedImage source = decode(data);
+            if (source == null) {
+                logger.debug("Not a decodable image, skipping renditions for {}", filePath);
+                return;
+            }
+
+            boolean hasAlpha = source.getColorModel().hasAlpha();
+            String format = hasAlpha ? "png" : "jpeg";
+            String contentType = hasAlpha ? "image/png" : "image/jpeg";
+
+            for (ImageRendition rendition : ImageRendition.values()) {
+                int longestSide = Math.max(source.getWidth(), source.getHeight());
+                if (longestSide <= rendition.getMaxDimension()) {
+                    // The original is already small enough; requests for this rendition get the original
+                    continue;
+                }
+                // The original may have been replaced and deleted while this job was queued
+                if (!fileStorageService.findFileMetadata(filePath).isPresent()) {
+                    return;
+                }
+
+                BufferedImage scaled = scale(source, rendition.getMaxDimension(), hasAlpha);
+                byte[] encoded = encode(scaled, format);
+                String name = rendition.name().toLowerCase() + "." + (hasAlpha ? "png" : "jpg");
+                fileStorageService.storeGeneratedFile(name, contentType, rendition.pathFor(filePath), encoded);
+            }
+            logger.info("Generated renditions for {}", filePath);
+        } catch (Exception e) {
+            logger.error("Failed to generate renditions for {}: {}", filePath, e.getMessage(), e);
+        }
+    }
+
+    private static boolean isSupportedImage(String contentType) {
+        return contentType != null
+                && (contentType.equals("image/jpeg") || contentType.equals("image/jpg") || contentType.equals("image/png"));
+    }
+
+    private static BufferedImage decode(byte[] data) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    throw new IOException("Image too large to process");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxDimension, boolean hasAlpha) {
+        double ratio = (double) maxDimension / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int type = hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        // Halve repeatedly before the final step; a single bilinear pass over a large ratio looks jagged
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                if (param.canWriteProgressive()) {
+                    param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                }
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+}
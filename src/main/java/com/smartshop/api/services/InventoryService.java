@@ -0,0 +1,61 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.exception.InsufficientStockException;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Stock changes for order placement and cancellation.
+ *
+ * Stock is never read, adjusted in memory and written back. Each change is a single conditional
+ * UPDATE, so the check and the decrement happen atomically in the database and two concurrent
+ * checkouts cannot both take the last unit. Callers run these inside their own transaction.
+ */
+@Service
+public class InventoryService {
+
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Reserves every line of an order with one JDBC batch. The map is sorted by product id so
+     * concurrent orders take row locks in the same order; products must contain every key.
+     */
+    @Transactional
+    public void reserveAll(SortedMap<Long, Integer> quantities, Map<Long, Product> products) {
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        List<Long> productIds = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            batchArgs.add(new Object[]{line.getValue(), line.getKey(), line.getValue()});
+            productIds.add(line.getKey());
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, batchArgs);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Product product = products.get(productIds.get(i));
+                throw new InsufficientStockException(product.getId(), product.getName());
+            }
+        }
+    }
+
+    @Transactional
+    public void release(Long productId, int quantity) {
+        productRepository.incrementStock(productId, quantity);
+    }
+}
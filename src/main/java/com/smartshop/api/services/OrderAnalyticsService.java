@@ -0,0 +1,413 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.ERole;
+import com.smartshop.api.models.Order;
+import com.smartshop.api.models.OrderItem;
+import com.smartshop.api.models.OrderRollup;
+import com.smartshop.api.models.OrderStatus;
+import com.smartshop.api.models.PaymentMethod;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.RollupDimension;
+import com.smartshop.api.repositories.CategoryRepository;
+import com.smartshop.api.repositories.OrderItemRepository;
+import com.smartshop.api.repositories.OrderRepository;
+import com.smartshop.api.repositories.OrderRollupRepository;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.repositories.SubCategoryRepository;
+import com.smartshop.api.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the order_rollups table and serves the admin analytics report from it.
+ *
+ * Every order contributes to one DAY, MONTH, STATUS, PAYMENT_METHOD and CUSTOMER bucket and to
+ * one PRODUCT bucket per line item. Only the STATUS bucket moves when an order changes status,
+ * so creation and status changes are one JDBC batch of single-row upserts instead of a scan.
+ *
+ * The record methods must run in the transaction that creates or changes the order, so the
+ * rollups commit or roll back together with it.
+ */
+@Service
+public class OrderAnalyticsService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderAnalyticsService.class);
+
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private OrderRollupRepository orderRollupRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SubCategoryRepository subCategoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate snapshotTransaction;
+
+    @PostConstruct
+    public void init() {
+        snapshotTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Transactional
+    public void recordOrderCreated(Order order) {
+        List<Line> lines = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            lines.add(new Line(item.getProduct().getId(), item.getQuantity(), lineRevenue(item.getDiscountedPrice(), item.getQuantity())));
+        }
+
+        Map<String, Delta> deltas = new HashMap<>();
+        accumulateOrder(deltas, order.getCreatedAt(), order.getStatus(), order.getPaymentMethod(), order.getUser().getId(), lines);
+        apply(deltas);
+    }
+
+    @Transactional
+    public void recordStatusChange(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
+        if (oldStatus == newStatus) {
+            return;
+        }
+
+        long quantity = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (OrderItem item : order.getItems()) {
+            quantity += item.getQuantity();
+            revenue = revenue.add(lineRevenue(item.getDiscountedPrice(), item.getQuantity()));
+        }
+
+        Map<String, Delta> deltas = new HashMap<>();
+        delta(deltas, RollupDimension.STATUS, oldStatus.name()).add(-1, -quantity, revenue.negate());
+        delta(deltas, RollupDimension.STATUS, newStatus.name()).add(1, quantity, revenue);
+        apply(deltas);
+    }
+
+    /**
+     * Recomputes every rollup from the orders table. Orders are read in id-ordered batches as
+     * scalar rows, so the backfill never holds more than one batch of orders in memory.
+     *
+     * Nothing is locked. The scan runs in one REPEATABLE READ snapshot, which sees each order
+     * together with the rollup increments its transaction made, and also reads the rollups as of
+     * that snapshot. Orders and status changes committed later have added their increments to the
+     * live rows since, so adding (recomputed - snapshot rollups) to each live row gives the
+     * recomputed totals plus everything after the snapshot. The corrections are upserts like any
+     * other increment, and checkouts never wait for the scan.
+     *
+     * @return the number of orders that were rolled up
+     */
+    public long rebuild() {
+        long started = System.currentTimeMillis();
+        Rebuild rebuild = snapshotTransaction.execute(status -> scan());
+
+        Map<String, Delta> corrections = new HashMap<>();
+        for (Map.Entry<String, Delta> recomputed : rebuild.deltas.entrySet()) {
+            Delta d = recomputed.getValue();
+            delta(corrections, d.dimension, d.bucket).add(d.orders, d.quantity, d.revenue);
+        }
+        for (OrderRollup rollup : rebuild.previous) {
+            delta(corrections, rollup.getDimension(), rollup.getBucket())
+                    .add(-rollup.getOrderCount(), -rollup.getItemQuantity(), rollup.getRevenue().negate());
+        }
+        corrections.values().removeIf(Delta::isZero);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            apply(corrections);
+            // Buckets that no order falls into any more, e.g. a customer whose orders were all deleted
+            orderRollupRepository.deleteEmptyRollups();
+        });
+
+        logger.info("Rebuilt {} order rollups from {} orders in {} ms ({} buckets corrected)",
+                rebuild.deltas.size(), rebuild.processed, System.currentTimeMillis() - started, corrections.size());
+        return rebuild.processed;
+    }
+
+    private Rebuild scan() {
+        // The first statement fixes the snapshot, so the rollups read here match the orders scanned below
+        Rebuild rebuild = new Rebuild(orderRollupRepository.findAll());
+        long lastId = 0;
+
+        while (true) {
+            List<Object[]> rows = orderRepository.findRollupRowsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            Map<Long, List<Line>> linesByOrder = new HashMap<>();
+            List<Long> orderIds = rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+            for (Object[] line : orderItemRepository.findRollupLinesByOrderIds(orderIds)) {
+                Integer quantity = (Integer) line[2];
+                linesByOrder.computeIfAbsent((Long) line[0], id -> new ArrayList<>())
+                        .add(new Line((Long) line[1], quantity, lineRevenue((BigDecimal) line[3], quantity)));
+            }
+
+            for (Object[] row : rows) {
+                Long orderId = (Long) row[0];
+                accumulateOrder(rebuild.deltas, (LocalDateTime) row[1], (OrderStatus) row[2], (PaymentMethod) row[3], (Long) row[4],
+                        linesByOrder.getOrDefault(orderId, new ArrayList<>()));
+                lastId = orderId;
+            }
+            rebuild.processed += rows.size();
+        }
+        return rebuild;
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isEmpty() {
+        return orderRollupRepository.count() == 0;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Object> getAnalytics(String baseUrl) {
+        Map<OrderStatus, OrderRollup> byStatus = new EnumMap<>(OrderStatus.class);
+        for (OrderRollup rollup : orderRollupRepository.findByDimension(RollupDimension.STATUS)) {
+            byStatus.put(OrderStatus.valueOf(rollup.getBucket()), rollup);
+        }
+        OrderRollup empty = new OrderRollup();
+
+        long totalOrders = byStatus.values().stream().mapToLong(OrderRollup::getOrderCount).sum();
+        BigDecimal allRevenue = byStatus.values().stream().map(OrderRollup::getRevenue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        OrderRollup pending = byStatus.getOrDefault(OrderStatus.PENDING, empty);
+        OrderRollup processing = byStatus.getOrDefault(OrderStatus.PROCESSING, empty);
+        OrderRollup shipped = byStatus.getOrDefault(OrderStatus.SHIPPED, empty);
+        OrderRollup delivered = byStatus.getOrDefault(OrderStatus.DELIVERED, empty);
+        OrderRollup cancelled = byStatus.getOrDefault(OrderStatus.CANCELLED, empty);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("totalProducts", productRepository.count());
+        response.put("totalCategories", categoryRepository.count());
+        response.put("totalSubCategories", subCategoryRepository.count());
+        response.put("totalOrders", totalOrders);
+        response.put("totalUsers", userRepository.countByRoleName(ERole.ROLE_USER));
+
+        response.put("pendingOrders", pending.getOrderCount());
+        response.put("processingOrders", processing.getOrderCount());
+        response.put("shippedOrders", shipped.getOrderCount());
+        response.put("deliveredOrders", delivered.getOrderCount());
+        response.put("cancelledOrders", cancelled.getOrderCount());
+        response.put("successRate", totalOrders > 0 ? (double) delivered.getOrderCount() / totalOrders * 100 : 0);
+        response.put("cancellationRate", totalOrders > 0 ? (double) cancelled.getOrderCount() / totalOrders * 100 : 0);
+        response.put("totalRevenue", delivered.getRevenue());
+        response.put("pendingRevenue", pending.getRevenue().add(processing.getRevenue()));
+        response.put("lostRevenue", cancelled.getRevenue());
+        response.put("uniqueCustomers", orderRollupRepository.countByDimension(RollupDimension.CUSTOMER));
+        response.put("totalProductsSold", delivered.getItemQuantity());
+        response.put("averageOrderValue", totalOrders > 0 ?
+                allRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+
+        Map<String, Long> paymentMethodStats = new HashMap<>();
+        for (OrderRollup rollup : orderRollupRepository.findByDimension(RollupDimension.PAYMENT_METHOD)) {
+            paymentMethodStats.put(rollup.getBucket(), rollup.getOrderCount());
+        }
+        response.put("paymentMethodStats", paymentMethodStats);
+
+        Map<String, Long> monthlyOrderCounts = new HashMap<>();
+        String sixMonthsAgo = YearMonth.now().minusMonths(6).toString();
+        for (OrderRollup rollup : orderRollupRepository.findByDimensionAndBucketGreaterThanEqual(RollupDimension.MONTH, sixMonthsAgo)) {
+            monthlyOrderCounts.put(rollup.getBucket(), rollup.getOrderCount());
+        }
+        response.put("monthlyOrderCounts", monthlyOrderCounts);
+        response.put("orderedProducts", getOrderedProducts(baseUrl));
+
+        Map<String, Object> statusReport = new HashMap<>();
+        for (OrderStatus status : OrderStatus.values()) {
+            OrderRollup rollup = byStatus.getOrDefault(status, empty);
+            String prefix = status.toString().toLowerCase();
+            statusReport.put(prefix + "Count", rollup.getOrderCount());
+            statusReport.put(prefix + "Revenue", rollup.getRevenue());
+            statusReport.put(prefix + "Products", rollup.getItemQuantity());
+        }
+        response.put("statusReport", statusReport);
+
+        return response;
+    }
+
+    private List<Map<String, Object>> getOrderedProducts(String baseUrl) {
+        List<OrderRollup> rollups = orderRollupRepository.findByDimension(RollupDimension.PRODUCT);
+        List<Long> productIds = rollups.stream().map(r -> Long.valueOf(r.getBucket())).collect(Collectors.toList());
+        Map<Long, Product> products = productIds.isEmpty() ? new HashMap<>() :
+                productRepository.findAllWithCategoriesByIdIn(productIds).stream()
+                        .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<Map<String, Object>> orderedProducts = new ArrayList<>();
+        for (OrderRollup rollup : rollups) {
+            Product product = products.get(Long.valueOf(rollup.getBucket()));
+            if (product == null) {
+                continue;
+            }
+
+            Map<String, Object> productInfo = new HashMap<>();
+            productInfo.put("id", product.getId());
+            productInfo.put("name", product.getName());
+            productInfo.put("quantity", rollup.getItemQuantity());
+            productInfo.put("price", product.getPrice());
+            // What customers paid on average, from the order lines rather than today's product price
+            productInfo.put("discountedPrice", rollup.getItemQuantity() > 0
+                    ? rollup.getRevenue().divide(BigDecimal.valueOf(rollup.getItemQuantity()), 2, RoundingMode.HALF_UP)
+                    : product.getDiscountedPrice());
+            productInfo.put("totalRevenue", rollup.getRevenue());
+            productInfo.put("imageUrl", toFileUrl(product.getImageUrl(), baseUrl));
+
+            if (product.getCategory() != null) {
+                productInfo.put("categoryId", product.getCategory().getId());
+                productInfo.put("categoryName", product.getCategory().getName());
+                String categoryImageUrl = toFileUrl(product.getCategory().getImageUrl(), baseUrl);
+                if (categoryImageUrl != null) {
+                    productInfo.put("categoryImage", categoryImageUrl);
+                }
+            }
+
+            if (product.getSubCategory() != null) {
+                productInfo.put("subCategoryId", product.getSubCategory().getId());
+                productInfo.put("subCategoryName", product.getSubCategory().getName());
+            }
+
+            orderedProducts.add(productInfo);
+        }
+        return orderedProducts;
+    }
+
+    private void accumulateOrder(Map<String, Delta> deltas, LocalDateTime createdAt, OrderStatus status,
+                                 PaymentMethod paymentMethod, Long userId, List<Line> lines) {
+        long quantity = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (Line line : lines) {
+            quantity += line.quantity;
+            revenue = revenue.add(line.revenue);
+            delta(deltas, RollupDimension.PRODUCT, String.valueOf(line.productId)).add(1, line.quantity, line.revenue);
+        }
+
+        LocalDateTime timestamp = createdAt != null ? createdAt : LocalDateTime.now();
+        delta(deltas, RollupDimension.DAY, timestamp.toLocalDate().toString()).add(1, quantity, revenue);
+        delta(deltas, RollupDimension.MONTH, YearMonth.from(timestamp).toString()).add(1, quantity, revenue);
+        delta(deltas, RollupDimension.STATUS, status.name()).add(1, quantity, revenue);
+        if (paymentMethod != null) {
+            delta(deltas, RollupDimension.PAYMENT_METHOD, paymentMethod.name()).add(1, quantity, revenue);
+        }
+        delta(deltas, RollupDimension.CUSTOMER, String.valueOf(userId)).add(1, quantity, revenue);
+    }
+
+    private void apply(Map<String, Delta> deltas) {
+        // Upsert in key order so concurrent transactions lock shared buckets in the same order
+        List<SqlParameterSource> batchArgs = new ArrayList<>(deltas.size());
+        for (Delta d : new TreeMap<>(deltas).values()) {
+            batchArgs.add(new MapSqlParameterSource()
+                    .addValue("dimension", d.dimension.name())
+                    .addValue("bucket", d.bucket)
+                    .addValue("orders", d.orders)
+                    .addValue("quantity", d.quantity)
+                    .addValue("revenue", d.revenue));
+        }
+        if (!batchArgs.isEmpty()) {
+            namedParameterJdbcTemplate.batchUpdate(OrderRollupRepository.UPSERT_SQL,
+                    batchArgs.toArray(new SqlParameterSource[0]));
+        }
+    }
+
+    private static Delta delta(Map<String, Delta> deltas, RollupDimension dimension, String bucket) {
+        return deltas.computeIfAbsent(dimension + ":" + bucket, key -> new Delta(dimension, bucket));
+    }
+
+    private static BigDecimal lineRevenue(BigDecimal discountedPrice, Integer quantity) {
+        if (discountedPrice == null || quantity == null) {
+            return BigDecimal.ZERO;
+        }
+        return discountedPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+
+    private static String toFileUrl(String imageUrl, String baseUrl) {
+        if (imageUrl == null || imageUrl.isEmpty()) {
+            return null;
+        }
+        return imageUrl.startsWith("http") ? imageUrl : baseUrl + "/files/" + imageUrl;
+    }
+
+    private static class Line {
+        private final Long productId;
+        private final long quantity;
+        private final BigDecimal revenue;
+
+        Line(Long productId, Integer quantity, BigDecimal revenue) {
+            this.productId = productId;
+            this.quantity = quantity != null ? quantity : 0;
+            this.revenue = revenue;
+        }
+    }
+
+    private static class Delta {
+        private final RollupDimension dimension;
+        private final String bucket;
+        private long orders;
+        private long quantity;
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        Delta(RollupDimension dimension, String bucket) {
+            this.dimension = dimension;
+            this.bucket = bucket;
+        }
+
+        void add(long orders, long quantity, BigDecimal revenue) {
+            this.orders += orders;
+            this.quantity += quantity;
+            this.revenue = this.revenue.add(revenue);
+        }
+
+        boolean isZero() {
+            return orders == 0 && quantity == 0 && revenue.signum() == 0;
+        }
+    }
+
+    private static class Rebuild {
+        private final List<OrderRollup> previous;
+        private final Map<String, Delta> deltas = new HashMap<>();
+        private long processed;
+
+        Rebuild(List<OrderRollup> previous) {
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.events.OrderChangedEvent;
+import com.smartshop.api.models.Address;
+import com.smartshop.api.models.CartItem;
+import com.smartshop.api.models.IdempotencyRecord;
+import com.smartshop.api.models.Order;
+import com.smartshop.api.models.OrderItem;
+import com.smartshop.api.models.PaymentMethod;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.User;
+import com.smartshop.api.repositories.CartItemRepository;
+import com.smartshop.api.repositories.OrderRepository;
+import com.smartshop.api.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Places an order, reserves its stock and updates the analytics rollups in one transaction. If
+ * any line cannot be reserved the whole transaction rolls back, so no stock is taken for an
+ * order that was not created.
+ *
+ * All products are loaded with one IN-list query, and the stock decrements and the order lines
+ * each go out as one JDBC batch, so the statement count does not grow with the line items.
+ */
+@Service
+public class OrderPlacementService {
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO order_items (id, order_id, product_id, quantity, price, discounted_price) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ALLOCATE_ITEM_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('order_items', 'id')) FROM generate_series(1, ?)";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Creates an unsaved order for the user. It ships to the user's profile address and is
+     * delivered either there or to the given delivery address.
+     *
+     * @throws IllegalArgumentException if the profile address, or the delivery address when used, is incomplete
+     */
+    public Order newOrder(User user, PaymentMethod paymentMethod, String notes, boolean useProfileAddress,
+                          String deliveryAddressLine1, String deliveryAddressLine2, String deliveryCity,
+                          String deliveryState, String deliveryPostalCode, String deliveryCountry) {
+        if (user.getAddressLine1() == null || user.getCity() == null || user.getState() == null ||
+                user.getPostalCode() == null || user.getCountry() == null) {
+            throw new IllegalArgumentException("User profile address is incomplete. Please update your profile with a complete address.");
+        }
+
+        Order order = new Order();
+        order.setUser(user);
+        order.setPaymentMethod(paymentMethod);
+        order.setNotes(notes);
+        order.setShippingAddress(address(user, user.getAddressLine1(), user.getAddressLine2(), user.getCity(),
+                user.getState(), user.getPostalCode(), user.getCountry()));
+
+        if (useProfileAddress) {
+            order.setDeliveryAddress(address(user, user.getAddressLine1(), user.getAddressLine2(), user.getCity(),
+                    user.getState(), user.getPostalCode(), user.getCountry()));
+        } else {
+            if (deliveryAddressLine1 == null || deliveryCity == null || deliveryState == null ||
+                    deliveryPostalCode == null || deliveryCountry == null) {
+                throw new IllegalArgumentException("Delivery address is incomplete. Please provide all required fields.");
+            }
+            order.setDeliveryAddress(address(user, deliveryAddressLine1, deliveryAddressLine2, deliveryCity,
+                    deliveryState, deliveryPostalCode, deliveryCountry));
+        }
+        return order;
+    }
+
+    /**
+     * Turns the user's cart_items into the lines of the order, reserves their stock and empties
+     * the cart, all in one transaction.
+     *
+     * The cart and its products come from one join-fetch query, the order is written by
+     * {@link #saveWithItems} and the cart is then emptied with a single bulk delete.
+     *
+     * @param order an order from {@link #newOrder}
+     * @throws IllegalArgumentException if the cart is empty
+     */
+    @Transactional
+    public Order placeCartOrder(Order order) {
+        Long userId = order.getUser().getId();
+        List<CartItem> cartItems = cartItemRepository.findByUserIdWithProducts(userId);
+        if (cartItems.isEmpty()) {
+            throw new IllegalArgumentException("Cart is empty");
+        }
+
+        SortedMap<Long, Integer> totals = new TreeMap<>();
+        Map<Long, Product> products = new HashMap<>();
+        List<OrderItem> items = new ArrayList<>(cartItems.size());
+        for (CartItem cartItem : cartItems) {
+            Product product = cartItem.getProduct();
+            totals.merge(product.getId(), cartItem.getQuantity(), Integer::sum);
+            products.put(product.getId(), product);
+            items.add(new OrderItem(product, cartItem.getQuantity()));
+        }
+
+        inventoryService.reserveAll(totals, products);
+
+        Order saved = saveWithItems(order, items);
+        cartItemRepository.deleteAllByUserId(userId);
+        orderAnalyticsService.recordOrderCreated(saved);
+        eventPublisher.publishEvent(new OrderChangedEvent(saved.getId(), userId));
+        return saved;
+    }
+
+    /**
+     * Same as {@link #placeOrder(Order, List, List)}, but first claims the client's idempotency key
+     * in the same transaction. A concurrent attempt with the same key fails on the claim with a
+     * DataIntegrityViolationException before it touches any stock.
+     */
+    @Transactional
+    public Order placeOrder(Order order, List<Long> productIds, List<Integer> quantities,
+                            String idempotencyKey, String requestHash) {
+        if (idempotencyKey == null) {
+            return placeOrder(order, productIds, quantities);
+        }
+
+        IdempotencyRecord record = idempotencyService.claim(order.getUser().getId(), idempotencyKey, requestHash);
+        Order saved = placeOrder(order, productIds, quantities);
+        record.setOrderId(saved.getId());
+        return saved;
+    }
+
+    /**
+     * @param order an order with user, payment method and addresses already set
+     * @param productIds product of each line, in request order
+     * @param quantities quantity of each line, parallel to productIds
+     */
+    @Transactional
+    public Order placeOrder(Order order, List<Long> productIds, List<Integer> quantities) {
+        // Reserve in ascending id order so concurrent orders take row locks in the same order
+        SortedMap<Long, Integer> totals = new TreeMap<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            totals.merge(productIds.get(i), quantities.get(i), Integer::sum);
+        }
+
+        Map<Long, Product> products = productRepository.findAllById(totals.keySet()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (Long productId : totals.keySet()) {
+            if (!products.containsKey(productId)) {
+                throw new EntityNotFoundException("Product not found with id: " + productId);
+            }
+        }
+
+        inventoryService.reserveAll(totals, products);
+
+        List<OrderItem> items = new ArrayList<>(productIds.size());
+        for (int i = 0; i < productIds.size(); i++) {
+            items.add(new OrderItem(products.get(productIds.get(i)), quantities.get(i)));
+        }
+        Order saved = saveWithItems(order, items);
+        orderAnalyticsService.recordOrderCreated(saved);
+        eventPublisher.publishEvent(new OrderChangedEvent(saved.getId(), saved.getUser().getId()));
+        return saved;
+    }
+
+    /**
+     * Saves the order header through JPA and inserts its lines as one JDBC batch, with ids taken
+     * from the order_items sequence, because IDENTITY ids would make Hibernate insert them one at
+     * a time. The returned order is detached from the persistence context, with its lines filled in.
+     */
+    private Order saveWithItems(Order order, List<OrderItem> items) {
+        for (OrderItem item : items) {
+            order.addOrderItem(item);
+        }
+        order.calculateTotals();
+        // Save the header on its own; the lines are written below
+        order.getItems().clear();
+        Order saved = orderRepository.save(order);
+        entityManager.flush();
+        entityManager.detach(saved);
+
+        List<Long> ids = jdbcTemplate.queryForList(ALLOCATE_ITEM_IDS_SQL, Long.class, items.size());
+        List<Object[]> batchArgs = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            OrderItem item = items.get(i);
+            item.setId(ids.get(i));
+            batchArgs.add(new Object[]{item.getId(), saved.getId(), item.getProduct().getId(), item.getQuantity(),
+                    item.getPrice(), item.getDiscountedPrice()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, batchArgs);
+        saved.getItems().addAll(items);
+        return saved;
+    }
+
+    private static Address address(User user, String line1, String line2, String city, String state,
+                                   String postalCode, String country) {
+        Address address = new Address();
+        address.setAddressLine1(line1);
+        address.setAddressLine2(line2);
+        address.setCity(city);
+        address.setState(state);
+        address.setPostalCode(postalCode);
+        address.setCountry(country);
+        address.setUser(user);
+        return address;
+    }
+}
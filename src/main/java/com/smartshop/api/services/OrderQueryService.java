@@ -0,0 +1,135 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.config.ReadYourWrites;
+import com.smartshop.api.payload.response.OrderDTO;
+import com.smartshop.api.payload.response.OrderPageResponse;
+import com.smartshop.api.repositories.OrderItemRepository;
+import com.smartshop.api.repositories.OrderRepository;
+import com.smartshop.api.repositories.projections.OrderHeaderRow;
+import com.smartshop.api.repositories.projections.OrderItemRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Order listings built from projections instead of entities.
+ *
+ * Headers (with both addresses) come from one query and the items of every listed order, with
+ * their product columns, from a second IN-list query. Nothing is lazily loaded per order or per
+ * item, and no collection fetch multiplies the header rows.
+ *
+ * Listings are read-only and normally read a replica. Customers open their orders right after
+ * checkout, when a replica may not have the new order yet, so within the read-your-writes window
+ * of a change to one of the user's orders (or to any order, for the admin listing) the listing
+ * reads the primary instead.
+ */
+@Service
+public class OrderQueryService {
+
+    // Keeps the IN list of the items query well under database parameter limits
+    private static final int ITEM_QUERY_BATCH_SIZE = 500;
+
+    @Value("${orders.page-size.default:20}")
+    private int defaultPageSize;
+
+    @Value("${orders.page-size.max:100}")
+    private int maxPageSize;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    /**
+     * One keyset page of orders, newest first.
+     *
+     * @param userId owner whose orders to list, or null for all orders
+     */
+    @Transactional(readOnly = true)
+    public OrderPageResponse getPage(Long userId, String cursor, Integer size, String baseUrl) {
+        String scope = userId != null ? ReadYourWrites.user(userId) : ReadYourWrites.ORDERS;
+        return readYourWrites.read(scope, () -> readPage(userId, cursor, size, baseUrl));
+    }
+
+    private OrderPageResponse readPage(Long userId, String cursor, Integer size, String baseUrl) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<OrderHeaderRow> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = userId != null ? orderRepository.findUserHeaderPage(userId, limit) : orderRepository.findHeaderPage(limit);
+        } else {
+            String[] key = PageCursor.decode(cursor);
+            LocalDateTime createdAt = PageCursor.parseCreatedAt(key[0]);
+            Long lastId = PageCursor.parseId(key[1]);
+            if (createdAt == null) {
+                rows = userId != null
+                        ? orderRepository.findUserHeaderPageAfterUndated(userId, lastId, limit)
+                        : orderRepository.findHeaderPageAfterUndated(lastId, limit);
+            } else {
+                rows = userId != null
+                        ? orderRepository.findUserHeaderPageAfter(userId, createdAt, lastId, limit)
+                        : orderRepository.findHeaderPageAfter(createdAt, lastId, limit);
+            }
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderHeaderRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            OrderHeaderRow last = page.get(page.size() - 1);
+            nextCursor = PageCursor.encode(PageCursor.formatCreatedAt(last.getCreatedAt()), last.getId());
+        }
+
+        List<OrderDTO> items = toOrders(page, baseUrl);
+        return new OrderPageResponse(items, items.size(), hasMore, nextCursor);
+    }
+
+    /**
+     * The newest orders for the unpaged GET /orders listing. Capped at the maximum page size like
+     * any other page, so an admin listing never loads the whole table; older orders are reached
+     * through {@link #getPage}.
+     *
+     * @param userId owner whose orders to list, or null for all orders
+     */
+    @Transactional(readOnly = true)
+    public List<OrderDTO> getAll(Long userId, String baseUrl) {
+        return getPage(userId, null, maxPageSize, baseUrl).getItems();
+    }
+
+    private List<OrderDTO> toOrders(List<OrderHeaderRow> headers, String baseUrl) {
+        if (headers.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> orderIds = headers.stream().map(OrderHeaderRow::getId).collect(Collectors.toList());
+        Map<Long, List<OrderItemRow>> itemsByOrder = new HashMap<>();
+        for (int from = 0; from < orderIds.size(); from += ITEM_QUERY_BATCH_SIZE) {
+            List<Long> batch = orderIds.subList(from, Math.min(from + ITEM_QUERY_BATCH_SIZE, orderIds.size()));
+            for (OrderItemRow item : orderItemRepository.findRowsByOrderIds(batch)) {
+                itemsByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item);
+            }
+        }
+
+        return headers.stream()
+                .map(header -> OrderDTO.fromRows(header,
+                        itemsByOrder.getOrDefault(header.getId(), Collections.emptyList()), baseUrl))
+                .collect(Collectors.toList());
+    }
+}
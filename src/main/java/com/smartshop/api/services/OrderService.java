@@ -0,0 +1,231 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.events.OrderChangedEvent;
+import com.smartshop.api.models.Order;
+import com.smartshop.api.models.OrderItem;
+import com.smartshop.api.models.OrderStatus;
+import com.smartshop.api.models.PaymentStatus;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.User;
+import com.smartshop.api.payload.response.OrderDTO;
+import com.smartshop.api.payload.response.OrderDetailsResponse;
+import com.smartshop.api.repositories.OrderRepository;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Single-order reads and status changes for the order endpoints.
+ *
+ * Order items and user roles are lazy, so each method builds its response inside its own
+ * transaction and returns DTOs only. A missing order throws EntityNotFoundException.
+ */
+@Service
+public class OrderService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * @param privileged whether the caller may read orders of other users
+     * @throws AccessDeniedException if the caller neither owns the order nor is privileged
+     */
+    @Transactional(readOnly = true)
+    public OrderDTO getOrder(Long id, Long userId, boolean privileged, String baseUrl) {
+        Order order = findWithItems(id);
+        if (!privileged && !order.getUser().getId().equals(userId)) {
+            throw new AccessDeniedException("Order " + id + " belongs to another user");
+        }
+        return new OrderDTO(order, baseUrl);
+    }
+
+    /**
+     * Moves an order along its fulfilment; shipping or delivering it takes the ordered quantities
+     * off the product stock.
+     *
+     * @throws IllegalStateException if a cancelled order would be shipped or delivered
+     */
+    @Transactional
+    public OrderDTO updateStatus(Long id, OrderStatus status, String baseUrl) {
+        Order order = findWithItems(id);
+        OrderStatus oldStatus = order.getStatus();
+
+        // Check if we're transitioning from a non-shipped/delivered status to shipped/delivered
+        boolean isShippingOrDelivering = (status == OrderStatus.SHIPPED || status == OrderStatus.DELIVERED) &&
+                                       !(oldStatus == OrderStatus.SHIPPED || oldStatus == OrderStatus.DELIVERED);
+
+        // If the order is cancelled, don't allow updating to shipped/delivered
+        if (oldStatus == OrderStatus.CANCELLED && (status == OrderStatus.SHIPPED || status == OrderStatus.DELIVERED)) {
+            throw new IllegalStateException("Cannot update cancelled order to " + status + " status.");
+        }
+
+        order.setStatus(status);
+
+        // If order is delivered, set delivered time
+        if (status == OrderStatus.DELIVERED) {
+            order.setDeliveredAt(LocalDateTime.now());
+        }
+
+        // If transitioning to shipped or delivered, update stock quantities
+        if (isShippingOrDelivering) {
+            for (OrderItem item : order.getItems()) {
+                Product product = item.getProduct();
+                // Make sure we don't go negative with stock
+                product.setStockQuantity(Math.max(0, product.getStockQuantity() - item.getQuantity()));
+                productRepository.save(product);
+            }
+        }
+
+        orderRepository.save(order);
+        orderAnalyticsService.recordStatusChange(order, oldStatus, status);
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), order.getUser().getId()));
+        return new OrderDTO(order, baseUrl);
+    }
+
+    @Transactional
+    public OrderDTO updatePaymentStatus(Long id, PaymentStatus status, String transactionId, String baseUrl) {
+        Order order = findWithItems(id);
+        order.setPaymentStatus(status);
+        if (transactionId != null) {
+            order.setTransactionId(transactionId);
+        }
+        orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), order.getUser().getId()));
+        return new OrderDTO(order, baseUrl);
+    }
+
+    /**
+     * Cancels an order and puts its items back in stock. Admins may cancel any order in any status.
+     *
+     * @throws AccessDeniedException if a non-admin caller does not own the order
+     * @throws IllegalStateException if a non-admin caller's order is past PROCESSING
+     */
+    @Transactional
+    public void cancel(Long id, Long userId, boolean admin) {
+        Order order = findWithItems(id);
+
+        if (!admin && !order.getUser().getId().equals(userId)) {
+            throw new AccessDeniedException("You don't have permission to cancel this order. Only the user who created the order or an admin can cancel it.");
+        }
+
+        // Check if order can be cancelled (status must be PENDING or PROCESSING)
+        if (!admin && order.getStatus() != OrderStatus.PENDING && order.getStatus() != OrderStatus.PROCESSING) {
+            throw new IllegalStateException("Cannot cancel order. Order has already been " + order.getStatus().toString().toLowerCase() + ". Only orders with PENDING or PROCESSING status can be cancelled.");
+        }
+
+        OrderStatus oldStatus = order.getStatus();
+        order.setStatus(OrderStatus.CANCELLED);
+
+        // Restore product quantities
+        for (OrderItem item : order.getItems()) {
+            inventoryService.release(item.getProduct().getId(), item.getQuantity());
+        }
+
+        orderRepository.save(order);
+        orderAnalyticsService.recordStatusChange(order, oldStatus, OrderStatus.CANCELLED);
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), order.getUser().getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public OrderDetailsResponse getOrderDetails(Long id, String baseUrl) {
+        return OrderDetailsResponse.fromOrder(findWithItems(id), baseUrl);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderDetailsResponse> getOrderDetailsByUser(Long userId, String baseUrl) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
+        return orderRepository.findByUser(user).stream()
+            .map(order -> OrderDetailsResponse.fromOrder(order, baseUrl))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Sets the status as given, without the fulfilment checks and stock changes of
+     * {@link #updateStatus}.
+     */
+    @Transactional
+    public OrderDetailsResponse overrideStatus(Long id, OrderStatus status, String baseUrl) {
+        Order order = findWithItems(id);
+        OrderStatus oldStatus = order.getStatus();
+        order.setStatus(status);
+        orderRepository.save(order);
+        orderAnalyticsService.recordStatusChange(order, oldStatus, status);
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), order.getUser().getId()));
+        return OrderDetailsResponse.fromOrder(order, baseUrl);
+    }
+
+    /**
+     * Every order with its details and the full profile of the user who placed it.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllWithUserDetails(String baseUrl) {
+        // Using a join fetch to eagerly load the orders with items and user data
+        return orderRepository.findAllWithItemsAndUser().stream()
+            .map(order -> {
+                Map<String, Object> response = new HashMap<>();
+
+                // Order details
+                response.put("order", OrderDetailsResponse.fromOrder(order, baseUrl));
+
+                // Detailed user information
+                User user = order.getUser();
+                Map<String, Object> userDetails = new HashMap<>();
+                userDetails.put("id", user.getId());
+                userDetails.put("name", user.getName());
+                userDetails.put("email", user.getEmail());
+                userDetails.put("phone", user.getPhone());
+                userDetails.put("profileImage", user.getProfileImage() != null ?
+                    baseUrl + "/files/profiles/" + user.getProfileImage() : null);
+                userDetails.put("addressLine1", user.getAddressLine1());
+                userDetails.put("addressLine2", user.getAddressLine2());
+                userDetails.put("city", user.getCity());
+                userDetails.put("state", user.getState());
+                userDetails.put("postalCode", user.getPostalCode());
+                userDetails.put("country", user.getCountry());
+                userDetails.put("roles", user.getRoles().stream()
+                    .map(role -> role.getName().name())
+                    .collect(Collectors.toList()));
+                userDetails.put("createdAt", user.getCreatedAt());
+
+                response.put("userDetails", userDetails);
+
+                return response;
+            })
+            .collect(Collectors.toList());
+    }
+
+    private Order findWithItems(Long id) {
+        Order order = orderRepository.findByIdWithItems(id);
+        if (order == null) {
+            throw new EntityNotFoundException("Order not found with id: " + id);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,80 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.payload.response.OrderStatisticsResponse;
+import com.smartshop.api.repositories.OrderRepository;
+import com.smartshop.api.repositories.projections.DailyRevenue;
+import com.smartshop.api.repositories.projections.OrderStatusSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the admin order statistics from two aggregate queries: a per-status summary and a
+ * per-day revenue series. No Order entities are loaded.
+ */
+@Service
+public class OrderStatisticsService {
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private static final int REVENUE_DAYS = 7;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Transactional(readOnly = true)
+    public OrderStatisticsResponse getStatistics() {
+        OrderStatisticsResponse statistics = new OrderStatisticsResponse();
+
+        long totalOrders = 0;
+        long totalUsers = 0;
+        long totalProductsSold = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        Map<String, Long> ordersByStatus = new HashMap<>();
+
+        List<OrderStatusSummary> summaries = orderRepository.summarizeByStatus();
+        for (OrderStatusSummary summary : summaries) {
+            ordersByStatus.put(summary.getStatus().name(), summary.getOrderCount());
+            totalOrders += summary.getOrderCount();
+            if (summary.getTotalAmount() != null) {
+                totalAmount = totalAmount.add(summary.getTotalAmount());
+            }
+            totalUsers = summary.getTotalUsers() != null ? summary.getTotalUsers() : 0L;
+            totalProductsSold = summary.getTotalProductsSold() != null ? summary.getTotalProductsSold() : 0L;
+        }
+
+        statistics.setTotalOrders(totalOrders);
+        statistics.setTotalUsers(totalUsers);
+        statistics.setTotalAmount(totalAmount);
+        statistics.setTotalProductsSold(totalProductsSold);
+        statistics.setOrdersByStatus(ordersByStatus);
+        statistics.setPendingOrders(ordersByStatus.getOrDefault("PENDING", 0L));
+        statistics.setCompletedOrders(ordersByStatus.getOrDefault("DELIVERED", 0L));
+        statistics.setAverageOrderValue(totalOrders > 0 ?
+                totalAmount.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+
+        // Revenue by day, oldest first, with zero for days without orders
+        LocalDate firstDay = LocalDate.now().minusDays(REVENUE_DAYS - 1);
+        Map<String, BigDecimal> revenueByDay = new LinkedHashMap<>();
+        for (int i = 0; i < REVENUE_DAYS; i++) {
+            revenueByDay.put(firstDay.plusDays(i).format(DAY_FORMAT), BigDecimal.ZERO);
+        }
+        for (DailyRevenue day : orderRepository.sumRevenueByDaySince(firstDay.atStartOfDay())) {
+            String key = day.getDay().toLocalDate().format(DAY_FORMAT);
+            if (revenueByDay.containsKey(key) && day.getRevenue() != null) {
+                revenueByDay.put(key, day.getRevenue());
+            }
+        }
+        statistics.setRevenueByDay(revenueByDay);
+
+        return statistics;
+    }
+}
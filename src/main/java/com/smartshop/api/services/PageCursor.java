@@ -0,0 +1,65 @@
+package com.smartshop.api.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor shared by the paginated listings: the sort key and id of the last row
+ * returned, Base64url-encoded. Malformed cursors are rejected with IllegalArgumentException.
+ */
+final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    static String encode(String sortKey, Long id) {
+        String raw = sortKey + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the sort key and the id, in that order
+     */
+    static String[] decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    static Long parseId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Sort key for a creation time; rows without one get an empty key.
+     */
+    static String formatCreatedAt(LocalDateTime createdAt) {
+        return createdAt != null ? createdAt.toString() : "";
+    }
+
+    /**
+     * @return the creation time, or null for a row that has none
+     */
+    static LocalDateTime parseCreatedAt(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.User;
+import com.smartshop.api.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+
+/**
+ * Issues password reset OTPs. The OTP and its email are committed together, so a user never
+ * has an OTP that was not queued for delivery, or an email for an OTP that was rolled back.
+ */
+@Service
+public class PasswordResetService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Transactional
+    public void issueOtp(User user) {
+        // Generate 6-digit OTP
+        String otp = String.format("%06d", RANDOM.nextInt(1_000_000));
+        user.setOtp(otp);
+        user.setOtpExpiryTime(LocalDateTime.now().plusMinutes(10)); // OTP valid for 10 minutes
+        userRepository.save(user);
+
+        emailService.queueOtpEmail(user.getEmail(), otp, user.getOtpExpiryTime());
+    }
+}
@@ -0,0 +1,104 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.payload.response.ProductPageResponse;
+import com.smartshop.api.payload.response.ProductResponse;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.repositories.projections.ProductRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset (cursor) pagination over the product catalog.
+ *
+ * Each page is a single projection query that joins category and subcategory and fetches
+ * size + 1 rows; the extra row only tells us whether another page exists. The cursor encodes
+ * the sort key and id of the last row returned, so deep pages cost the same as the first one.
+ */
+@Service
+public class ProductCatalogService {
+
+    public enum ProductSort {
+        NEWEST,
+        PRICE_ASC
+    }
+
+    @Value("${catalog.page-size.default:20}")
+    private int defaultPageSize;
+
+    @Value("${catalog.page-size.max:100}")
+    private int maxPageSize;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Transactional(readOnly = true)
+    public ProductPageResponse getPage(ProductSort sort, String cursor, Integer size,
+                                       Long categoryId, Long subCategoryId, String baseUrl) {
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<ProductRow> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = sort == ProductSort.PRICE_ASC
+                    ? productRepository.findPriceAscPage(categoryId, subCategoryId, limit)
+                    : productRepository.findNewestPage(categoryId, subCategoryId, limit);
+        } else {
+            String[] key = PageCursor.decode(cursor);
+            Long lastId = PageCursor.parseId(key[1]);
+            if (sort == ProductSort.PRICE_ASC) {
+                rows = productRepository.findPriceAscPageAfter(categoryId, subCategoryId, parsePrice(key[0]), lastId, limit);
+            } else {
+                LocalDateTime createdAt = PageCursor.parseCreatedAt(key[0]);
+                rows = createdAt != null
+                        ? productRepository.findNewestPageAfter(categoryId, subCategoryId, createdAt, lastId, limit)
+                        : productRepository.findNewestPageAfterUndated(categoryId, subCategoryId, lastId, limit);
+            }
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            ProductRow last = page.get(page.size() - 1);
+            String sortKey = sort == ProductSort.PRICE_ASC
+                    ? last.getPrice().toPlainString()
+                    : PageCursor.formatCreatedAt(last.getCreatedAt());
+            nextCursor = PageCursor.encode(sortKey, last.getId());
+        }
+
+        List<ProductResponse> items = page.stream()
+                .map(row -> ProductResponse.fromRow(row, baseUrl))
+                .collect(Collectors.toList());
+
+        return new ProductPageResponse(items, items.size(), hasMore, nextCursor);
+    }
+
+    public static ProductSort parseSort(String sort) {
+        if (sort == null || sort.isEmpty()) {
+            return ProductSort.NEWEST;
+        }
+        try {
+            return ProductSort.valueOf(sort.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid sort. Valid options are: newest, price_asc");
+        }
+    }
+
+    private static BigDecimal parsePrice(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.events.CatalogChangedEvent;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-process inverted index over product names and descriptions.
+ *
+ * Terms are kept in a sorted map so every query term matches both exactly and as a prefix
+ * ("lap" finds "laptop"), across all terms with that prefix. All query terms must match. Hits are ranked by a weighted
+ * TF-IDF score in which name matches count three times as much as description matches.
+ * Category and price facets are counted over the matching documents.
+ *
+ * The index is built from the database at startup (see SearchIndexInitializer) and is kept in
+ * sync by re-reading a product once a CatalogChangedEvent for it has committed, so rolled back
+ * changes never reach the index. Changes made while a rebuild is reading the table are buffered
+ * and replayed onto the new index when it is swapped in. Until it is ready, callers fall back to
+ * the LIKE queries in ProductRepository.
+ */
+@Service
+public class ProductSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    // Upper bounds of the price facet buckets; anything above the last one goes in the open bucket
+    private static final long[] PRICE_BUCKETS = {500, 1000, 5000, 10000};
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private Map<Long, Document> documents = new HashMap<>();
+    // Set while a rebuild runs: the latest change per product, null for a removal (guarded by lock)
+    private Map<Long, PendingChange> changesDuringRebuild;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        NavigableMap<String, Map<Long, Float>> newPostings = new TreeMap<>();
+        Map<Long, Document> newDocuments = new HashMap<>();
+        long lastId = 0;
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            while (true) {
+                List<Object[]> rows = productRepository.findSearchDocumentsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : rows) {
+                    Document document = toDocument(row);
+                    addDocument(newPostings, newDocuments, document, (String) row[1], (String) row[2]);
+                    lastId = document.id;
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                postings = newPostings;
+                documents = newDocuments;
+                // The rebuild may have read these products before they changed
+                for (Map.Entry<Long, PendingChange> change : changesDuringRebuild.entrySet()) {
+                    removeDocument(change.getKey());
+                    if (change.getValue() != null) {
+                        PendingChange pending = change.getValue();
+                        addDocument(postings, documents, pending.document, pending.name, pending.description);
+                    }
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        logger.info("Built product search index: {} products, {} terms in {} ms",
+                newDocuments.size(), newPostings.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Re-reads a changed product once its transaction has committed and updates or removes its
+     * index entry. Runs in a new read-write transaction so the read goes to the primary and sees
+     * the change even when read replicas are configured.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!enabled || event.getType() != CatalogChangedEvent.Type.PRODUCT || event.getId() == null) {
+            return;
+        }
+
+        List<Object[]> rows = productRepository.findSearchDocument(event.getId());
+        if (rows.isEmpty()) {
+            remove(event.getId());
+        } else {
+            Object[] row = rows.get(0);
+            index(toDocument(row), (String) row[1], (String) row[2]);
+        }
+    }
+
+    private void index(Document document, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(document.id);
+            addDocument(postings, documents, document, name, description);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.put(document.id, new PendingChange(document, name, description));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.put(productId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchResult search(String query, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new SearchResult(Collections.emptyList(), 0, Collections.emptyMap(), Collections.emptyMap());
+        }
+
+        lock.readLock().lock();
+        try {
+            // Score every term separately, then intersect starting from the rarest term
+            List<Map<Long, Float>> termScores = new ArrayList<>();
+            for (String term : terms) {
+                Map<Long, Float> scores = scoreTerm(term);
+                if (scores.isEmpty()) {
+                    return new SearchResult(Collections.emptyList(), 0, Collections.emptyMap(), Collections.emptyMap());
+                }
+                termScores.add(scores);
+            }
+            termScores.sort(Comparator.comparingInt(Map::size));
+
+            Map<Long, Float> matches = new HashMap<>(termScores.get(0));
+            for (int i = 1; i < termScores.size() && !matches.isEmpty(); i++) {
+                Map<Long, Float> next = termScores.get(i);
+                matches.entrySet().removeIf(entry -> !next.containsKey(entry.getKey()));
+                matches.replaceAll((id, score) -> score + next.get(id));
+            }
+
+            Map<Long, Long> categoryFacets = new HashMap<>();
+            Map<String, Long> priceFacets = new LinkedHashMap<>();
+            PriorityQueue<Map.Entry<Long, Float>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+            int total = 0;
+
+            for (Map.Entry<Long, Float> match : matches.entrySet()) {
+                Document document = documents.get(match.getKey());
+                boolean categoryOk = categoryId == null || categoryId.equals(document.categoryId);
+                boolean priceOk = inPriceRange(document.price, minPrice, maxPrice);
+
+                // Each facet ignores its own filter so clients can show the alternatives
+                if (priceOk && document.categoryId != null) {
+                    categoryFacets.merge(document.categoryId, 1L, Long::sum);
+                }
+                if (categoryOk) {
+                    priceFacets.merge(priceBucket(document.price), 1L, Long::sum);
+                }
+
+                if (categoryOk && priceOk) {
+                    total++;
+                    top.offer(match);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Long> ids = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                ids.add(top.poll().getKey());
+            }
+            Collections.reverse(ids);
+
+            return new SearchResult(ids, total, categoryFacets, priceFacets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Product> loadProducts(List<Long> rankedIds) {
+        if (rankedIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, Product> products = productRepository.findAllWithCategoriesByIdIn(rankedIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return rankedIds.stream()
+                .map(products::get)
+                .filter(product -> product != null)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Float> scoreTerm(String term) {
+        Map<Long, Float> scores = new HashMap<>();
+
+        // Every term with this prefix counts, so short prefixes still get complete totals and facets
+        for (Map.Entry<String, Map<Long, Float>> entry : postings.tailMap(term, true).entrySet()) {
+            if (!entry.getKey().startsWith(term)) {
+                break;
+            }
+            float factor = entry.getKey().equals(term) ? 1.0f : PREFIX_MATCH_FACTOR;
+            float idf = (float) Math.log(1.0 + (double) documents.size() / entry.getValue().size());
+            for (Map.Entry<Long, Float> posting : entry.getValue().entrySet()) {
+                scores.merge(posting.getKey(), posting.getValue() * idf * factor, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private static Document toDocument(Object[] row) {
+        return new Document((Long) row[0], (BigDecimal) row[3], (Long) row[4]);
+    }
+
+    private void removeDocument(Long productId) {
+        Document existing = documents.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms) {
+            Map<Long, Float> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static void addDocument(NavigableMap<String, Map<Long, Float>> postings, Map<Long, Document> documents,
+                                    Document document, String name, String description) {
+        Map<String, Float> weights = new HashMap<>();
+        for (String term : tokenize(name)) {
+            weights.merge(term, NAME_WEIGHT, Float::sum);
+        }
+        for (String term : tokenize(description)) {
+            weights.merge(term, DESCRIPTION_WEIGHT, Float::sum);
+        }
+
+        for (Map.Entry<String, Float> weight : weights.entrySet()) {
+            // Dampen repeated terms so long descriptions do not dominate the ranking
+            float score = (float) (1.0 + Math.log(weight.getValue()));
+            postings.computeIfAbsent(weight.getKey(), term -> new HashMap<>()).put(document.id, score);
+        }
+        document.terms = weights.keySet().toArray(new String[0]);
+        documents.put(document.id, document);
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static boolean inPriceRange(BigDecimal price, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (price == null) {
+            return minPrice == null && maxPrice == null;
+        }
+        return (minPrice == null || price.compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+    }
+
+    private static String priceBucket(BigDecimal price) {
+        if (price == null) {
+            return "unknown";
+        }
+        long lower = 0;
+        for (long upper : PRICE_BUCKETS) {
+            if (price.compareTo(BigDecimal.valueOf(upper)) < 0) {
+                return lower + "-" + upper;
+            }
+            lower = upper;
+        }
+        return lower + "+";
+    }
+
+    private static class Document {
+        private final Long id;
+        private final BigDecimal price;
+        private final Long categoryId;
+        // Terms this product was indexed under, so it can be removed without re-tokenizing
+        private String[] terms;
+
+        Document(Long id, BigDecimal price, Long categoryId) {
+            this.id = id;
+            this.price = price;
+            this.categoryId = categoryId;
+        }
+    }
+
+    private static class PendingChange {
+        private final Document document;
+        private final String name;
+        private final String description;
+
+        PendingChange(Document document, String name, String description) {
+            this.document = document;
+            this.name = name;
+            this.description = description;
+        }
+    }
+
+    public static class SearchResult {
+        private final List<Long> productIds;
+        private final int total;
+        private final Map<Long, Long> categoryFacets;
+        private final Map<String, Long> priceFacets;
+
+        public SearchResult(List<Long> productIds, int total, Map<Long, Long> categoryFacets, Map<String, Long> priceFacets) {
+            this.productIds = productIds;
+            this.total = total;
+            this.categoryFacets = categoryFacets;
+            this.priceFacets = priceFacets;
+        }
+
+        public List<Long> getProductIds() {
+            return productIds;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public Map<Long, Long> getCategoryFacets() {
+            return categoryFacets;
+        }
+
+        public Map<String, Long> getPriceFacets() {
+            return priceFacets;
+        }
+    }
+}
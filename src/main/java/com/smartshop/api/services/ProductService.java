@@ -0,0 +1,187 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.events.CatalogChangedEvent;
+import com.smartshop.api.events.FileReplacedEvent;
+import com.smartshop.api.models.Category;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.payload.response.ProductResponse;
+import com.smartshop.api.repositories.CategoryRepository;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.repositories.SubCategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Product reads that are not cached by CatalogReadService, and product writes.
+ *
+ * ProductResponse reads the lazy category and subcategory, so every method maps its products
+ * inside its own transaction and returns DTOs only; nothing needs the session after it returns.
+ */
+@Service
+public class ProductService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SubCategoryRepository subCategoryRepository;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Uses the search index when it is ready and falls back to the LIKE queries otherwise.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductResponse> search(String name, String query, Long categoryId, BigDecimal minPrice,
+                                        BigDecimal maxPrice, Integer limit, String baseUrl) {
+        List<Product> products;
+        String text = name != null && !name.isEmpty() ? name : query;
+
+        if (text != null && !text.isEmpty() && productSearchService.isReady()) {
+            ProductSearchService.SearchResult result = productSearchService.search(
+                    text, categoryId, minPrice, maxPrice, limit != null && limit > 0 ? limit : Integer.MAX_VALUE);
+            products = productSearchService.loadProducts(result.getProductIds());
+        } else {
+            // Until the index is ready the LIKE queries stand in for it, with the same limit
+            Pageable page = limit != null && limit > 0 ? PageRequest.of(0, limit, Sort.by("id")) : Pageable.unpaged();
+            if (name != null && !name.isEmpty()) {
+                products = productRepository.findByNameContainingIgnoreCase(name, page);
+            } else if (query != null && !query.isEmpty()) {
+                products = productRepository.search(query, page);
+            } else if (page.isPaged()) {
+                products = productRepository.findAllBy(page);
+            } else {
+                products = productRepository.findAll();
+            }
+        }
+        return toResponses(products, baseUrl);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductResponse> filter(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, String baseUrl) {
+        return toResponses(productRepository.filter(categoryId, minPrice, maxPrice), baseUrl);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductResponse> getBySubCategory(Long subCategoryId, String baseUrl) {
+        return toResponses(productRepository.findBySubCategoryId(subCategoryId), baseUrl);
+    }
+
+    /**
+     * Creates a product and indexes it. The image, if given, must already be stored.
+     *
+     * @param discountPercentage discount off the price, or null for none
+     * @param imageUrl path of the stored image, or null for none
+     * @throws EntityNotFoundException if the category or subcategory does not exist
+     */
+    @Transactional
+    public ProductResponse create(String name, String description, BigDecimal price, Integer stockQuantity,
+                                  Long categoryId, Long subCategoryId, Integer discountPercentage, String imageUrl,
+                                  String baseUrl) {
+        Category category = categoryRepository.findById(categoryId)
+                .orElseThrow(() -> new EntityNotFoundException("Category not found with id: " + categoryId));
+
+        Product product = new Product(name, description, price, stockQuantity, category);
+        product.setSubCategory(subCategoryRepository.findById(subCategoryId)
+                .orElseThrow(() -> new EntityNotFoundException("SubCategory not found with id: " + subCategoryId)));
+
+        // Also sets the discounted price
+        if (discountPercentage != null && discountPercentage > 0) {
+            product.setDiscountPercentage(discountPercentage);
+        }
+        product.setImageUrl(imageUrl);
+
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.PRODUCT, savedProduct.getId()));
+        return ProductResponse.fromProduct(savedProduct, baseUrl);
+    }
+
+    /**
+     * Updates a product and re-indexes it. A new image, if given, must already be stored; the
+     * previous image is deleted once the update commits.
+     *
+     * @param categoryId new category, or null to keep the current one
+     * @param subCategoryId new subcategory, or null to keep the current one
+     * @param newImageUrl path of the newly stored image, or null to keep the current one
+     */
+    @Transactional
+    public ProductResponse update(Long id, String name, String description, BigDecimal price, Integer stockQuantity,
+                                  Long categoryId, Long subCategoryId, String newImageUrl, String baseUrl) {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id));
+
+        // Update basic properties
+        product.setName(name);
+        product.setDescription(description);
+        product.setPrice(price);
+        product.setStockQuantity(stockQuantity);
+
+        // Update category if provided
+        if (categoryId != null) {
+            Category category = categoryRepository.findById(categoryId)
+                    .orElseThrow(() -> new EntityNotFoundException("Category not found with id: " + categoryId));
+            product.setCategory(category);
+        }
+
+        // Update subcategory if provided
+        if (subCategoryId != null) {
+            product.setSubCategory(subCategoryRepository.findById(subCategoryId)
+                    .orElseThrow(() -> new EntityNotFoundException("SubCategory not found with id: " + subCategoryId)));
+        }
+
+        String oldImageUrl = null;
+        if (newImageUrl != null) {
+            oldImageUrl = product.getImageUrl();
+            product.setImageUrl(newImageUrl);
+        }
+
+        Product updatedProduct = productRepository.save(product);
+        if (oldImageUrl != null && !oldImageUrl.isEmpty()) {
+            // Deleted after commit, so a failed update still has its image
+            eventPublisher.publishEvent(new FileReplacedEvent(oldImageUrl));
+        }
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.PRODUCT, updatedProduct.getId()));
+        return ProductResponse.fromProduct(updatedProduct, baseUrl);
+    }
+
+    /**
+     * Deletes a product and removes it from the index. Its image is deleted once the delete
+     * commits, so a failed delete leaves the product with its image.
+     *
+     * @throws EntityNotFoundException if the product does not exist
+     */
+    @Transactional
+    public void delete(Long id) {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id));
+
+        productRepository.delete(product);
+        if (product.getImageUrl() != null && !product.getImageUrl().isEmpty()) {
+            eventPublisher.publishEvent(new FileReplacedEvent(product.getImageUrl()));
+        }
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.PRODUCT, id));
+    }
+
+    private static List<ProductResponse> toResponses(List<Product> products, String baseUrl) {
+        return products.stream()
+                .map(product -> ProductResponse.fromProduct(product, baseUrl))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,38 @@
+package com.smartshop.api.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs the body of a slow endpoint. With web.async.enabled the work goes to the bounded
+ * slowEndpointTaskExecutor and the controller returns a CompletableFuture, so Spring MVC
+ * releases the Tomcat thread until the result is ready. Otherwise the work runs inline and
+ * behaves exactly like a blocking handler.
+ *
+ * The supplier runs without the request or security context, so callers must read anything
+ * they need from the request (such as the base URL) before handing work over. A full executor
+ * surfaces as TaskRejectedException, which GlobalExceptionHandler turns into 503.
+ */
+@Service
+public class SlowEndpointExecutor {
+
+    @Value("${web.async.enabled:false}")
+    private boolean enabled;
+
+    @Autowired
+    @Qualifier("slowEndpointTaskExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    public <T> CompletableFuture<T> run(Supplier<T> work) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+}
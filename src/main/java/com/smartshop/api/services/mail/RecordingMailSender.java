@@ -0,0 +1,59 @@
+package com.smartshop.api.services.mail;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.stream.Collectors;
+
+/**
+ * Local stand-in for SMTP, enabled with email.delivery=log. Messages are logged and the most
+ * recent ones kept in memory instead of being sent, so password reset and the email outbox can
+ * be exercised in development and tests without a mail server.
+ */
+public class RecordingMailSender extends JavaMailSenderImpl {
+    private static final Logger logger = LoggerFactory.getLogger(RecordingMailSender.class);
+
+    private final int capacity;
+    private final Deque<MimeMessage> sent = new ConcurrentLinkedDeque<>();
+
+    public RecordingMailSender(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) throws MailException {
+        for (MimeMessage message : mimeMessages) {
+            try {
+                String to = Arrays.stream(message.getAllRecipients())
+                        .map(address -> ((InternetAddress) address).getAddress())
+                        .collect(Collectors.joining(", "));
+                logger.info("Recorded email to {}: {}", to, message.getSubject());
+            } catch (MessagingException e) {
+                throw new MailPreparationException("Could not read recorded message", e);
+            }
+            sent.addLast(message);
+            while (sent.size() > capacity) {
+                sent.pollFirst();
+            }
+        }
+    }
+
+    public List<MimeMessage> getSentMessages() {
+        return new ArrayList<>(sent);
+    }
+
+    public void clear() {
+        sent.clear();
+    }
+}
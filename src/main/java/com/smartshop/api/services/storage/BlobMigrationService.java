@@ -0,0 +1,100 @@
+package com.smartshop.api.services.storage;
+
+import com.smartshop.api.models.FileData;
+import com.smartshop.api.models.StorageBackend;
+import com.smartshop.api.repositories.FileDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Moves file content out of file_data.data into the filesystem blob store in the background.
+ *
+ * Every tick handles one small batch. For each row the content is written to the filesystem
+ * first, and only then is the row switched over by a conditional update that also clears the
+ * BYTEA column, so the file stays readable throughout. A download that read the metadata just
+ * before the switch falls back to the filesystem copy (see FileStorageService.copyFileRange).
+ */
+@Service
+public class BlobMigrationService {
+    private static final Logger logger = LoggerFactory.getLogger(BlobMigrationService.class);
+
+    private static final byte[] NO_DATA = new byte[0];
+
+    @Value("${file.blob.migration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${file.blob.migration.batch-size:20}")
+    private int batchSize;
+
+    @Autowired
+    private FileDataRepository fileDataRepository;
+
+    @Autowired
+    private DatabaseBlobStore databaseBlobStore;
+
+    @Autowired
+    private FileSystemBlobStore fileSystemBlobStore;
+
+    // Rows that failed are skipped until the next restart
+    private volatile long lastId;
+    private volatile boolean finished;
+
+    @Scheduled(initialDelayString = "${file.blob.migration.initial-delay-ms:60000}",
+               fixedDelayString = "${file.blob.migration.interval-ms:5000}")
+    public void migrateBatch() {
+        if (!enabled || finished) {
+            return;
+        }
+
+        List<Long> ids = fileDataRepository.findIdsByStorageAfter(StorageBackend.DATABASE, lastId, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            finished = true;
+            logger.info("Blob migration finished, no file content left in the database");
+            return;
+        }
+
+        int moved = 0;
+        for (Long id : ids) {
+            lastId = id;
+            try {
+                if (migrate(id)) {
+                    moved++;
+                }
+            } catch (Exception e) {
+                logger.error("Failed to migrate file {} to the filesystem: {}", id, e.getMessage(), e);
+            }
+        }
+        logger.info("Migrated {} of {} files to the filesystem blob store", moved, ids.size());
+    }
+
+    private boolean migrate(Long id) throws Exception {
+        byte[] data = databaseBlobStore.read(id, null);
+        if (data.length == 0) {
+            return false;
+        }
+
+        String contentHash = FileData.sha256Hex(data);
+        fileSystemBlobStore.write(contentHash, data);
+
+        int updated;
+        try {
+            updated = fileDataRepository.moveToStorage(id, StorageBackend.DATABASE, StorageBackend.FILESYSTEM,
+                    (long) data.length, contentHash, NO_DATA);
+        } finally {
+            fileSystemBlobStore.unpin(contentHash);
+        }
+        if (updated == 0) {
+            // Deleted or already moved in the meantime; drop the blob if nothing uses it
+            fileSystemBlobStore.release(contentHash);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package com.smartshop.api.services.storage;
+
+import com.smartshop.api.models.FileData;
+import com.smartshop.api.models.StorageBackend;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Holds the bytes of stored files. FileData rows always keep the metadata (path, type, size,
+ * content hash); the store recorded in FileData.storage keeps the content.
+ */
+public interface BlobStore {
+
+    StorageBackend getBackend();
+
+    /**
+     * Saves the content for a FileData row that is about to be inserted and records this store on it.
+     * The row's contentHash must already be set.
+     */
+    void store(FileData fileData, byte[] data) throws IOException;
+
+    /**
+     * Called after the row passed to {@link #store} has been saved, or its save has failed.
+     */
+    default void storeCompleted(FileData fileData) {
+    }
+
+    boolean exists(Long fileId, String contentHash);
+
+    byte[] read(Long fileId, String contentHash) throws IOException;
+
+    /**
+     * Copies length bytes starting at offset to the output stream.
+     *
+     * @return the number of bytes written; 0 if the content is no longer in this store
+     */
+    long copyRange(Long fileId, String contentHash, long offset, long length, OutputStream outputStream) throws IOException;
+
+    /**
+     * Called after a FileData row has been deleted, so the store can drop content nothing refers to.
+     */
+    void release(String contentHash);
+}
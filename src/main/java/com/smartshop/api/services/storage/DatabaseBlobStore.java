@@ -0,0 +1,78 @@
+package com.smartshop.api.services.storage;
+
+import com.smartshop.api.models.FileData;
+import com.smartshop.api.models.StorageBackend;
+import com.smartshop.api.repositories.FileDataRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Keeps file content in the file_data.data BYTEA column, next to its metadata.
+ */
+@Component
+public class DatabaseBlobStore implements BlobStore {
+
+    @Value("${file.stream.chunk-size:262144}")
+    private int chunkSize;
+
+    @Autowired
+    private FileDataRepository fileDataRepository;
+
+    @Override
+    public StorageBackend getBackend() {
+        return StorageBackend.DATABASE;
+    }
+
+    @Override
+    public void store(FileData fileData, byte[] data) {
+        fileData.setData(data);
+        fileData.setStorage(StorageBackend.DATABASE);
+    }
+
+    @Override
+    public boolean exists(Long fileId, String contentHash) {
+        return fileDataRepository.existsByIdInStorage(fileId, StorageBackend.DATABASE);
+    }
+
+    @Override
+    public byte[] read(Long fileId, String contentHash) throws IOException {
+        byte[] data = fileDataRepository.findDataById(fileId);
+        if (data == null) {
+            throw new IOException("File data not found for id: " + fileId);
+        }
+        return data;
+    }
+
+    /**
+     * Each chunk is a separate short query, so the connection goes back to the pool while the client reads.
+     */
+    @Override
+    public long copyRange(Long fileId, String contentHash, long offset, long length, OutputStream outputStream) throws IOException {
+        long position = offset;
+        long remaining = length;
+
+        while (remaining > 0) {
+            int chunkLength = (int) Math.min(chunkSize, remaining);
+            byte[] chunk = fileDataRepository.findDataChunk(fileId, position + 1, chunkLength);
+            if (chunk == null || chunk.length == 0) {
+                if (position == offset) {
+                    return 0;
+                }
+                throw new IOException("Unexpected end of file data for id: " + fileId);
+            }
+            outputStream.write(chunk);
+            position += chunk.length;
+            remaining -= chunk.length;
+        }
+        return length;
+    }
+
+    @Override
+    public void release(String contentHash) {
+        // The content was deleted together with its row
+    }
+}
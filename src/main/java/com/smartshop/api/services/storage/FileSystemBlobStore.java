@@ -0,0 +1,182 @@
+package com.smartshop.api.services.storage;
+
+import com.smartshop.api.models.FileData;
+import com.smartshop.api.models.StorageBackend;
+import com.smartshop.api.repositories.FileDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed store on the local filesystem.
+ *
+ * Each blob is written once under root/ab/cd/&lt;sha-256&gt;, so identical uploads share a file and
+ * a blob is only removed when no FileData row refers to its hash any more. Writes go to a temp
+ * file that is atomically renamed into place, so readers never see a partial blob. Reads stream
+ * the requested range through a small buffer, so a large file never sits on the heap as a whole,
+ * and no database connection is needed for the body.
+ *
+ * A write pins its hash until the caller has saved (or failed to save) the row that refers to it,
+ * and writes and releases of the same hash are serialized. Otherwise release() for a deleted
+ * duplicate could count no rows and delete the file while an identical upload, which found the
+ * file already present, has yet to commit its row.
+ */
+@Component
+public class FileSystemBlobStore implements BlobStore {
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemBlobStore.class);
+
+    private static final byte[] NO_DATA = new byte[0];
+
+    @Value("${file.blob.fs.root:./uploads/blobs}")
+    private String root;
+
+    @Autowired
+    private FileDataRepository fileDataRepository;
+
+    private Path rootPath;
+
+    // Striped locks for write/release of one hash, and the writes whose rows are not saved yet
+    private final Object[] locks = new Object[64];
+    private final Map<String, Integer> pinned = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        rootPath = Paths.get(root).toAbsolutePath().normalize();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public StorageBackend getBackend() {
+        return StorageBackend.FILESYSTEM;
+    }
+
+    @Override
+    public void store(FileData fileData, byte[] data) throws IOException {
+        write(fileData.getContentHash(), data);
+        // file_data.data is NOT NULL in existing schemas, so keep an empty value there
+        fileData.setData(NO_DATA);
+        fileData.setStorage(StorageBackend.FILESYSTEM);
+    }
+
+    @Override
+    public void storeCompleted(FileData fileData) {
+        unpin(fileData.getContentHash());
+    }
+
+    /**
+     * Writes the blob unless it already exists and pins it against release() until
+     * {@link #unpin} is called, which the caller must do once the referring row is saved or the
+     * save has failed.
+     */
+    public void write(String contentHash, byte[] data) throws IOException {
+        Path target = pathFor(contentHash);
+        synchronized (lockFor(contentHash)) {
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Path temp = Files.createTempFile(target.getParent(), contentHash, ".tmp");
+                try {
+                    Files.write(temp, data);
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            synchronized (pinned) {
+                pinned.merge(contentHash, 1, Integer::sum);
+            }
+        }
+    }
+
+    public void unpin(String contentHash) {
+        synchronized (pinned) {
+            pinned.computeIfPresent(contentHash, (hash, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    @Override
+    public boolean exists(Long fileId, String contentHash) {
+        return contentHash != null && Files.exists(pathFor(contentHash));
+    }
+
+    @Override
+    public byte[] read(Long fileId, String contentHash) throws IOException {
+        return Files.readAllBytes(pathFor(contentHash));
+    }
+
+    @Override
+    public long copyRange(Long fileId, String contentHash, long offset, long length, OutputStream outputStream) throws IOException {
+        Path path = pathFor(contentHash);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Not zero-copy: the servlet stream is not a channel, so transferTo copies through a heap buffer
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    throw new IOException("Unexpected end of blob: " + contentHash);
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public void release(String contentHash) {
+        if (contentHash == null) {
+            return;
+        }
+        synchronized (lockFor(contentHash)) {
+            synchronized (pinned) {
+                if (pinned.containsKey(contentHash)) {
+                    return;
+                }
+            }
+            if (fileDataRepository.countByContentHashAndStorage(contentHash, StorageBackend.FILESYSTEM) > 0) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(pathFor(contentHash));
+            } catch (IOException e) {
+                logger.warn("Could not delete blob {}: {}", contentHash, e.getMessage());
+            }
+        }
+    }
+
+    private Object lockFor(String contentHash) {
+        return locks[Math.floorMod(contentHash.hashCode(), locks.length)];
+    }
+
+    private Path pathFor(String contentHash) {
+        if (contentHash == null || contentHash.length() < 4 || !contentHash.matches("[0-9a-f]+")) {
+            throw new IllegalArgumentException("Invalid content hash: " + contentHash);
+        }
+        return rootPath.resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+    }
+}
@@ -8,7 +8,10 @@ CREATE TABLE IF NOT EXISTS file_data (
     type VARCHAR(255) NOT NULL,
     path VARCHAR(255) NOT NULL UNIQUE,
     data BYTEA NOT NULL,
-    created_at TIMESTAMP
+    created_at TIMESTAMP,
+    content_hash VARCHAR(64),
+    storage VARCHAR(16),
+    size_bytes BIGINT
 );
 
 -- Create index on path for better lookup performance
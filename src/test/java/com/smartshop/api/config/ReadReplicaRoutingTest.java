@@ -0,0 +1,228 @@
+package com.smartshop.api.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.smartshop.api.events.CatalogChangedEvent;
+import com.smartshop.api.models.FileData;
+import com.smartshop.api.models.Order;
+import com.smartshop.api.models.OrderStatus;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.User;
+import com.smartshop.api.payload.response.OrderDTO;
+import com.smartshop.api.payload.response.ProductResponse;
+import com.smartshop.api.repositories.projections.FileMetadata;
+import com.smartshop.api.services.CatalogReadService;
+import com.smartshop.api.services.FileStorageService;
+import com.smartshop.api.services.OrderQueryService;
+import com.smartshop.api.services.OrderService;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import com.smartshop.api.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.Container;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.images.builder.Transferable;
+
+import javax.persistence.EntityNotFoundException;
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static com.smartshop.api.support.TestData.item;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the application with a replica that never receives the primary's writes, i.e. one that
+ * is behind by everything the test writes. Read-only transactions must go there, except for the
+ * reads that ReadYourWrites sends to the primary after a write or a replica miss.
+ */
+class ReadReplicaRoutingTest extends PostgresIntegrationTest {
+
+    private static final String BASE_URL = "http://localhost/api";
+
+    private static final PostgreSQLContainer<?> REPLICA = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("replica");
+
+    static {
+        REPLICA.start();
+    }
+
+    private static boolean schemaCopied;
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("database.replicas.urls", REPLICA::getJdbcUrl);
+        registry.add("database.replicas.username", REPLICA::getUsername);
+        registry.add("database.replicas.password", REPLICA::getPassword);
+    }
+
+    // Keeps the replica out of use while the application starts; the tests enable it once it has the schema
+    @MockBean
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ReadYourWrites readYourWrites;
+
+    @Autowired
+    private CatalogReadService catalogReadService;
+
+    @Autowired
+    private OrderQueryService orderQueryService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private TestData testData;
+
+    private final JdbcTemplate replicaJdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource(REPLICA.getJdbcUrl(), REPLICA.getUsername(), REPLICA.getPassword()));
+
+    @BeforeEach
+    void useReplica() throws Exception {
+        if (!schemaCopied) {
+            copySchemaToReplica();
+            schemaCopied = true;
+        }
+        dataSource.unwrap(ReadWriteRoutingDataSource.class).checkReplicas();
+
+        // Every test starts outside any read-your-writes window and with empty catalog caches
+        ((Cache<?, ?>) ReflectionTestUtils.getField(readYourWrites, "recentWrites")).invalidateAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        assertThat(inTransaction(true, () -> jdbcTemplate.queryForObject("SELECT current_database()", String.class)))
+                .isEqualTo(REPLICA.getDatabaseName());
+        assertThat(inTransaction(false, () -> jdbcTemplate.queryForObject("SELECT current_database()", String.class)))
+                .isEqualTo(POSTGRES.getDatabaseName());
+        assertThat(inTransaction(true, () -> ReadWriteRoutingDataSource.onPrimary(
+                () -> jdbcTemplate.queryForObject("SELECT current_database()", String.class))))
+                .isEqualTo(POSTGRES.getDatabaseName());
+    }
+
+    @Test
+    void catalogCacheFillsReadTheReplicaUntilTheCatalogChanges() {
+        Product product = testData.product("12.00", 3);
+        assertThat(countOnReplica("products", product.getId())).isZero();
+
+        // No catalog change was published, so the fills read the replica, which lacks the product
+        assertThat(catalogReadService.getAllProducts()).extracting(ProductResponse::getId).doesNotContain(product.getId());
+        assertThatThrownBy(() -> catalogReadService.getProduct(product.getId())).isInstanceOf(EntityNotFoundException.class);
+
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.PRODUCT, product.getId()));
+
+        assertThat(catalogReadService.getProduct(product.getId()).getName()).isEqualTo(product.getName());
+        assertThat(catalogReadService.getAllProducts()).extracting(ProductResponse::getId).contains(product.getId());
+    }
+
+    @Test
+    void orderListingsReadTheReplicaUntilTheUsersOrdersChange() {
+        Product product = testData.product("5.00", 10);
+        User user = testData.user();
+        Order order = testData.order(user, OrderStatus.PENDING, LocalDateTime.now(), item(product, 1));
+        User otherUser = testData.user();
+        testData.order(otherUser, OrderStatus.PENDING, LocalDateTime.now(), item(product, 1));
+        assertThat(countOnReplica("orders", order.getId())).isZero();
+
+        // TestData writes orders directly, without the change event, so both listings read the replica
+        assertThat(orderQueryService.getAll(user.getId(), BASE_URL)).isEmpty();
+        assertThat(orderQueryService.getPage(otherUser.getId(), null, 20, BASE_URL).getItems()).isEmpty();
+
+        orderService.cancel(order.getId(), user.getId(), false);
+
+        assertThat(orderQueryService.getAll(user.getId(), BASE_URL))
+                .extracting(OrderDTO::getId).containsExactly(order.getId());
+        assertThat(orderQueryService.getPage(user.getId(), null, 20, BASE_URL).getItems())
+                .extracting(OrderDTO::getStatus).containsExactly(OrderStatus.CANCELLED);
+        // Only the user whose order changed is pinned to the primary
+        assertThat(orderQueryService.getPage(otherUser.getId(), null, 20, BASE_URL).getItems()).isEmpty();
+    }
+
+    @Test
+    void fileLookupsReadTheReplicaFirst() throws Exception {
+        String filePath = "products/replica-only-" + UUID.randomUUID() + ".txt";
+        byte[] content = "stored on the replica only".getBytes(StandardCharsets.UTF_8);
+        replicaJdbcTemplate.update("INSERT INTO file_data (name, type, path, data, created_at, content_hash, storage, size_bytes) " +
+                        "VALUES (?, ?, ?, ?, now(), ?, 'DATABASE', ?)",
+                "replica.txt", "text/plain", filePath, content, FileData.sha256Hex(content), content.length);
+
+        Optional<FileMetadata> file = fileStorageService.findFileMetadata(filePath);
+        assertThat(file).isPresent();
+        assertThat(fileStorageService.readFile(file.get())).isEqualTo(content);
+    }
+
+    @Test
+    void fileLookupsSeeAFileRightAfterItIsStored() throws Exception {
+        String filePath = "products/replica-" + UUID.randomUUID() + ".txt";
+        byte[] content = "stored on the primary".getBytes(StandardCharsets.UTF_8);
+        assertThat(fileStorageService.storeGeneratedFile("replica.txt", "text/plain", filePath, content)).isTrue();
+
+        // The replica misses, so the lookup and the content reads are retried on the primary
+        Optional<FileMetadata> file = fileStorageService.findFileMetadata(filePath);
+        assertThat(file).isPresent();
+        assertThat(countOnReplica("file_data", file.get().getId())).isZero();
+        assertThat(fileStorageService.readFile(file.get())).isEqualTo(content);
+
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        fileStorageService.copyFileRange(file.get(), 0, content.length, range);
+        assertThat(range.toByteArray()).isEqualTo(content);
+    }
+
+    private int countOnReplica(String table, Long id) {
+        return inTransaction(true,
+                () -> jdbcTemplate.queryForObject("SELECT count(*) FROM " + table + " WHERE id = ?", Integer.class, id));
+    }
+
+    private <T> T inTransaction(boolean readOnly, Supplier<T> work) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> work.get());
+    }
+
+    // Hibernate created the tables on the primary at startup; the replica gets the same schema, without rows
+    private static void copySchemaToReplica() throws Exception {
+        Container.ExecResult dump = POSTGRES.execInContainer("pg_dump", "--schema-only", "--no-owner",
+                "-U", POSTGRES.getUsername(), POSTGRES.getDatabaseName());
+        assertThat(dump.getExitCode()).as(dump.getStderr()).isZero();
+
+        REPLICA.copyFileToContainer(Transferable.of(dump.getStdout().getBytes(StandardCharsets.UTF_8)), "/tmp/schema.sql");
+        Container.ExecResult restore = REPLICA.execInContainer("psql", "-v", "ON_ERROR_STOP=1",
+                "-U", REPLICA.getUsername(), "-d", REPLICA.getDatabaseName(), "-f", "/tmp/schema.sql");
+        assertThat(restore.getExitCode()).as(restore.getStderr()).isZero();
+    }
+}
@@ -0,0 +1,485 @@
+package com.smartshop.api.controllers;
+
+import com.smartshop.api.models.ERole;
+import com.smartshop.api.models.Offer;
+import com.smartshop.api.models.Order;
+import com.smartshop.api.models.OrderItem;
+import com.smartshop.api.models.OrderStatus;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.SubCategory;
+import com.smartshop.api.models.User;
+import com.smartshop.api.repositories.OfferRepository;
+import com.smartshop.api.repositories.RoleRepository;
+import com.smartshop.api.repositories.UserRepository;
+import com.smartshop.api.security.services.UserDetailsImpl;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import com.smartshop.api.support.TestData;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static com.smartshop.api.support.TestData.item;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets of the controller endpoints, read from the http.server.requests.jdbc.statements
+ * summary that StatementCountFilter records per request.
+ *
+ * Every mapped endpoint needs an entry in {@link #BUDGETS}; a new endpoint without one fails
+ * {@link #everyEndpointHasABudget}. Every request made here is checked against its budget, and
+ * the listings are called with a small and a larger data set: the count must be the same for
+ * both, so an N+1 fetch fails here. Listings of every order in the shared database are only held
+ * to their budget, since other tests add orders to them.
+ */
+class StatementBudgetTest extends PostgresIntegrationTest {
+
+    private static final String STATEMENTS = "http.server.requests.jdbc.statements";
+
+    // Writes that store or delete files touch several tables per rendition; they get the
+    // jdbc.statement-count.warn-threshold default
+    private static final int FILE_WRITE = 20;
+
+    private static final Map<String, Integer> BUDGETS = Map.ofEntries(
+            Map.entry("GET /", 0),
+            Map.entry("GET /health", 1),
+            Map.entry("GET /db-test", 2),
+            Map.entry("GET /test/echo", 0),
+            Map.entry("GET /test/environment", 0),
+            Map.entry("GET /debug/info", 0),
+            Map.entry("GET /debug/cache-stats", 0),
+            Map.entry("GET /debug/file-cache-stats", 0),
+
+            Map.entry("POST /auth/login", 4),
+            Map.entry("POST /auth/register", 8),
+            Map.entry("POST /auth/register-json", 8),
+            Map.entry("POST /auth/reset-password", 6),
+            Map.entry("POST /auth/verify-otp", 6),
+            Map.entry("POST /auth/logout", 2),
+            Map.entry("GET /auth/profile", 1),
+            Map.entry("PUT /auth/update-profile", 4),
+            Map.entry("PUT /auth/update-address", 4),
+            Map.entry("POST /auth/upload-profile-image", FILE_WRITE),
+            Map.entry("POST /auth/add-address", 4),
+            Map.entry("GET /auth/profile-image/{filename:.+}", 1),
+
+            Map.entry("GET /products", 1),
+            Map.entry("GET /products/page", 2),
+            Map.entry("GET /products/{id}", 3),
+            Map.entry("POST /products", FILE_WRITE),
+            Map.entry("PUT /products/{id}", FILE_WRITE),
+            Map.entry("DELETE /products/{id}", FILE_WRITE),
+            Map.entry("GET /products/search", 1),
+            Map.entry("GET /products/search/faceted", 1),
+            Map.entry("GET /products/filter", 1),
+            Map.entry("GET /products/subcategory/{subCategoryId}", 1),
+
+            Map.entry("GET /categories", 1),
+            Map.entry("GET /categories/{id}", 1),
+            Map.entry("POST /categories", FILE_WRITE),
+            Map.entry("PUT /categories/{id}", FILE_WRITE),
+            Map.entry("DELETE /categories/{id}", FILE_WRITE),
+
+            Map.entry("GET /subcategories", 1),
+            Map.entry("GET /subcategories/{id}", 1),
+            Map.entry("GET /subcategories/category/{categoryId}", 1),
+            Map.entry("POST /subcategories", FILE_WRITE),
+            Map.entry("PUT /subcategories/{id}", FILE_WRITE),
+            Map.entry("DELETE /subcategories/{id}", FILE_WRITE),
+
+            Map.entry("GET /offers", 1),
+            Map.entry("GET /offers/{id}", 1),
+            Map.entry("GET /offers/images", 1),
+            Map.entry("POST /offers", FILE_WRITE),
+            Map.entry("PUT /offers/{id}", FILE_WRITE),
+            Map.entry("DELETE /offers/{id}", FILE_WRITE),
+
+            Map.entry("GET /files/{directory}/{fileName:.+}", 1),
+            Map.entry("GET /files/{fileName:.+}", 1),
+            Map.entry("GET /files/offers/images", 1),
+            Map.entry("GET /files/offers/images/with-details", 1),
+
+            Map.entry("GET /wishlist", 4),
+            Map.entry("POST /wishlist/{productId}", 8),
+            Map.entry("DELETE /wishlist/{productId}", 8),
+            Map.entry("DELETE /wishlist", 4),
+
+            Map.entry("GET /cart", 2),
+            Map.entry("POST /cart", 3),
+            Map.entry("PUT /cart/{id}", 3),
+            Map.entry("DELETE /cart/{id}", 2),
+            Map.entry("DELETE /cart", 2),
+            Map.entry("POST /cart/checkout", 12),
+
+            Map.entry("GET /orders", 2),
+            Map.entry("GET /orders/page", 2),
+            Map.entry("GET /orders/{id}", 5),
+            Map.entry("POST /orders", 12),
+            Map.entry("PUT /orders/{id}/status", 10),
+            Map.entry("PUT /orders/{id}/payment-status", 7),
+            Map.entry("PUT /orders/{id}/cancel", 10),
+            Map.entry("GET /orders/{id}/invoice", 5),
+            Map.entry("GET /orders/admin/analytics", 6),
+            Map.entry("POST /orders/admin/analytics/rebuild", 10),
+
+            Map.entry("GET /admin/orders", 8),
+            Map.entry("GET /admin/orders/{id}", 5),
+            Map.entry("GET /admin/orders/user/{userId}", 6),
+            Map.entry("PUT /admin/orders/{id}/status", 8),
+            Map.entry("GET /admin/orders/statistics", 6),
+            Map.entry("GET /admin/orders/with-users", 8));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void everyEndpointHasABudget() {
+        Set<String> endpoints = new TreeSet<>();
+        handlerMapping.getHandlerMethods().forEach((mapping, handler) -> {
+            if (!handler.getBeanType().getPackageName().equals(StatementBudgetTest.class.getPackageName())) {
+                return;
+            }
+            for (RequestMethod method : mapping.getMethodsCondition().getMethods()) {
+                for (String pattern : mapping.getPatternValues()) {
+                    endpoints.add(method + " " + pattern);
+                }
+            }
+        });
+
+        assertThat(endpoints).as("endpoints without a statement budget").isSubsetOf(BUDGETS.keySet());
+        assertThat(BUDGETS.keySet()).as("budgets of endpoints that no longer exist").isSubsetOf(endpoints);
+    }
+
+    @Test
+    void productListIsOneQuery() throws Exception {
+        testData.product("10.00", 5);
+        int few = uncachedStatements(get("/products"), "/products");
+
+        for (int i = 0; i < 5; i++) {
+            testData.product("10.00", 5);
+        }
+        int many = uncachedStatements(get("/products"), "/products");
+
+        assertThat(many).isEqualTo(few);
+        assertThat(statements(get("/products"), "/products", status().isOk())).isZero();
+    }
+
+    @Test
+    void productPageIsBoundedByItsQueries() throws Exception {
+        SubCategory subCategory = testData.subCategory();
+        testData.product(subCategory, "10.00", 5);
+        MockHttpServletRequestBuilder page = get("/products/page")
+                .param("subCategoryId", subCategory.getId().toString())
+                .param("size", "20");
+        int few = statements(page, "/products/page", status().isOk());
+
+        for (int i = 0; i < 5; i++) {
+            testData.product(subCategory, "10.00", 5);
+        }
+        int many = statements(page, "/products/page", status().isOk());
+
+        assertThat(many).isEqualTo(few);
+    }
+
+    @Test
+    void productReadsDoNotGrowWithTheResults() throws Exception {
+        SubCategory subCategory = testData.subCategory();
+        Product product = testData.product(subCategory, "10.00", 5);
+        MockHttpServletRequestBuilder filter = get("/products/filter")
+                .param("category", subCategory.getCategory().getId().toString());
+        MockHttpServletRequestBuilder bySubCategory = get("/products/subcategory/" + subCategory.getId());
+        MockHttpServletRequestBuilder search = get("/products/search")
+                .param("query", "Test product")
+                .param("limit", "20");
+        int fewFiltered = statements(filter, "/products/filter", status().isOk());
+        int fewInSubCategory = statements(bySubCategory, "/products/subcategory/{subCategoryId}", status().isOk());
+        int fewFound = statements(search, "/products/search", status().isOk());
+
+        for (int i = 0; i < 5; i++) {
+            testData.product(subCategory, "10.00", 5);
+        }
+        assertThat(statements(filter, "/products/filter", status().isOk())).isEqualTo(fewFiltered);
+        assertThat(statements(bySubCategory, "/products/subcategory/{subCategoryId}", status().isOk()))
+                .isEqualTo(fewInSubCategory);
+        assertThat(statements(search, "/products/search", status().isOk())).isEqualTo(fewFound);
+        uncachedStatements(get("/products/" + product.getId()), "/products/{id}");
+    }
+
+    @Test
+    void subCategoryReadsAreOneQuery() throws Exception {
+        SubCategory subCategory = testData.subCategory();
+        MockHttpServletRequestBuilder byCategory = get("/subcategories/category/" + subCategory.getCategory().getId());
+        int few = uncachedStatements(get("/subcategories"), "/subcategories");
+        int fewInCategory = uncachedStatements(byCategory, "/subcategories/category/{categoryId}");
+
+        for (int i = 0; i < 5; i++) {
+            testData.subCategory();
+        }
+        assertThat(uncachedStatements(get("/subcategories"), "/subcategories")).isEqualTo(few);
+        assertThat(uncachedStatements(byCategory, "/subcategories/category/{categoryId}")).isEqualTo(fewInCategory);
+        uncachedStatements(get("/subcategories/" + subCategory.getId()), "/subcategories/{id}");
+    }
+
+    @Test
+    void offerReadsAreOneQuery() throws Exception {
+        Offer offer = offer();
+        int few = uncachedStatements(get("/offers"), "/offers");
+        int fewImages = statements(get("/offers/images"), "/offers/images", status().isOk());
+
+        for (int i = 0; i < 5; i++) {
+            offer();
+        }
+        assertThat(uncachedStatements(get("/offers"), "/offers")).isEqualTo(few);
+        assertThat(statements(get("/offers/images"), "/offers/images", status().isOk())).isEqualTo(fewImages);
+        uncachedStatements(get("/offers/" + offer.getId()), "/offers/{id}");
+    }
+
+    @Test
+    void wishlistAndCartReadsDoNotGrowWithTheItems() throws Exception {
+        RequestPostProcessor principal = user(UserDetailsImpl.build(testData.user()));
+        Product first = testData.product("5.00", 100);
+        addToWishlist(principal, first);
+        addToCart(principal, first);
+        int fewWished = statements(get("/wishlist").with(principal), "/wishlist", status().isOk());
+        int fewInCart = statements(get("/cart").with(principal), "/cart", status().isOk());
+
+        for (int i = 0; i < 4; i++) {
+            Product product = testData.product("5.00", 100);
+            addToWishlist(principal, product);
+            addToCart(principal, product);
+        }
+        assertThat(statements(get("/wishlist").with(principal), "/wishlist", status().isOk())).isEqualTo(fewWished);
+        assertThat(statements(get("/cart").with(principal), "/cart", status().isOk())).isEqualTo(fewInCart);
+    }
+
+    @Test
+    void orderDetailsDoNotGrowWithTheItems() throws Exception {
+        User user = testData.user();
+        RequestPostProcessor principal = user(UserDetailsImpl.build(user));
+        Order small = testData.order(user, OrderStatus.PENDING, LocalDateTime.now(), item(testData.product("5.00", 100), 1));
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            items.add(item(testData.product("5.00", 100), 1));
+        }
+        Order large = testData.order(user, OrderStatus.PENDING, LocalDateTime.now(), items.toArray(new OrderItem[0]));
+
+        int few = statements(get("/orders/" + small.getId()).with(principal), "/orders/{id}", status().isOk());
+        int many = statements(get("/orders/" + large.getId()).with(principal), "/orders/{id}", status().isOk());
+
+        assertThat(many).isEqualTo(few);
+    }
+
+    @Test
+    void adminOrderListingsStayWithinBudget() throws Exception {
+        RequestPostProcessor principal = user(UserDetailsImpl.build(admin()));
+        Product product = testData.product("5.00", 100);
+        User customer = null;
+        // Orders of several users, each with its own shipping address and roles to load
+        for (int i = 0; i < 6; i++) {
+            customer = testData.user();
+            testData.order(customer, OrderStatus.PENDING, LocalDateTime.now(), item(product, 1));
+            testData.order(customer, OrderStatus.DELIVERED, LocalDateTime.now(), item(product, 2));
+        }
+
+        statements(get("/admin/orders/with-users").with(principal), "/admin/orders/with-users", status().isOk());
+        statements(get("/admin/orders").with(principal), "/admin/orders", status().isOk());
+        statements(get("/admin/orders/user/" + customer.getId()).with(principal), "/admin/orders/user/{userId}",
+                status().isOk());
+    }
+
+    @Test
+    void profileIsOneQuery() throws Exception {
+        RequestPostProcessor principal = user(UserDetailsImpl.build(testData.user()));
+
+        assertThat(statements(get("/auth/profile").with(principal), "/auth/profile", status().isOk())).isEqualTo(1);
+    }
+
+    @Test
+    void categoryListIsOneQuery() throws Exception {
+        testData.subCategory();
+        int few = uncachedStatements(get("/categories"), "/categories");
+
+        for (int i = 0; i < 5; i++) {
+            testData.subCategory();
+        }
+        int many = uncachedStatements(get("/categories"), "/categories");
+
+        assertThat(many).isEqualTo(few);
+    }
+
+    @Test
+    void orderListingsReadHeadersAndItemsOnce() throws Exception {
+        User user = testData.user();
+        RequestPostProcessor principal = user(UserDetailsImpl.build(user));
+        Product first = testData.product("5.00", 100);
+        Product second = testData.product("7.50", 100);
+        placeOrders(user, first, second, 2);
+        int fewAll = statements(get("/orders").with(principal), "/orders", status().isOk());
+        int fewPage = statements(get("/orders/page").param("size", "20").with(principal), "/orders/page", status().isOk());
+
+        placeOrders(user, first, second, 6);
+        int manyAll = statements(get("/orders").with(principal), "/orders", status().isOk());
+        int manyPage = statements(get("/orders/page").param("size", "20").with(principal), "/orders/page", status().isOk());
+
+        assertThat(manyAll).isEqualTo(fewAll);
+        assertThat(manyPage).isEqualTo(fewPage);
+    }
+
+    @Test
+    void checkoutDoesNotGrowWithTheCart() throws Exception {
+        RequestPostProcessor principal = user(UserDetailsImpl.build(userWithAddress()));
+
+        addToCart(principal, testData.product("5.00", 100));
+        int oneLine = checkoutStatements(principal);
+
+        for (int i = 0; i < 4; i++) {
+            addToCart(principal, testData.product("5.00", 100));
+        }
+        int fourLines = checkoutStatements(principal);
+
+        assertThat(fourLines).isEqualTo(oneLine);
+    }
+
+    @Test
+    void orderPlacementDoesNotGrowWithTheLines() throws Exception {
+        RequestPostProcessor principal = user(UserDetailsImpl.build(userWithAddress()));
+        List<String> productIds = new ArrayList<>();
+        productIds.add(testData.product("5.00", 100).getId().toString());
+        int oneLine = orderStatements(principal, productIds);
+
+        for (int i = 0; i < 4; i++) {
+            productIds.add(testData.product("5.00", 100).getId().toString());
+        }
+        int fiveLines = orderStatements(principal, productIds);
+
+        assertThat(fiveLines).isEqualTo(oneLine);
+    }
+
+    private User admin() {
+        User user = testData.user();
+        user.getRoles().add(roleRepository.findByName(ERole.ROLE_ADMIN).orElseThrow());
+        return userRepository.save(user);
+    }
+
+    private Offer offer() {
+        Offer offer = new Offer();
+        offer.setTitle("Offer " + UUID.randomUUID());
+        offer.setDescription("Test offer");
+        offer.setImageUrl("offers/" + UUID.randomUUID() + ".png");
+        return offerRepository.save(offer);
+    }
+
+    private User userWithAddress() {
+        User user = testData.user();
+        user.setAddressLine1("1 Test Street");
+        user.setCity("Pune");
+        user.setState("Maharashtra");
+        user.setPostalCode("411001");
+        user.setCountry("India");
+        return userRepository.save(user);
+    }
+
+    private int orderStatements(RequestPostProcessor principal, List<String> productIds) throws Exception {
+        return statements(post("/orders").with(principal)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("productIds", String.join(",", productIds))
+                        .param("quantities", productIds.stream().map(id -> "1").collect(Collectors.joining(",")))
+                        .param("paymentMethod", "CASH_ON_DELIVERY"),
+                "/orders", status().isCreated());
+    }
+
+    private void placeOrders(User user, Product first, Product second, int count) {
+        for (int i = 0; i < count; i++) {
+            testData.order(user, OrderStatus.PENDING, LocalDateTime.now().minusMinutes(i), item(first, 1), item(second, 2));
+        }
+    }
+
+    private void addToWishlist(RequestPostProcessor principal, Product product) throws Exception {
+        mockMvc.perform(post("/wishlist/" + product.getId()).with(principal))
+                .andExpect(status().isOk());
+    }
+
+    private void addToCart(RequestPostProcessor principal, Product product) throws Exception {
+        mockMvc.perform(post("/cart").with(principal)
+                        .param("productId", product.getId().toString())
+                        .param("quantity", "1"))
+                .andExpect(status().isOk());
+    }
+
+    private int checkoutStatements(RequestPostProcessor principal) throws Exception {
+        return statements(post("/cart/checkout").with(principal)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("paymentMethod", "CASH_ON_DELIVERY"),
+                "/cart/checkout", status().isCreated());
+    }
+
+    // Catalog reads are cached; a fill from the database is what the budget is about
+    private int uncachedStatements(MockHttpServletRequestBuilder request, String uri) throws Exception {
+        for (String name : cacheManager.getCacheNames()) {
+            cacheManager.getCache(name).clear();
+        }
+        return statements(request, uri, status().isOk());
+    }
+
+    private int statements(MockHttpServletRequestBuilder request, String uri, ResultMatcher expected) throws Exception {
+        double before = recorded(uri);
+        MvcResult result = mockMvc.perform(request).andExpect(expected).andReturn();
+        int statements = (int) (recorded(uri) - before);
+
+        String endpoint = result.getRequest().getMethod() + " " + uri;
+        assertThat(BUDGETS).containsKey(endpoint);
+        assertThat(statements).as("SQL statements of %s", endpoint).isLessThanOrEqualTo(BUDGETS.get(endpoint));
+        return statements;
+    }
+
+    private double recorded(String uri) {
+        return meterRegistry.find(STATEMENTS).tag("uri", uri).summaries().stream()
+                .mapToDouble(DistributionSummary::totalAmount)
+                .sum();
+    }
+}
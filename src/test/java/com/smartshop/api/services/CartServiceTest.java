@@ -0,0 +1,30 @@
+package com.smartshop.api.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartServiceTest {
+
+    @Test
+    void constraintViolationsAreRejectedData() {
+        BatchUpdateException batch = new BatchUpdateException("Batch entry 0 was aborted", "23503", new int[0]);
+        assertThat(CartService.isRejectedData(new DataIntegrityViolationException("insert failed", batch))).isTrue();
+
+        BatchUpdateException aborted = new BatchUpdateException("Batch entry 0 was aborted", null, new int[0]);
+        aborted.setNextException(new SQLException("value too long", "22001"));
+        assertThat(CartService.isRejectedData(new DataIntegrityViolationException("insert failed", aborted))).isTrue();
+    }
+
+    @Test
+    void connectionFailuresAreRetried() {
+        SQLException lost = new SQLException("An I/O error occurred while sending to the backend", "08006");
+        assertThat(CartService.isRejectedData(new TransientDataAccessResourceException("flush failed", lost))).isFalse();
+        assertThat(CartService.isRejectedData(new IllegalStateException("no SQLState at all"))).isFalse();
+    }
+}
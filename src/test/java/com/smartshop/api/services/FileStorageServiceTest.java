@@ -0,0 +1,50 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.FileData;
+import com.smartshop.api.models.StorageBackend;
+import com.smartshop.api.repositories.FileDataRepository;
+import com.smartshop.api.repositories.projections.FileMetadata;
+import com.smartshop.api.services.storage.FileSystemBlobStore;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileStorageServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileDataRepository fileDataRepository;
+
+    @Autowired
+    private FileSystemBlobStore fileSystemBlobStore;
+
+    @Test
+    void contentMovedToTheFilesystemIsReadFromThere() throws Exception {
+        String filePath = "files/" + UUID.randomUUID() + ".txt";
+        byte[] content = ("content of " + filePath).getBytes(StandardCharsets.UTF_8);
+        assertThat(fileStorageService.storeGeneratedFile("file.txt", "text/plain", filePath, content)).isTrue();
+        FileMetadata stale = fileStorageService.findFileMetadata(filePath).orElseThrow();
+
+        // What the blob migrator does, after the metadata above was read
+        String contentHash = FileData.sha256Hex(content);
+        fileSystemBlobStore.write(contentHash, content);
+        fileSystemBlobStore.unpin(contentHash);
+        assertThat(fileDataRepository.moveToStorage(stale.getId(), StorageBackend.DATABASE, StorageBackend.FILESYSTEM,
+                (long) content.length, contentHash, new byte[0])).isEqualTo(1);
+
+        assertThat(fileStorageService.readFile(stale)).isEqualTo(content);
+
+        ByteArrayOutputStream range = new ByteArrayOutputStream();
+        fileStorageService.copyFileRange(stale, 8, content.length - 8, range);
+        assertThat(range.toByteArray()).isEqualTo(new String(content, StandardCharsets.UTF_8).substring(8)
+                .getBytes(StandardCharsets.UTF_8));
+    }
+}
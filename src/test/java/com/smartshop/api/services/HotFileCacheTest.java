@@ -0,0 +1,35 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.support.PostgresIntegrationTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotFileCacheTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void hitsAndMissesAreExportedAsMeters() {
+        double misses = gets("miss");
+
+        hotFileCache.get("files/" + UUID.randomUUID());
+
+        assertThat(gets("miss")).isEqualTo(misses + 1);
+        assertThat(meterRegistry.get("hot.file.cache.gets").tag("result", "hit").functionCounter()).isNotNull();
+        assertThat(meterRegistry.get("hot.file.cache.evictions").functionCounter()).isNotNull();
+        assertThat(meterRegistry.get("hot.file.cache.size").gauge().value()).isGreaterThanOrEqualTo(0);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("hot.file.cache.gets").tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,110 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.exception.InsufficientStockException;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.SubCategory;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import com.smartshop.api.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many checkouts racing for the same few products must never sell more than is in stock.
+ */
+class InventoryServiceConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        SubCategory subCategory = testData.subCategory();
+        List<Product> products = new ArrayList<>();
+        products.add(testData.product(subCategory, "10.00", 60));
+        products.add(testData.product(subCategory, "20.00", 45));
+        products.add(testData.product(subCategory, "30.00", 25));
+
+        Map<Long, Product> byId = new HashMap<>();
+        for (Product product : products) {
+            byId.put(product.getId(), product);
+        }
+
+        // Units of each product taken by successful reservations
+        AtomicIntegerArray reserved = new AtomicIntegerArray(products.size());
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            Callable<Integer> checkout = () -> {
+                int rejected = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    // Random subsets of the products, so orders overlap in different combinations
+                    SortedMap<Long, Integer> quantities = new TreeMap<>();
+                    int[] wanted = new int[products.size()];
+                    for (int i = 0; i < products.size(); i++) {
+                        if (random.nextBoolean()) {
+                            wanted[i] = 1 + random.nextInt(3);
+                            quantities.put(products.get(i).getId(), wanted[i]);
+                        }
+                    }
+                    if (quantities.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        inventoryService.reserveAll(quantities, byId);
+                        for (int i = 0; i < wanted.length; i++) {
+                            reserved.addAndGet(i, wanted[i]);
+                        }
+                    } catch (InsufficientStockException e) {
+                        // The whole order is rolled back
+                        rejected++;
+                    }
+                }
+                return rejected;
+            };
+            results.add(executor.submit(checkout));
+        }
+
+        int rejected = 0;
+        for (Future<Integer> result : results) {
+            rejected += result.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Demand is far above the stock, so some orders must have been turned away
+        assertThat(rejected).isPositive();
+        for (int i = 0; i < products.size(); i++) {
+            Product before = products.get(i);
+            int stock = productRepository.findById(before.getId()).orElseThrow().getStockQuantity();
+            assertThat(stock).as("stock of product %d", i).isGreaterThanOrEqualTo(0);
+            assertThat(before.getStockQuantity() - stock).as("units sold of product %d", i).isEqualTo(reserved.get(i));
+        }
+    }
+}
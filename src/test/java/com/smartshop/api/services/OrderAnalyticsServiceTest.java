@@ -0,0 +1,89 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.OrderRollup;
+import com.smartshop.api.models.OrderStatus;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.RollupDimension;
+import com.smartshop.api.models.User;
+import com.smartshop.api.repositories.OrderRollupRepository;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import com.smartshop.api.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.smartshop.api.support.TestData.item;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderAnalyticsServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
+
+    @Autowired
+    private OrderRollupRepository orderRollupRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void rebuildCorrectsStaleBucketsAndIsRepeatable() {
+        User user = testData.user();
+        Product product = testData.product("4.00", 100);
+        // TestData writes orders without rollups, so the rebuild has to find all three
+        testData.order(user, OrderStatus.PENDING, LocalDateTime.now(), item(product, 1));
+        testData.order(user, OrderStatus.DELIVERED, LocalDateTime.now().minusDays(1), item(product, 2));
+        testData.order(user, OrderStatus.CANCELLED, LocalDateTime.now().minusDays(2), item(product, 3));
+        transactionTemplate.executeWithoutResult(status -> orderRollupRepository.upsert(
+                RollupDimension.CUSTOMER.name(), String.valueOf(user.getId()), 99, 99, new BigDecimal("999.00")));
+
+        orderAnalyticsService.rebuild();
+        OrderRollup customer = rollup(RollupDimension.CUSTOMER, String.valueOf(user.getId()));
+        assertThat(customer.getOrderCount()).isEqualTo(3);
+        assertThat(customer.getItemQuantity()).isEqualTo(6);
+        assertThat(customer.getRevenue()).isEqualByComparingTo("24.00");
+
+        orderAnalyticsService.rebuild();
+        OrderRollup again = rollup(RollupDimension.CUSTOMER, String.valueOf(user.getId()));
+        assertThat(again.getOrderCount()).isEqualTo(3);
+        assertThat(again.getRevenue()).isEqualByComparingTo("24.00");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void orderedProductsReportThePricePaid() {
+        User user = testData.user();
+        Product product = testData.product("10.00", 100);
+        testData.order(user, OrderStatus.DELIVERED, LocalDateTime.now(), item(product, 2));
+        orderAnalyticsService.rebuild();
+
+        product.setPrice(new BigDecimal("15.00"));
+        product.setDiscountedPrice(new BigDecimal("15.00"));
+        productRepository.save(product);
+
+        List<Map<String, Object>> orderedProducts =
+                (List<Map<String, Object>>) orderAnalyticsService.getAnalytics("http://localhost/api").get("orderedProducts");
+        Map<String, Object> info = orderedProducts.stream()
+                .filter(p -> product.getId().equals(p.get("id")))
+                .findFirst().orElseThrow();
+        assertThat((BigDecimal) info.get("discountedPrice")).isEqualByComparingTo("10.00");
+    }
+
+    private OrderRollup rollup(RollupDimension dimension, String bucket) {
+        return orderRollupRepository.findByDimension(dimension).stream()
+                .filter(r -> r.getBucket().equals(bucket))
+                .findFirst().orElseThrow();
+    }
+}
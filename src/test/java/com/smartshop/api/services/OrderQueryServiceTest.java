@@ -0,0 +1,88 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.Order;
+import com.smartshop.api.models.OrderStatus;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.User;
+import com.smartshop.api.payload.response.OrderDTO;
+import com.smartshop.api.payload.response.OrderPageResponse;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import com.smartshop.api.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.smartshop.api.support.TestData.item;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderQueryServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private OrderQueryService orderQueryService;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesThroughOrdersWithoutCreationTime() {
+        User user = testData.user();
+        Product product = testData.product("5.00", 100);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Order order = testData.order(user, OrderStatus.PENDING, LocalDateTime.now().minusHours(i), item(product, 1));
+            expected.add(order.getId());
+        }
+        // Rows written before created_at was populated; they sort first, highest id first
+        Long undatedOlder = expected.remove(3);
+        Long undatedNewer = expected.remove(3);
+        jdbcTemplate.update("UPDATE orders SET created_at = NULL WHERE id IN (?, ?)", undatedOlder, undatedNewer);
+        expected.add(0, undatedOlder);
+        expected.add(0, undatedNewer);
+
+        List<Long> listed = new ArrayList<>();
+        String cursor = null;
+        do {
+            OrderPageResponse page = orderQueryService.getPage(user.getId(), cursor, 2, "http://localhost/api");
+            listed.addAll(page.getItems().stream().map(OrderDTO::getId).collect(Collectors.toList()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(listed).containsExactlyElementsOf(expected);
+        assertThat(orderQueryService.getAll(user.getId(), "http://localhost/api").stream().map(OrderDTO::getId))
+                .containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void unpagedListingIsCappedAtTheMaximumPageSize() {
+        User user = testData.user();
+        Product product = testData.product("5.00", 100);
+        List<Long> newest = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Order order = testData.order(user, OrderStatus.PENDING, LocalDateTime.now().minusHours(i), item(product, 1));
+            if (i < 3) {
+                newest.add(order.getId());
+            }
+        }
+
+        // The field lives on the target, not on the transactional proxy
+        OrderQueryService target = AopTestUtils.getTargetObject(orderQueryService);
+        int maxPageSize = (int) ReflectionTestUtils.getField(target, "maxPageSize");
+        ReflectionTestUtils.setField(target, "maxPageSize", 3);
+        try {
+            assertThat(orderQueryService.getAll(user.getId(), "http://localhost/api").stream().map(OrderDTO::getId))
+                    .containsExactlyElementsOf(newest);
+        } finally {
+            ReflectionTestUtils.setField(target, "maxPageSize", maxPageSize);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.User;
+import com.smartshop.api.payload.response.OrderStatisticsResponse;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import com.smartshop.api.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times the admin order statistics over a million orders. The orders are generated in one
+ * transaction that is rolled back afterwards, so the other tests never see them.
+ */
+class OrderStatisticsBenchmarkTest extends PostgresIntegrationTest {
+
+    private static final int ORDERS = 1_000_000;
+
+    private static final long MAX_MILLIS = 5_000;
+
+    @Autowired
+    private OrderStatisticsService orderStatisticsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void statisticsOverAMillionOrdersStayWithinBound() {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            User user = testData.user();
+            userIds.add(user.getId());
+        }
+        Product product = testData.product("20.00", 1000);
+        String users = userIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO orders (order_number, user_id, status, payment_status, payment_method, " +
+                    "subtotal, total, created_at, updated_at) " +
+                    "SELECT 'BENCH-' || g, (ARRAY[" + users + "])[1 + g % " + userIds.size() + "], " +
+                    "(ARRAY['PENDING','PROCESSING','SHIPPED','DELIVERED','CANCELLED'])[1 + g % 5], 'PENDING', " +
+                    "'CASH_ON_DELIVERY', 10 + g % 90, 10 + g % 90, now() - (g % 60) * interval '1 day', now() " +
+                    "FROM generate_series(1, ?) g", ORDERS);
+            jdbcTemplate.update("INSERT INTO order_items (order_id, product_id, quantity, price, discounted_price) " +
+                    "SELECT id, ?, 1 + id % 3, total, total FROM orders WHERE order_number LIKE 'BENCH-%'", product.getId());
+            jdbcTemplate.execute("ANALYZE orders");
+            jdbcTemplate.execute("ANALYZE order_items");
+
+            // The first run warms the caches; the second is the one measured
+            orderStatisticsService.getStatistics();
+            long started = System.nanoTime();
+            OrderStatisticsResponse statistics = orderStatisticsService.getStatistics();
+            long millis = (System.nanoTime() - started) / 1_000_000;
+
+            assertThat(statistics.getTotalOrders()).isGreaterThanOrEqualTo(ORDERS);
+            assertThat(statistics.getTotalUsers()).isGreaterThanOrEqualTo(userIds.size());
+            assertThat(millis).as("statistics over %d orders took %d ms", ORDERS, millis).isLessThan(MAX_MILLIS);
+
+            status.setRollbackOnly();
+        });
+    }
+}
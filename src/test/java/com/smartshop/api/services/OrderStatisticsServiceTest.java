@@ -0,0 +1,127 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.Order;
+import com.smartshop.api.models.OrderStatus;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.User;
+import com.smartshop.api.payload.response.OrderStatisticsResponse;
+import com.smartshop.api.repositories.OrderItemRepository;
+import com.smartshop.api.repositories.OrderRepository;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import com.smartshop.api.support.TestData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.smartshop.api.support.TestData.item;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the aggregate-query statistics to the figures the admin endpoint computed before, when it
+ * loaded the last week's orders and summed them in memory.
+ */
+class OrderStatisticsServiceTest extends PostgresIntegrationTest {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    @Autowired
+    private OrderStatisticsService orderStatisticsService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private TestData testData;
+
+    @BeforeEach
+    void seedOrders() {
+        User alice = testData.user();
+        User bob = testData.user();
+        User carol = testData.user();
+        Product mug = testData.product("12.50", 1000);
+        Product lamp = testData.product("49.99", 1000);
+        Product pen = testData.product("1.05", 1000);
+
+        LocalDate today = LocalDate.now();
+        testData.order(alice, OrderStatus.PENDING, LocalDateTime.now().minusMinutes(5), item(mug, 2));
+        testData.order(alice, OrderStatus.DELIVERED, today.minusDays(1).atTime(9, 15), item(lamp, 1), item(pen, 7));
+        testData.order(bob, OrderStatus.PROCESSING, today.minusDays(3).atTime(23, 59), item(pen, 3));
+        testData.order(bob, OrderStatus.CANCELLED, today.minusDays(3).atTime(0, 1), item(mug, 1), item(lamp, 2));
+        testData.order(carol, OrderStatus.SHIPPED, today.minusDays(6).atTime(0, 30), item(lamp, 1));
+        // Outside the revenue window, still part of the totals
+        testData.order(carol, OrderStatus.DELIVERED, today.minusDays(8).atTime(12, 0), item(mug, 4));
+        testData.order(alice, OrderStatus.PENDING, today.minusDays(40).atTime(18, 45), item(pen, 11));
+    }
+
+    @Test
+    void totalsMatchInMemoryComputation() {
+        OrderStatisticsResponse expected = inMemoryStatistics();
+        OrderStatisticsResponse actual = orderStatisticsService.getStatistics();
+
+        assertThat(actual.getTotalOrders()).isEqualTo(expected.getTotalOrders());
+        assertThat(actual.getTotalUsers()).isEqualTo(expected.getTotalUsers());
+        assertThat(actual.getTotalAmount()).isEqualByComparingTo(expected.getTotalAmount());
+        assertThat(actual.getTotalProductsSold()).isEqualTo(expected.getTotalProductsSold());
+        assertThat(actual.getOrdersByStatus()).isEqualTo(expected.getOrdersByStatus());
+        assertThat(actual.getPendingOrders()).isEqualTo(expected.getPendingOrders());
+        assertThat(actual.getCompletedOrders()).isEqualTo(expected.getCompletedOrders());
+        assertThat(actual.getAverageOrderValue()).isEqualByComparingTo(expected.getAverageOrderValue());
+    }
+
+    @Test
+    void revenueByDayMatchesInMemoryComputation() {
+        Map<String, BigDecimal> expected = inMemoryStatistics().getRevenueByDay();
+        Map<String, BigDecimal> actual = orderStatisticsService.getStatistics().getRevenueByDay();
+
+        // Same days, oldest first
+        assertThat(actual.keySet()).containsExactlyElementsOf(expected.keySet());
+        expected.forEach((day, revenue) -> assertThat(actual.get(day)).as(day).isEqualByComparingTo(revenue));
+        assertThat(actual.get(LocalDate.now().minusDays(6).format(DAY_FORMAT))).isPositive();
+    }
+
+    /**
+     * The computation the endpoint used before the aggregate queries. The old code also added a
+     * bucket for orders placed exactly seven days ago after the current time of day; the service
+     * reports whole days only, so those orders are left out here.
+     */
+    private OrderStatisticsResponse inMemoryStatistics() {
+        OrderStatisticsResponse statistics = new OrderStatisticsResponse();
+
+        long totalOrders = orderRepository.count();
+        BigDecimal totalAmount = orderRepository.sumOrderTotal();
+        Long totalProductsSold = orderItemRepository.sumTotalQuantity();
+        Map<String, Long> ordersByStatus = orderRepository.countByStatus();
+
+        statistics.setTotalOrders(totalOrders);
+        statistics.setTotalUsers(orderRepository.countDistinctUsers());
+        statistics.setTotalAmount(totalAmount != null ? totalAmount : BigDecimal.ZERO);
+        statistics.setTotalProductsSold(totalProductsSold != null ? totalProductsSold : 0L);
+        statistics.setOrdersByStatus(ordersByStatus);
+        statistics.setPendingOrders(ordersByStatus.getOrDefault("PENDING", 0L));
+        statistics.setCompletedOrders(ordersByStatus.getOrDefault("DELIVERED", 0L));
+        statistics.setAverageOrderValue(totalOrders > 0 && totalAmount != null ?
+                totalAmount.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+
+        Map<String, BigDecimal> revenueByDay = new LinkedHashMap<>();
+        for (int i = 6; i >= 0; i--) {
+            revenueByDay.put(LocalDate.now().minusDays(i).format(DAY_FORMAT), BigDecimal.ZERO);
+        }
+        for (Order order : orderRepository.findByCreatedAtAfter(LocalDateTime.now().minusDays(7))) {
+            String day = order.getCreatedAt().toLocalDate().format(DAY_FORMAT);
+            revenueByDay.computeIfPresent(day, (key, amount) -> amount.add(order.getTotal()));
+        }
+        statistics.setRevenueByDay(revenueByDay);
+        return statistics;
+    }
+}
@@ -0,0 +1,43 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.Product;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import com.smartshop.api.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void shortPrefixMatchesEveryTermWithIt() {
+        // A prefix no other test uses, shared by more distinct terms than a capped expansion would visit
+        String prefix = "q" + UUID.randomUUID().toString().replace("-", "").substring(0, 6);
+        int products = 100;
+        for (int i = 0; i < products; i++) {
+            Product product = testData.product("10.00", 1);
+            product.setName(prefix + i + " widget");
+            productRepository.save(product);
+        }
+        productSearchService.rebuild();
+
+        ProductSearchService.SearchResult result = productSearchService.search(prefix, null, null, null, 10);
+
+        assertThat(result.getTotal()).isEqualTo(products);
+        assertThat(result.getProductIds()).hasSize(10);
+        assertThat(result.getPriceFacets().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(products);
+    }
+}
@@ -0,0 +1,131 @@
+package com.smartshop.api.services;
+
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.SubCategory;
+import com.smartshop.api.payload.response.ProductResponse;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.support.PostgresIntegrationTest;
+import com.smartshop.api.support.TestData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityNotFoundException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductServiceTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TestData testData;
+
+    @Test
+    void replacedImageIsDeletedAfterTheUpdateCommits() {
+        Product product = productWithImage();
+        String oldImage = product.getImageUrl();
+        String newImage = storeImage();
+
+        productService.update(product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                product.getStockQuantity(), null, null, newImage, "http://localhost/api");
+
+        assertThat(fileStorageService.findFileMetadata(oldImage)).isEmpty();
+        assertThat(fileStorageService.findFileMetadata(newImage)).isPresent();
+        assertThat(productRepository.findById(product.getId()).get().getImageUrl()).isEqualTo(newImage);
+    }
+
+    @Test
+    void imageIsKeptWhenTheUpdateRollsBack() {
+        Product product = productWithImage();
+        String oldImage = product.getImageUrl();
+        String newImage = storeImage();
+
+        assertThatThrownBy(() -> productService.update(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getStockQuantity(), Long.MAX_VALUE, null, newImage, "http://localhost/api"))
+                .isInstanceOf(EntityNotFoundException.class);
+
+        assertThat(fileStorageService.findFileMetadata(oldImage)).isPresent();
+        assertThat(productRepository.findById(product.getId()).get().getImageUrl()).isEqualTo(oldImage);
+    }
+
+    @Test
+    void imageIsDeletedAfterTheProductDeleteCommits() {
+        Product product = productWithImage();
+        String image = product.getImageUrl();
+
+        productService.delete(product.getId());
+
+        assertThat(productRepository.findById(product.getId())).isEmpty();
+        assertThat(fileStorageService.findFileMetadata(image)).isEmpty();
+    }
+
+    @Test
+    void imageIsKeptWhenTheProductDeleteRollsBack() {
+        Product product = productWithImage();
+        String image = product.getImageUrl();
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            productService.delete(product.getId());
+            throw new IllegalStateException("rolled back");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(productRepository.findById(product.getId())).isPresent();
+        assertThat(fileStorageService.findFileMetadata(image)).isPresent();
+    }
+
+    @Test
+    void createdProductKeepsItsImageAndDiscount() {
+        SubCategory subCategory = testData.subCategory();
+        String image = storeImage();
+
+        ProductResponse created = productService.create("Created " + UUID.randomUUID(), "description",
+                new BigDecimal("20.00"), 4, subCategory.getCategory().getId(), subCategory.getId(), 25,
+                image, "http://localhost/api");
+
+        Product saved = productRepository.findById(created.getId()).orElseThrow();
+        assertThat(saved.getImageUrl()).isEqualTo(image);
+        assertThat(saved.getDiscountedPrice()).isEqualByComparingTo("15.00");
+        assertThat(fileStorageService.findFileMetadata(image)).isPresent();
+    }
+
+    @Test
+    void productIsNotCreatedForAMissingSubCategory() {
+        SubCategory subCategory = testData.subCategory();
+        String name = "Missing subcategory " + UUID.randomUUID();
+
+        assertThatThrownBy(() -> productService.create(name, "description", new BigDecimal("20.00"), 4,
+                subCategory.getCategory().getId(), Long.MAX_VALUE, null, null, "http://localhost/api"))
+                .isInstanceOf(EntityNotFoundException.class);
+
+        assertThat(productRepository.findByNameContainingIgnoreCase(name, Pageable.unpaged())).isEmpty();
+    }
+
+    private Product productWithImage() {
+        Product product = testData.product("9.99", 5);
+        product.setImageUrl(storeImage());
+        return productRepository.save(product);
+    }
+
+    private String storeImage() {
+        String filePath = "products/" + UUID.randomUUID() + ".txt";
+        assertThat(fileStorageService.storeGeneratedFile("image.txt", "text/plain", filePath,
+                filePath.getBytes(StandardCharsets.UTF_8))).isTrue();
+        return filePath;
+    }
+}
@@ -0,0 +1,119 @@
+package com.smartshop.api.support;
+
+import com.smartshop.api.models.Address;
+import com.smartshop.api.models.Category;
+import com.smartshop.api.models.ERole;
+import com.smartshop.api.models.Order;
+import com.smartshop.api.models.OrderItem;
+import com.smartshop.api.models.OrderStatus;
+import com.smartshop.api.models.Product;
+import com.smartshop.api.models.Role;
+import com.smartshop.api.models.SubCategory;
+import com.smartshop.api.models.User;
+import com.smartshop.api.repositories.CategoryRepository;
+import com.smartshop.api.repositories.OrderRepository;
+import com.smartshop.api.repositories.ProductRepository;
+import com.smartshop.api.repositories.RoleRepository;
+import com.smartshop.api.repositories.SubCategoryRepository;
+import com.smartshop.api.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Creates users, products and orders for integration tests. Every call commits its rows, and
+ * names are unique so tests can share the database.
+ */
+@TestComponent
+public class TestData {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private SubCategoryRepository subCategoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public User user() {
+        String suffix = unique();
+        User user = new User("Test " + suffix, "test-" + suffix + "@example.com",
+                passwordEncoder.encode("password"), "9876543210");
+        Role role = roleRepository.findByName(ERole.ROLE_USER)
+                .orElseThrow(() -> new IllegalStateException("ROLE_USER is created at startup"));
+        user.getRoles().add(role);
+        return userRepository.save(user);
+    }
+
+    public SubCategory subCategory() {
+        Category category = new Category();
+        category.setName("Category " + unique());
+        category = categoryRepository.save(category);
+
+        SubCategory subCategory = new SubCategory();
+        subCategory.setName("Subcategory " + unique());
+        subCategory.setCategory(category);
+        return subCategoryRepository.save(subCategory);
+    }
+
+    public Product product(SubCategory subCategory, String price, int stock) {
+        Product product = new Product("Product " + unique(), "Test product", new BigDecimal(price), stock,
+                subCategory.getCategory());
+        product.setSubCategory(subCategory);
+        return productRepository.save(product);
+    }
+
+    public Product product(String price, int stock) {
+        return product(subCategory(), price, stock);
+    }
+
+    /**
+     * Saves an order of the given items, shipping to a test address, and backdates it to
+     * {@code createdAt}, which Hibernate would otherwise set to the current time.
+     */
+    public Order order(User user, OrderStatus status, LocalDateTime createdAt, OrderItem... items) {
+        Order order = new Order();
+        order.setUser(user);
+        order.setShippingAddress(new Address(null, "1 Test Street", null, "Pune", "Maharashtra", "411001", "India", user));
+        order.setStatus(status);
+        for (OrderItem item : items) {
+            order.addOrderItem(item);
+        }
+        order.calculateTotals();
+        Order saved = orderRepository.save(order);
+
+        jdbcTemplate.update("UPDATE orders SET created_at = ? WHERE id = ?", Timestamp.valueOf(createdAt), saved.getId());
+        saved.setCreatedAt(createdAt);
+        return saved;
+    }
+
+    public static OrderItem item(Product product, int quantity) {
+        return new OrderItem(product, quantity);
+    }
+
+    private static String unique() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,2 @@
+-- Product.description is mapped as LONGTEXT (a MySQL type); give PostgreSQL a matching name
+CREATE DOMAIN longtext AS text;